@@ -0,0 +1,80 @@
+package com.tecsup.app.micro.order.benchmark;
+
+import com.tecsup.app.micro.order.client.Product;
+import com.tecsup.app.micro.order.dto.CreateOrderRequest;
+import com.tecsup.app.micro.order.dto.Order;
+import com.tecsup.app.micro.order.dto.OrderItem;
+import com.tecsup.app.micro.order.dto.ProductResponse;
+import com.tecsup.app.micro.order.dto.UserResponse;
+import com.tecsup.app.micro.order.entity.OrderEntity;
+import com.tecsup.app.micro.order.entity.OrderItemEntity;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+/**
+ * Datos de prueba compartidos por los benchmarks.
+ */
+final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    static Product product(Long id) {
+        return new Product(id, "Product " + id, "Description of product " + id,
+                price(id), 1_000, "Category " + (id % 7), 1L);
+    }
+
+    // Precios con céntimos variados para que el redondeo no sea trivial
+    static BigDecimal price(long id) {
+        return BigDecimal.valueOf(199 + (id * 7_919) % 150_000, 2);
+    }
+
+    static CreateOrderRequest createOrderRequest(int itemCount) {
+        List<CreateOrderRequest.CreateOrderItemRequest> items = LongStream.rangeClosed(1, itemCount)
+                .mapToObj(productId -> new CreateOrderRequest.CreateOrderItemRequest(productId, (int) (productId % 5) + 1))
+                .toList();
+        return new CreateOrderRequest(1L, items);
+    }
+
+    static OrderEntity orderEntity(long id) {
+        OrderEntity entity = new OrderEntity();
+        entity.setId(id);
+        entity.setOrderNumber("ORD-2026-" + id);
+        entity.setUserId(1L);
+        entity.setStatus("PENDING");
+        entity.setTotalAmount(new BigDecimal("1234.56"));
+        entity.setCreatedAt(LocalDateTime.of(2026, 1, 1, 12, 0));
+        entity.setUpdatedAt(LocalDateTime.of(2026, 1, 1, 12, 0));
+        return entity;
+    }
+
+    static List<OrderItemEntity> itemEntities(long orderId, int itemCount) {
+        List<OrderItemEntity> items = new ArrayList<>(itemCount);
+        for (long productId = 1; productId <= itemCount; productId++) {
+            int quantity = (int) (productId % 5) + 1;
+            BigDecimal unitPrice = price(productId);
+            Product product = product(productId);
+            items.add(new OrderItemEntity(orderId * 1_000 + productId, orderId, productId, product.getName(),
+                    product.getCategory(), quantity, unitPrice, unitPrice.multiply(BigDecimal.valueOf(quantity))));
+        }
+        return items;
+    }
+
+    static Order order(int itemCount) {
+        List<OrderItem> items = new ArrayList<>(itemCount);
+        for (OrderItemEntity entity : itemEntities(1L, itemCount)) {
+            Product product = product(entity.getProductId());
+            items.add(new OrderItem(entity.getId(),
+                    new ProductResponse(product.getId(), product.getName(), product.getPrice()),
+                    entity.getQuantity(), entity.getUnitPrice(), entity.getSubtotal()));
+        }
+        OrderEntity entity = orderEntity(1L);
+        return new Order(entity.getId(), entity.getOrderNumber(),
+                new UserResponse(1L, "John Doe", "john@example.com"), items, entity.getTotalAmount(),
+                entity.getStatus(), entity.getCreatedAt(), entity.getUpdatedAt());
+    }
+}
@@ -0,0 +1,123 @@
+package com.tecsup.app.micro.order.benchmark;
+
+import com.sun.net.httpserver.HttpServer;
+import com.tecsup.app.micro.order.client.DownstreamHttpClient;
+import com.tecsup.app.micro.order.client.DownstreamHttpProperties;
+import com.tecsup.app.micro.order.client.Product;
+import com.tecsup.app.micro.order.client.RestTemplateHttpClient;
+import com.tecsup.app.micro.order.client.WebClientHttpClient;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lote de {@code requests} consultas de producto contra un servidor local con latencia fija, con
+ * el transporte RestTemplate (cada llamada ocupa un hilo del pool mientras espera) y con WebClient
+ * (ninguno). El servidor comparte la máquina, así que las cifras solo valen comparadas entre sí en
+ * la misma ejecución.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DownstreamHttpClientBenchmark {
+
+    private static final String NODELAY = "sun.net.httpserver.nodelay";
+
+    @Param({"REST_TEMPLATE", "WEBCLIENT"})
+    private DownstreamHttpProperties.Type transport;
+
+    @Param({"400"})
+    private int requests;
+
+    @Param({"20"})
+    private long latencyMillis;
+
+    @Param({"16"})
+    private int callerThreads;
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private ExecutorService callerExecutor;
+    private DownstreamHttpClient client;
+    private String baseUrl;
+    private String previousNodelay;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        // Sin TCP_NODELAY el servidor del JDK agrega ~40 ms de Nagle/delayed-ACK a cada respuesta
+        previousNodelay = System.setProperty(NODELAY, "true");
+        serverExecutor = Executors.newFixedThreadPool(200);
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 512);
+        server.setExecutor(serverExecutor);
+        server.createContext("/api/products/", exchange -> {
+            String id = exchange.getRequestURI().getPath().substring("/api/products/".length());
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = ("{\"id\":" + id + ",\"name\":\"Product " + id + "\",\"price\":10.00}")
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort();
+        callerExecutor = Executors.newFixedThreadPool(callerThreads);
+
+        DownstreamHttpProperties properties = new DownstreamHttpProperties();
+        if (transport == DownstreamHttpProperties.Type.WEBCLIENT) {
+            client = new WebClientHttpClient(properties);
+        } else {
+            SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+            requestFactory.setConnectTimeout(properties.getConnectTimeout());
+            requestFactory.setReadTimeout(properties.getReadTimeout());
+            client = new RestTemplateHttpClient(new RestTemplate(requestFactory));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (client instanceof WebClientHttpClient webClient) {
+            webClient.dispose();
+        }
+        server.stop(0);
+        serverExecutor.shutdownNow();
+        callerExecutor.shutdownNow();
+        if (previousNodelay == null) {
+            System.clearProperty(NODELAY);
+        } else {
+            System.setProperty(NODELAY, previousNodelay);
+        }
+    }
+
+    @Benchmark
+    public Product[] productBatch() {
+        @SuppressWarnings("unchecked")
+        CompletableFuture<Product>[] futures = new CompletableFuture[requests];
+        for (int i = 0; i < requests; i++) {
+            futures[i] = client.getAsync(baseUrl + "/api/products/" + (i % 50), Product.class, callerExecutor);
+        }
+        CompletableFuture.allOf(futures).join();
+        Product[] products = new Product[requests];
+        for (int i = 0; i < requests; i++) {
+            products[i] = futures[i].join();
+        }
+        return products;
+    }
+}
@@ -0,0 +1,113 @@
+package com.tecsup.app.micro.order.benchmark;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.OutputStreamAppender;
+import com.tecsup.app.micro.order.client.Product;
+import com.tecsup.app.micro.order.client.User;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste del logging de createOrder por orden. PER_ITEM_SYNC reproduce el esquema anterior (INFO con
+ * toString de usuario y de cada producto, escrito en el hilo de la petición); SUMMARY_SYNC deja el
+ * detalle en DEBUG y escribe una sola línea; SUMMARY_ASYNC añade el AsyncAppender de logback-spring.xml.
+ * La salida se descarta para medir solo formateo y entrega al appender.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoggingBenchmark {
+
+    public enum Style { PER_ITEM_SYNC, SUMMARY_SYNC, SUMMARY_ASYNC }
+
+    private static final String PATTERN = "%d{yyyy-MM-dd'T'HH:mm:ss.SSSXXX} %5p --- [%15.15t] [%X{correlationId:-}] %-40.40logger{39} : %m%n";
+
+    @Param({"PER_ITEM_SYNC", "SUMMARY_SYNC", "SUMMARY_ASYNC"})
+    private Style style;
+
+    @Param({"10", "50"})
+    private int itemCount;
+
+    private LoggerContext context;
+    private Logger log;
+    private User user;
+    private List<Product> products;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new LoggerContext();
+
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern(PATTERN);
+        encoder.start();
+
+        OutputStreamAppender<ILoggingEvent> output = new OutputStreamAppender<>();
+        output.setContext(context);
+        output.setEncoder(encoder);
+        output.setOutputStream(OutputStream.nullOutputStream());
+        output.start();
+
+        Appender<ILoggingEvent> appender = output;
+        if (style == Style.SUMMARY_ASYNC) {
+            AsyncAppender async = new AsyncAppender();
+            async.setContext(context);
+            async.setQueueSize(8192);
+            async.setDiscardingThreshold(820);
+            async.setNeverBlock(true);
+            async.addAppender(output);
+            async.start();
+            appender = async;
+        }
+
+        Logger root = context.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+        root.setLevel(ch.qos.logback.classic.Level.INFO);
+        root.addAppender(appender);
+        log = context.getLogger("com.tecsup.app.micro.order.service.OrderService");
+
+        user = new User(1L, "John Doe", "john@example.com", "123456789", "Address 1");
+        products = new ArrayList<>(itemCount);
+        for (long id = 1; id <= itemCount; id++) {
+            products.add(BenchmarkData.product(id));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.stop();
+    }
+
+    @Benchmark
+    public void logOrder() {
+        if (style == Style.PER_ITEM_SYNC) {
+            log.info("Creating order for user: {}", user.getId());
+            log.info("User validated: {}", user);
+            for (Product product : products) {
+                log.info("Product validated: {}", product);
+            }
+            log.info("Order saved with id: {}", 1L);
+            return;
+        }
+
+        log.debug("Creating order for user: {}", user.getId());
+        log.debug("User validated: {}", user);
+        for (Product product : products) {
+            log.debug("Product validated: {}", product);
+        }
+        log.info("Order created: id={} number={} user={} items={} total={} elapsedMs={}", 1L,
+                "ORD-2026-0000000001", user.getId(), products.size(), new BigDecimal("1234.56"), 3L);
+    }
+}
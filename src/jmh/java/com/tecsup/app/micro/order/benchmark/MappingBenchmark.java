@@ -0,0 +1,72 @@
+package com.tecsup.app.micro.order.benchmark;
+
+import com.tecsup.app.micro.order.dto.Order;
+import com.tecsup.app.micro.order.dto.OrderItem;
+import com.tecsup.app.micro.order.entity.OrderEntity;
+import com.tecsup.app.micro.order.entity.OrderItemEntity;
+import com.tecsup.app.micro.order.mapper.OrderItemMapper;
+import com.tecsup.app.micro.order.mapper.OrderMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversión entidad → DTO: mapeo escrito a mano (como en OrderService) frente a los mappers de MapStruct.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappingBenchmark {
+
+    @Param({"1", "10", "50"})
+    private int itemCount;
+
+    private OrderEntity orderEntity;
+    private List<OrderItemEntity> itemEntities;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        orderEntity = BenchmarkData.orderEntity(1L);
+        itemEntities = BenchmarkData.itemEntities(1L, itemCount);
+    }
+
+    @Benchmark
+    public Order handWritten() {
+        List<OrderItem> items = new ArrayList<>(itemEntities.size());
+        for (OrderItemEntity entity : itemEntities) {
+            OrderItem orderItem = new OrderItem();
+            orderItem.setId(entity.getId());
+            orderItem.setQuantity(entity.getQuantity());
+            orderItem.setUnitPrice(entity.getUnitPrice());
+            orderItem.setSubtotal(entity.getSubtotal());
+            items.add(orderItem);
+        }
+
+        Order order = new Order();
+        order.setId(orderEntity.getId());
+        order.setOrderNumber(orderEntity.getOrderNumber());
+        order.setItems(items);
+        order.setTotalAmount(orderEntity.getTotalAmount());
+        order.setStatus(orderEntity.getStatus());
+        order.setCreatedAt(orderEntity.getCreatedAt());
+        order.setUpdatedAt(orderEntity.getUpdatedAt());
+        return order;
+    }
+
+    @Benchmark
+    public Order mapStruct() {
+        List<OrderItem> items = new ArrayList<>(itemEntities.size());
+        for (OrderItemEntity entity : itemEntities) {
+            items.add(OrderItemMapper.INSTANCE.toDTO(entity));
+        }
+
+        Order order = OrderMapper.INSTANCE.toDTO(orderEntity);
+        order.setItems(items);
+        return order;
+    }
+}
@@ -0,0 +1,118 @@
+package com.tecsup.app.micro.order.benchmark;
+
+import com.tecsup.app.micro.order.OrderServiceApplication;
+import com.tecsup.app.micro.order.client.Product;
+import com.tecsup.app.micro.order.client.ProductClient;
+import com.tecsup.app.micro.order.client.User;
+import com.tecsup.app.micro.order.client.UserClient;
+import com.tecsup.app.micro.order.dto.CreateOrderRequest;
+import com.tecsup.app.micro.order.dto.Order;
+import com.tecsup.app.micro.order.service.OrderService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * createOrder y getOrderById contra H2 en memoria con clientes remotos simulados.
+ * {@code tableSize} precarga filas ajenas en order_items: si vuelve un recorrido completo
+ * de la tabla, getOrderById crece con este parámetro.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderServiceBenchmark {
+
+    @Param({"1", "10", "50"})
+    private int itemCount;
+
+    @Param({"1000", "100000"})
+    private int tableSize;
+
+    // Con la caché de respuestas activa, getOrderById mide aciertos; sin ella, la orden se arma cada vez
+    @Param({"false", "true"})
+    private boolean responseCache;
+
+    private ConfigurableApplicationContext context;
+    private OrderService orderService;
+    private CreateOrderRequest request;
+    private Long orderId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(OrderServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .initializers(applicationContext -> registerStubClients((GenericApplicationContext) applicationContext))
+                // Como argumentos para que el perfil test sustituya al local de application.yml
+                .run("--spring.profiles.active=test",
+                        "--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                        "--spring.jpa.show-sql=false",
+                        "--order.cache.enabled=" + responseCache,
+                        "--logging.level.root=WARN");
+        orderService = context.getBean(OrderService.class);
+
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO order_items (id, order_id, product_id, quantity, unit_price, subtotal) VALUES (?, ?, ?, 1, 9.99, 9.99)",
+                IntStream.range(0, tableSize)
+                        .mapToObj(i -> new Object[]{10_000_000L + i, 10_000_000L + i / 5, (long) (i % 100) + 1})
+                        .toList());
+
+        request = BenchmarkData.createOrderRequest(itemCount);
+        orderId = orderService.createOrder(request).getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Order createOrder() {
+        return orderService.createOrder(request);
+    }
+
+    @Benchmark
+    public Order getOrderById() {
+        return orderService.getOrderById(orderId);
+    }
+
+    // Se registran antes del escaneo de componentes, que entonces omite los clientes reales
+    private static void registerStubClients(GenericApplicationContext applicationContext) {
+        applicationContext.registerBean("userClient", UserClient.class, () -> new UserClient(null, null, null, null) {
+            @Override
+            public User getUserById(Long userId) {
+                return new User(userId, "John Doe", "john@example.com", "123456789", "Address 1");
+            }
+        });
+        applicationContext.registerBean("productClient", ProductClient.class, () -> new ProductClient(null, null, null, null, null, null) {
+            @Override
+            public Product getProductById(Long productId) {
+                return BenchmarkData.product(productId);
+            }
+
+            @Override
+            public Map<Long, Product> getProductsByIds(Collection<Long> productIds) {
+                Map<Long, Product> products = new LinkedHashMap<>();
+                productIds.forEach(id -> products.put(id, BenchmarkData.product(id)));
+                return products;
+            }
+
+            @Override
+            public Map<Long, Product> getProductsForPricing(Collection<Long> productIds) {
+                return getProductsByIds(productIds);
+            }
+        });
+    }
+}
@@ -0,0 +1,63 @@
+package com.tecsup.app.micro.order.benchmark;
+
+import com.tecsup.app.micro.order.service.PricingEngine;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cálculo de subtotales y total de un pedido: con BigDecimal encadenado (como se hacía antes) y en
+ * céntimos con {@link PricingEngine}, creando solo los BigDecimal que guarda la entidad. Con
+ * {@code -prof gc} se ve la diferencia en bytes asignados por operación.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PricingBenchmark {
+
+    @Param({"1", "10", "50", "500"})
+    private int itemCount;
+
+    private BigDecimal[] unitPrices;
+    private int[] quantities;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        unitPrices = new BigDecimal[itemCount];
+        quantities = new int[itemCount];
+        for (int i = 0; i < itemCount; i++) {
+            unitPrices[i] = BenchmarkData.price(i + 1);
+            quantities[i] = i % 5 + 1;
+        }
+    }
+
+    @Benchmark
+    public BigDecimal subtotalsAndTotal(Blackhole blackhole) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < itemCount; i++) {
+            BigDecimal subtotal = unitPrices[i].multiply(BigDecimal.valueOf(quantities[i]))
+                    .setScale(2, RoundingMode.HALF_UP);
+            blackhole.consume(subtotal);
+            total = total.add(subtotal);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public BigDecimal subtotalsAndTotalInCents(Blackhole blackhole) {
+        long totalCents = 0;
+        for (int i = 0; i < itemCount; i++) {
+            long subtotalCents = PricingEngine.subtotalCents(unitPrices[i], quantities[i]);
+            // El subtotal de cada item se sigue guardando como BigDecimal en la entidad
+            blackhole.consume(PricingEngine.toAmount(subtotalCents));
+            totalCents = Math.addExact(totalCents, subtotalCents);
+        }
+        return PricingEngine.toAmount(totalCents);
+    }
+}
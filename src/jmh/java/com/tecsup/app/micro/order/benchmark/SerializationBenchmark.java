@@ -0,0 +1,58 @@
+package com.tecsup.app.micro.order.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import com.tecsup.app.micro.order.dto.Order;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+/**
+ * Serialización JSON de Order con un ObjectMapper configurado como el de Spring Boot: por reflexión,
+ * con Blackbird, y el camino de GET /api/orders/{id} con la caché caliente (bytes ya codificados
+ * más el hash del ETag).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"1", "10", "50", "1000"})
+    private int itemCount;
+
+    private ObjectMapper objectMapper;
+    private ObjectMapper blackbirdMapper;
+    private Order order;
+    private byte[] cachedJson;
+
+    @Setup(Level.Trial)
+    public void setUp() throws JsonProcessingException {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        blackbirdMapper = Jackson2ObjectMapperBuilder.json().modulesToInstall(new BlackbirdModule()).build();
+        order = BenchmarkData.order(itemCount);
+        cachedJson = blackbirdMapper.writeValueAsBytes(order);
+    }
+
+    @Benchmark
+    public byte[] writeOrder() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(order);
+    }
+
+    @Benchmark
+    public byte[] writeOrderBlackbird() throws JsonProcessingException {
+        return blackbirdMapper.writeValueAsBytes(order);
+    }
+
+    // Mismo cálculo de ETag que OrderController sobre los bytes cacheados
+    @Benchmark
+    public long cachedBytesETag() {
+        CRC32C crc = new CRC32C();
+        crc.update(cachedJson);
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,232 @@
+package com.tecsup.app.micro.order.archive;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Archivo inmutable de órdenes archivadas, ordenadas por id y agrupadas en bloques comprimidos
+ * con deflate:
+ * <pre>
+ * cabecera: MAGIC, VERSION
+ * bloques:  [tamaño sin comprimir][tamaño comprimido][datos], con registros [id][longitud][JSON]
+ * índice:   [primer id][offset] de cada bloque
+ * pie:      [offset del índice][bloques][órdenes][id mínimo][id máximo] MAGIC
+ * </pre>
+ * El archivo se mapea en memoria y solo el índice disperso se copia al heap: buscar una orden es
+ * una búsqueda binaria en el índice más descomprimir un bloque, y las páginas las guarda el
+ * sistema operativo, no la JVM.
+ */
+final class ArchiveSegment {
+
+    private static final int MAGIC = 0x4F415243; // "OARC"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+    private static final int INDEX_ENTRY_BYTES = 12;
+    private static final int FOOTER_BYTES = 36;
+
+    private final Path path;
+    private final MappedByteBuffer data;
+    private final long[] firstIds;
+    private final int[] offsets;
+    private final int orders;
+    private final long minId;
+    private final long maxId;
+
+    private ArchiveSegment(Path path, MappedByteBuffer data, long[] firstIds, int[] offsets,
+                           int orders, long minId, long maxId) {
+        this.path = path;
+        this.data = data;
+        this.firstIds = firstIds;
+        this.offsets = offsets;
+        this.orders = orders;
+        this.minId = minId;
+        this.maxId = maxId;
+    }
+
+    /**
+     * Escribe el segmento en un archivo temporal y lo renombra al terminar: un segmento con el
+     * nombre definitivo siempre está completo y sincronizado en disco.
+     */
+    static ArchiveSegment write(Path path, NavigableMap<Long, byte[]> records, int blockSize) throws IOException {
+        if (records.isEmpty()) {
+            throw new IllegalArgumentException("An archive segment needs at least one order");
+        }
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        Deflater deflater = new Deflater();
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            List<Long> blockFirstIds = new ArrayList<>();
+            List<Integer> blockOffsets = new ArrayList<>();
+            ByteArrayOutputStream block = new ByteArrayOutputStream();
+            DataOutputStream blockOut = new DataOutputStream(block);
+            int inBlock = 0;
+            for (Map.Entry<Long, byte[]> record : records.entrySet()) {
+                if (inBlock == 0) {
+                    blockFirstIds.add(record.getKey());
+                    blockOffsets.add(out.size());
+                }
+                blockOut.writeLong(record.getKey());
+                blockOut.writeInt(record.getValue().length);
+                blockOut.write(record.getValue());
+                if (++inBlock == blockSize) {
+                    writeBlock(out, block.toByteArray(), deflater);
+                    block.reset();
+                    inBlock = 0;
+                }
+            }
+            if (inBlock > 0) {
+                writeBlock(out, block.toByteArray(), deflater);
+            }
+
+            int indexOffset = out.size();
+            for (int i = 0; i < blockFirstIds.size(); i++) {
+                out.writeLong(blockFirstIds.get(i));
+                out.writeInt(blockOffsets.get(i));
+            }
+            out.writeLong(indexOffset);
+            out.writeInt(blockFirstIds.size());
+            out.writeInt(records.size());
+            out.writeLong(records.firstKey());
+            out.writeLong(records.lastKey());
+            out.writeInt(MAGIC);
+            out.flush();
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Archive segment " + path + " exceeds 2 GB; lower order.archive.segment-max-orders");
+            }
+            channel.force(true);
+        } finally {
+            deflater.end();
+        }
+        Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE);
+        return open(path);
+    }
+
+    private static void writeBlock(DataOutputStream out, byte[] raw, Deflater deflater) throws IOException {
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.length / 4 + 64);
+        byte[] buffer = new byte[8192];
+        while (!deflater.finished()) {
+            compressed.write(buffer, 0, deflater.deflate(buffer));
+        }
+        out.writeInt(raw.length);
+        out.writeInt(compressed.size());
+        compressed.writeTo(out);
+    }
+
+    static ArchiveSegment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES + FOOTER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Invalid archive segment " + path + " of " + size + " bytes");
+            }
+            // El mapeo sigue siendo válido después de cerrar el canal
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int footer = (int) size - FOOTER_BYTES;
+            if (data.getInt(0) != MAGIC || data.getInt(4) != VERSION || data.getInt(footer + 32) != MAGIC) {
+                throw new IOException("Invalid archive segment " + path);
+            }
+            int indexOffset = (int) data.getLong(footer);
+            int blocks = data.getInt(footer + 8);
+            long[] firstIds = new long[blocks];
+            int[] offsets = new int[blocks];
+            for (int i = 0; i < blocks; i++) {
+                firstIds[i] = data.getLong(indexOffset + i * INDEX_ENTRY_BYTES);
+                offsets[i] = data.getInt(indexOffset + i * INDEX_ENTRY_BYTES + 8);
+            }
+            return new ArchiveSegment(path, data, firstIds, offsets, data.getInt(footer + 12),
+                    data.getLong(footer + 16), data.getLong(footer + 24));
+        }
+    }
+
+    /**
+     * JSON de la orden, o null si no está en este segmento. Solo usa lecturas absolutas sobre el
+     * mapeo, así que admite varias búsquedas a la vez.
+     */
+    byte[] find(long id) {
+        if (id < minId || id > maxId) {
+            return null;
+        }
+        int block = Arrays.binarySearch(firstIds, id);
+        if (block < 0) {
+            // El bloque anterior al punto de inserción es el único que puede contenerla
+            block = -block - 2;
+        }
+        ByteBuffer records = inflate(offsets[block]);
+        while (records.hasRemaining()) {
+            long recordId = records.getLong();
+            int length = records.getInt();
+            if (recordId == id) {
+                byte[] json = new byte[length];
+                records.get(json);
+                return json;
+            }
+            if (recordId > id) {
+                return null;
+            }
+            records.position(records.position() + length);
+        }
+        return null;
+    }
+
+    private ByteBuffer inflate(int offset) {
+        int rawLength = data.getInt(offset);
+        int compressedLength = data.getInt(offset + 4);
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data.slice(offset + 8, compressedLength));
+            byte[] raw = new byte[rawLength];
+            int read = 0;
+            while (read < rawLength && !inflater.finished()) {
+                int n = inflater.inflate(raw, read, rawLength - read);
+                if (n == 0 && inflater.needsInput()) {
+                    break;
+                }
+                read += n;
+            }
+            if (read != rawLength) {
+                throw new IllegalStateException("Truncated block at offset " + offset + " in " + path);
+            }
+            return ByteBuffer.wrap(raw);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt block at offset " + offset + " in " + path, e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    Path path() {
+        return path;
+    }
+
+    int orders() {
+        return orders;
+    }
+
+    long sizeBytes() {
+        return data.capacity();
+    }
+}
@@ -0,0 +1,12 @@
+package com.tecsup.app.micro.order.archive;
+
+import com.tecsup.app.micro.order.entity.OrderEntity;
+import com.tecsup.app.micro.order.entity.OrderItemEntity;
+
+import java.util.List;
+
+/**
+ * Una orden tal como estaba en la base de datos al archivarse, con sus items.
+ */
+public record ArchivedOrder(OrderEntity order, List<OrderItemEntity> items) {
+}
@@ -0,0 +1,193 @@
+package com.tecsup.app.micro.order.archive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Órdenes que ya no están en la base de datos, en segmentos de solo anexado bajo
+ * {@code order.archive.directory}. Cada llamada a {@link #append(List)} escribe un segmento nuevo y
+ * los existentes no se modifican nunca. Con varias réplicas el directorio es compartido: una sola
+ * escribe (la que tiene el bloqueo order-archive) y las demás abren los segmentos nuevos cuando
+ * una búsqueda no encuentra la orden. Sin {@code order.archive.enabled} no toca el disco y
+ * {@link #find(Long)} nunca encuentra nada.
+ */
+@Slf4j
+@Component
+public class OrderArchive {
+
+    private static final String PREFIX = "orders-";
+    private static final String SUFFIX = ".seg";
+    private static final String TMP_SUFFIX = SUFFIX + ".tmp";
+
+    private final OrderArchiveProperties properties;
+    private final ObjectMapper objectMapper;
+    private final Path directory;
+
+    // Segmentos abiertos por número de secuencia; solo se modifica con el monitor tomado
+    private final TreeMap<Long, ArchiveSegment> opened = new TreeMap<>();
+    // Del más nuevo al más antiguo: si una orden quedó en dos segmentos, gana la última copia
+    private volatile List<ArchiveSegment> segments = List.of();
+    private volatile long lastRefresh;
+
+    public OrderArchive(OrderArchiveProperties properties, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        if (properties.isEnabled() && (properties.getDirectory() == null || properties.getDirectory().isBlank())) {
+            throw new IllegalStateException("order.archive.directory is required when order.archive.enabled=true: "
+                    + "point it at a persistent volume shared by every replica");
+        }
+        this.directory = properties.getDirectory() == null ? null : Paths.get(properties.getDirectory());
+        if (properties.isEnabled()) {
+            load();
+        }
+        Gauge.builder("order.archive.segments", this, archive -> archive.segments.size())
+                .description("Order archive segments open on this instance")
+                .register(meterRegistry);
+        Gauge.builder("order.archive.orders", this,
+                        archive -> archive.segments.stream().mapToLong(ArchiveSegment::orders).sum())
+                .description("Orders stored in the archive segments")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    public Optional<ArchivedOrder> find(Long id) {
+        Optional<ArchivedOrder> found = find(id, segments);
+        // Otra réplica pudo archivarla después del último listado del directorio
+        if (found.isEmpty() && properties.isEnabled() && refreshIfStale()) {
+            found = find(id, segments);
+        }
+        return found;
+    }
+
+    /**
+     * Escribe las órdenes en un segmento nuevo. Al volver el segmento está sincronizado en disco y
+     * {@link #find(Long)} ya lo ve: recién entonces se pueden borrar las filas. Solo debe llamarlo
+     * la réplica que tiene el bloqueo order-archive: antes de escribir abre los segmentos de quien
+     * lo tuvo antes, para no repetir su número, y borra las escrituras que dejó a medias.
+     */
+    public synchronized void append(List<ArchivedOrder> orders) {
+        if (!properties.isEnabled()) {
+            throw new IllegalStateException("Order archive is disabled");
+        }
+        refresh();
+        deleteInterruptedWrites();
+        TreeMap<Long, byte[]> records = new TreeMap<>();
+        for (ArchivedOrder order : orders) {
+            records.put(order.order().getId(), encode(order));
+        }
+        long sequence = opened.isEmpty() ? 1 : opened.lastKey() + 1;
+        Path path = directory.resolve(String.format("%s%010d%s", PREFIX, sequence, SUFFIX));
+        try {
+            ArchiveSegment segment = ArchiveSegment.write(path, records, properties.getBlockSize());
+            opened.put(sequence, segment);
+            segments = List.copyOf(opened.descendingMap().values());
+            log.info("Archived {} orders to {} ({} bytes)", segment.orders(), path.getFileName(), segment.sizeBytes());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write archive segment " + path, e);
+        }
+    }
+
+    private Optional<ArchivedOrder> find(Long id, List<ArchiveSegment> candidates) {
+        for (ArchiveSegment segment : candidates) {
+            byte[] json = segment.find(id);
+            if (json != null) {
+                return Optional.of(decode(json));
+            }
+        }
+        return Optional.empty();
+    }
+
+    private synchronized void load() {
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open order archive at " + directory.toAbsolutePath(), e);
+        }
+        refresh();
+        log.info("Opened order archive at {}: {} segments", directory.toAbsolutePath(), opened.size());
+    }
+
+    // Como mucho un listado del directorio por refresh-interval; true si apareció algún segmento
+    private boolean refreshIfStale() {
+        if (System.nanoTime() - lastRefresh < properties.getRefreshInterval().toNanos()) {
+            return false;
+        }
+        synchronized (this) {
+            if (System.nanoTime() - lastRefresh < properties.getRefreshInterval().toNanos()) {
+                return false;
+            }
+            return refresh() > 0;
+        }
+    }
+
+    // Abre los segmentos que todavía no estaban abiertos; devuelve cuántos
+    private int refresh() {
+        int added = 0;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : files.toList()) {
+                String name = path.getFileName().toString();
+                if (!name.startsWith(PREFIX) || !name.endsWith(SUFFIX)) {
+                    continue;
+                }
+                long sequence = Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+                if (!opened.containsKey(sequence)) {
+                    opened.put(sequence, ArchiveSegment.open(path));
+                    added++;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read order archive at " + directory.toAbsolutePath(), e);
+        }
+        lastRefresh = System.nanoTime();
+        if (added > 0) {
+            segments = List.copyOf(opened.descendingMap().values());
+        }
+        return added;
+    }
+
+    // Escritura interrumpida de quien tuvo el bloqueo antes: sus órdenes siguen en la base de datos
+    private void deleteInterruptedWrites() {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : files.toList()) {
+                if (path.getFileName().toString().endsWith(TMP_SUFFIX)) {
+                    log.warn("Deleting interrupted archive segment {}", path.getFileName());
+                    Files.delete(path);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not clean order archive at " + directory.toAbsolutePath(), e);
+        }
+    }
+
+    private byte[] encode(ArchivedOrder order) {
+        try {
+            return objectMapper.writeValueAsBytes(order);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not encode archived order " + order.order().getId(), e);
+        }
+    }
+
+    private ArchivedOrder decode(byte[] json) {
+        try {
+            return objectMapper.readValue(json, ArchivedOrder.class);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not decode archived order", e);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.tecsup.app.micro.order.archive;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "order.archive")
+public class OrderArchiveProperties {
+
+    private boolean enabled = false;
+
+    // Directorio de los segmentos; se crea si no existe. Obligatorio con enabled=true: debe ser un
+    // volumen persistente (el disco del contenedor se pierde al recrearlo) y, con varias réplicas,
+    // compartido por todas, porque las filas archivadas se borran de la base de datos común y
+    // cualquier réplica debe poder servirlas
+    private String directory;
+
+    // Cada cuánto como máximo una búsqueda sin resultado vuelve a listar el directorio para ver los
+    // segmentos que escribió la réplica que archiva
+    private Duration refreshInterval = Duration.ofSeconds(30);
+
+    // Arrendamiento del bloqueo order-archive en job_lock: solo una réplica archiva a la vez y lo
+    // renueva antes de cada tanda, así que debe superar con holgura lo que tarda una tanda
+    private Duration lockLease = Duration.ofMinutes(10);
+
+    // Solo se archivan las órdenes en estos estados creadas hace más de min-age
+    private Duration minAge = Duration.ofDays(90);
+
+    private List<String> statuses = List.of("DELIVERED", "CANCELLED");
+
+    private Duration runInterval = Duration.ofHours(1);
+
+    // Órdenes por segmento: cada tanda escribe un segmento y borra sus filas en una transacción
+    private int segmentMaxOrders = 5000;
+
+    // Tandas como máximo en cada ejecución, para no quedarse horas borrando tras una pausa larga
+    private int maxSegmentsPerRun = 20;
+
+    // Órdenes por bloque comprimido; el índice guarda el primer id de cada bloque
+    private int blockSize = 64;
+}
@@ -0,0 +1,37 @@
+package com.tecsup.app.micro.order.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Almacén en memoria acotado por bytes: cada entrada pesa lo que su JSON, así que el límite no
+ * depende de cuántos items tenga cada orden.
+ */
+public class CaffeineOrderCacheStore implements OrderCacheStore {
+
+    private final Cache<Long, byte[]> cache;
+
+    public CaffeineOrderCacheStore(OrderCacheProperties properties) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(properties.getMaxSizeBytes())
+                .weigher((Long orderId, byte[] json) -> json.length)
+                .expireAfterWrite(properties.getTtl())
+                .executor(Runnable::run)
+                .build();
+    }
+
+    @Override
+    public byte[] get(Long orderId) {
+        return cache.getIfPresent(orderId);
+    }
+
+    @Override
+    public void put(Long orderId, byte[] json) {
+        cache.put(orderId, json);
+    }
+
+    @Override
+    public void evict(Long orderId) {
+        cache.invalidate(orderId);
+    }
+}
@@ -0,0 +1,19 @@
+package com.tecsup.app.micro.order.cache;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "order.cache")
+public class OrderCacheProperties {
+
+    private boolean enabled = true;
+
+    // Red de seguridad: aunque se pierda una invalidación, la respuesta no vive más que esto
+    private Duration ttl = Duration.ofMinutes(10);
+
+    // Límite total en bytes de JSON guardado
+    private long maxSizeBytes = 64L * 1024 * 1024;
+}
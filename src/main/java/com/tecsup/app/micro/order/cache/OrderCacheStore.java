@@ -0,0 +1,32 @@
+package com.tecsup.app.micro.order.cache;
+
+/**
+ * Almacén de respuestas de órdenes ya serializadas en JSON, por id de orden. La implementación por
+ * defecto vive en memoria ({@link CaffeineOrderCacheStore}); otro bean de este tipo marcado
+ * {@code @Primary} (por ejemplo sobre Redis) la reemplaza sin tocar el servicio.
+ */
+public interface OrderCacheStore {
+
+    /** Devuelve el JSON guardado para la orden o null si no está. */
+    byte[] get(Long orderId);
+
+    void put(Long orderId, byte[] json);
+
+    void evict(Long orderId);
+
+    /** Almacén vacío para {@code order.cache.enabled=false}. */
+    OrderCacheStore NONE = new OrderCacheStore() {
+        @Override
+        public byte[] get(Long orderId) {
+            return null;
+        }
+
+        @Override
+        public void put(Long orderId, byte[] json) {
+        }
+
+        @Override
+        public void evict(Long orderId) {
+        }
+    };
+}
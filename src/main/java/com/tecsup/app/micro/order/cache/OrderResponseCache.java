@@ -0,0 +1,82 @@
+package com.tecsup.app.micro.order.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tecsup.app.micro.order.dto.Order;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Caché de respuestas {@link Order} completas (usuario, productos e items ya resueltos), guardadas
+ * como JSON. Se llena al crear la orden y al leerla, y se invalida cuando cambia su estado o sus items.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OrderResponseCache {
+
+    private final OrderCacheStore store;
+    private final ObjectMapper objectMapper;
+
+    public Optional<Order> get(Long orderId) {
+        byte[] json = store.get(orderId);
+        if (json == null) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(objectMapper.readValue(json, Order.class));
+        } catch (IOException e) {
+            log.warn("Discarding unreadable cached order {}: {}", orderId, e.getMessage());
+            store.evict(orderId);
+            return Optional.empty();
+        }
+    }
+
+    /** JSON guardado tal cual, listo para escribirse en la respuesta; null si no está. */
+    public byte[] getJson(Long orderId) {
+        return store.get(orderId);
+    }
+
+    public void put(Order order) {
+        try {
+            store.put(order.getId(), objectMapper.writeValueAsBytes(order));
+        } catch (IOException | RuntimeException e) {
+            // La caché es opcional: un fallo aquí no debe romper la petición
+            log.warn("Could not cache order {}: {}", order.getId(), e.getMessage());
+        }
+    }
+
+    public void putJson(Long orderId, byte[] json) {
+        store.put(orderId, json);
+    }
+
+    // Mismo ObjectMapper que usa la caché, para que la respuesta directa y la cacheada sean idénticas
+    public byte[] encode(Order order) {
+        try {
+            return objectMapper.writeValueAsBytes(order);
+        } catch (IOException e) {
+            throw new RuntimeException("Error serializing order " + order.getId(), e);
+        }
+    }
+
+    /**
+     * Invalida la orden ya y, si hay una transacción en curso, otra vez al terminarla: así una lectura
+     * concurrente que la rellenara con datos previos al commit no sobrevive al cambio.
+     */
+    public void invalidate(Long orderId) {
+        store.evict(orderId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    store.evict(orderId);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.tecsup.app.micro.order.client;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Transporte HTTP que usan {@link UserClient} y {@link ProductClient}. Las respuestas 4xx se
+ * reportan como {@link org.springframework.web.client.HttpClientErrorException} sea cual sea la
+ * implementación, para que los clientes traten los errores igual.
+ */
+public interface DownstreamHttpClient {
+
+    <T> T get(String url, Class<T> responseType);
+
+    // Cuerpo y respuesta en JSON
+    <T> T post(String url, Object body, Class<T> responseType);
+
+    // Por defecto la llamada bloqueante se ejecuta en el executor recibido
+    default <T> CompletableFuture<T> getAsync(String url, Class<T> responseType, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> get(url, responseType), executor);
+    }
+}
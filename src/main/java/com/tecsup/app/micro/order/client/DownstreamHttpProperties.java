@@ -0,0 +1,25 @@
+package com.tecsup.app.micro.order.client;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "client.http")
+public class DownstreamHttpProperties {
+
+    public enum Type { REST_TEMPLATE, WEBCLIENT }
+
+    private Type type = Type.REST_TEMPLATE;
+
+    private Duration connectTimeout = Duration.ofSeconds(2);
+    private Duration readTimeout = Duration.ofSeconds(5);
+
+    // Solo aplican al transporte WEBCLIENT
+    private int maxConnectionsPerHost = 100;
+    private int pendingAcquireMaxCount = 1_000;
+    private Duration pendingAcquireTimeout = Duration.ofSeconds(2);
+    private Duration maxIdleTime = Duration.ofSeconds(30);
+    private boolean http2 = true;
+}
@@ -0,0 +1,70 @@
+package com.tecsup.app.micro.order.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Métricas por dependencia remota: latencia de cada llamada HTTP (con histograma para p99),
+ * separada por resultado, y cuántas veces se respondió con un fallback en su lugar.
+ */
+@RequiredArgsConstructor
+@Component
+public class DownstreamMetrics {
+
+    static final String REQUESTS = "order.downstream.requests";
+    static final String FALLBACKS = "order.downstream.fallbacks";
+
+    private final MeterRegistry meterRegistry;
+
+    public <T> T record(String dependency, String operation, Supplier<T> call) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            T result = call.get();
+            sample.stop(timer(dependency, operation, "success"));
+            return result;
+        } catch (RuntimeException e) {
+            sample.stop(timer(dependency, operation, "error"));
+            throw e;
+        }
+    }
+
+    // El tiempo se mide hasta que termina el future, no hasta que se devuelve
+    public <T> CompletableFuture<T> recordAsync(String dependency, String operation, Supplier<CompletableFuture<T>> call) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException e) {
+            sample.stop(timer(dependency, operation, "error"));
+            throw e;
+        }
+        return future.whenComplete((result, error) ->
+                sample.stop(timer(dependency, operation, error == null ? "success" : "error")));
+    }
+
+    // source: "cache" si se sirvió un valor cacheado caducado, "default" si se devolvió el valor genérico
+    public void fallback(String dependency, String source) {
+        Counter.builder(FALLBACKS)
+                .description("Responses served by a fallback instead of the downstream service")
+                .tag("dependency", dependency)
+                .tag("source", source)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private Timer timer(String dependency, String operation, String outcome) {
+        return Timer.builder(REQUESTS)
+                .description("Latency of HTTP calls to downstream services")
+                .tag("dependency", dependency)
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
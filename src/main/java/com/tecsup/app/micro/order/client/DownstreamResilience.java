@@ -0,0 +1,174 @@
+package com.tecsup.app.micro.order.client;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.retry.Retry;
+import io.github.resilience4j.retry.RetryConfig;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.github.resilience4j.timelimiter.TimeLimiter;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Protección de cada dependencia remota con las instancias de resilience4j del mismo nombre
+ * ({@code resilience4j.<módulo>.instances.<nombre>}). De fuera hacia dentro: retry, circuit breaker,
+ * time limiter (solo en las llamadas asíncronas; las bloqueantes las acota el read-timeout del
+ * transporte) y bulkhead.
+ * <p>
+ * Solo se reintentan errores transitorios (5xx, timeouts, fallos de conexión) de cualquiera de los
+ * dos transportes, nunca un bulkhead
+ * lleno ni un circuito abierto, y cada reintento gasta del {@link RetryBudget} de la dependencia.
+ * También se cuenta cuántas llamadas esperan un permiso del bulkhead, para que el load shedding
+ * rechace peticiones antes de que se acumulen.
+ */
+@Component
+@RequiredArgsConstructor
+public class DownstreamResilience {
+
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final BulkheadRegistry bulkheadRegistry;
+    private final RetryRegistry retryRegistry;
+    private final TimeLimiterRegistry timeLimiterRegistry;
+    private final ScheduledExecutorService resilienceScheduler;
+    private final DownstreamResilienceProperties properties;
+
+    private final Map<String, Guard> guards = new ConcurrentHashMap<>();
+
+    // Con la configuración por defecto de resilience4j, para usar fuera del contexto de Spring
+    public static DownstreamResilience ofDefaults(ScheduledExecutorService scheduler) {
+        return new DownstreamResilience(CircuitBreakerRegistry.ofDefaults(), BulkheadRegistry.ofDefaults(),
+                RetryRegistry.ofDefaults(), TimeLimiterRegistry.ofDefaults(), scheduler,
+                new DownstreamResilienceProperties());
+    }
+
+    public <T> T call(String name, Supplier<T> call) {
+        Guard guard = guard(name);
+        guard.budget().recordCall();
+        return guard.retry().executeSupplier(() -> guard.circuitBreaker().executeSupplier(() -> bulkhead(guard, call)));
+    }
+
+    // Sin reintentos, para operaciones que no se pueden repetir sin riesgo
+    public <T> T callOnce(String name, Supplier<T> call) {
+        Guard guard = guard(name);
+        return guard.circuitBreaker().executeSupplier(() -> bulkhead(guard, call));
+    }
+
+    public <T> CompletableFuture<T> callAsync(String name, Supplier<CompletableFuture<T>> call) {
+        Guard guard = guard(name);
+        guard.budget().recordCall();
+        return guard.retry().executeCompletionStage(resilienceScheduler,
+                        () -> guard.circuitBreaker().executeCompletionStage(
+                                () -> guard.timeLimiter().executeCompletionStage(resilienceScheduler,
+                                        () -> bulkheadAsync(guard, call))))
+                .toCompletableFuture();
+    }
+
+    /**
+     * Nombre de la primera dependencia con más de {@code maxQueued} llamadas esperando permiso del
+     * bulkhead, o null si ninguna lo supera.
+     */
+    public String saturatedDependency(int maxQueued) {
+        for (Map.Entry<String, Guard> entry : guards.entrySet()) {
+            if (entry.getValue().waiting().get() > maxQueued) {
+                return entry.getKey();
+            }
+        }
+        return null;
+    }
+
+    public int waiting(String name) {
+        Guard guard = guards.get(name);
+        return guard == null ? 0 : guard.waiting().get();
+    }
+
+    private <T> T bulkhead(Guard guard, Supplier<T> call) {
+        AtomicBoolean queued = enqueue(guard);
+        try {
+            return guard.bulkhead().executeSupplier(() -> {
+                dequeue(guard, queued);
+                return call.get();
+            });
+        } finally {
+            dequeue(guard, queued);
+        }
+    }
+
+    private <T> CompletionStage<T> bulkheadAsync(Guard guard, Supplier<CompletableFuture<T>> call) {
+        AtomicBoolean queued = enqueue(guard);
+        try {
+            return guard.bulkhead().executeCompletionStage(() -> {
+                dequeue(guard, queued);
+                return call.get();
+            });
+        } finally {
+            dequeue(guard, queued);
+        }
+    }
+
+    private AtomicBoolean enqueue(Guard guard) {
+        guard.waiting().incrementAndGet();
+        return new AtomicBoolean(true);
+    }
+
+    // Sale de la cola al obtener el permiso o al ser rechazado, lo que ocurra primero
+    private void dequeue(Guard guard, AtomicBoolean queued) {
+        if (queued.compareAndSet(true, false)) {
+            guard.waiting().decrementAndGet();
+        }
+    }
+
+    private Guard guard(String name) {
+        return guards.computeIfAbsent(name, this::newGuard);
+    }
+
+    private Guard newGuard(String name) {
+        RetryBudget budget = new RetryBudget(properties.getRetryBudgetRatio(), properties.getRetryBudgetMinPerSecond());
+        RetryConfig config = RetryConfig.from(retryRegistry.retry(name).getRetryConfig())
+                .retryOnException(error -> isTransient(error) && budget.tryRetry())
+                .build();
+        Retry retry = Retry.of(name, config);
+        // Se reemplaza en el registro para que las métricas de resilience4j sigan esta instancia
+        retryRegistry.replace(name, retry);
+        return new Guard(circuitBreakerRegistry.circuitBreaker(name), bulkheadRegistry.bulkhead(name), retry,
+                timeLimiterRegistry.timeLimiter(name), budget, new AtomicInteger());
+    }
+
+    static boolean isTransient(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof BulkheadFullException || cause instanceof CallNotPermittedException) {
+                return false;
+            }
+            // Con WebClient los fallos de conexión y los timeouts de Netty (ChannelException, no
+            // IOException) llegan envueltos en WebClientRequestException
+            if (cause instanceof HttpServerErrorException || cause instanceof ResourceAccessException
+                    || cause instanceof WebClientRequestException || cause instanceof IOException
+                    || cause instanceof TimeoutException || cause instanceof io.netty.handler.timeout.TimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private record Guard(CircuitBreaker circuitBreaker, Bulkhead bulkhead, Retry retry, TimeLimiter timeLimiter,
+                         RetryBudget budget, AtomicInteger waiting) {
+    }
+}
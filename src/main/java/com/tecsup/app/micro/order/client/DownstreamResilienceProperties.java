@@ -0,0 +1,19 @@
+package com.tecsup.app.micro.order.client;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Presupuesto de reintentos por dependencia. Circuit breaker, bulkhead, time limiter y retry se
+ * configuran en {@code resilience4j.*.instances.userService|productService}.
+ */
+@Data
+@ConfigurationProperties(prefix = "client.resilience")
+public class DownstreamResilienceProperties {
+
+    // Reintentos permitidos en cada segundo, como fracción de las llamadas de ese segundo
+    private double retryBudgetRatio = 0.1;
+
+    // Reintentos por segundo que se permiten siempre, aunque haya poco tráfico
+    private int retryBudgetMinPerSecond = 3;
+}
@@ -0,0 +1,186 @@
+package com.tecsup.app.micro.order.client;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Caché local acotada (W-TinyLFU de Caffeine) para respuestas de otros servicios.
+ * Las entradas expiran tras el TTL y, pasado {@code refreshAfter}, se siguen sirviendo
+ * mientras se recargan en segundo plano. Solo se guardan valores obtenidos del servicio
+ * remoto: los valores de fallback nunca deben pasar por {@link #put(Long, Object)}.
+ */
+@Slf4j
+public class NearCache<V> {
+
+    private final String name;
+    private final boolean enabled;
+    private final long refreshAfterNanos;
+    private final Executor refreshExecutor;
+    private final Ticker ticker;
+    private final Cache<Long, Entry<V>> cache;
+
+    private final Set<Long> refreshing = ConcurrentHashMap.newKeySet();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+
+    public NearCache(String name, NearCacheProperties.Spec spec, Executor refreshExecutor) {
+        this(name, spec, refreshExecutor, Ticker.systemTicker());
+    }
+
+    NearCache(String name, NearCacheProperties.Spec spec, Executor refreshExecutor, Ticker ticker) {
+        this.name = name;
+        this.enabled = spec.isEnabled();
+        this.refreshAfterNanos = spec.getRefreshAfter().toNanos();
+        this.refreshExecutor = refreshExecutor;
+        this.ticker = ticker;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(spec.getMaxSize())
+                .expireAfterWrite(spec.getTtl())
+                .ticker(ticker)
+                .executor(Runnable::run)
+                .recordStats()
+                .build();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Devuelve el valor si está en caché y no supera {@code maxAge}. Si la entrada ya pasó
+     * {@code refreshAfter}, se programa una recarga asíncrona con {@code loader}.
+     */
+    public V get(Long key, Duration maxAge, Function<Long, V> loader) {
+        if (!enabled || key == null) {
+            return null;
+        }
+        Entry<V> entry = cache.getIfPresent(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+
+        long age = ticker.read() - entry.loadedAt();
+        if (age >= refreshAfterNanos) {
+            refreshAsync(key, loader);
+        }
+        if (age > maxAge.toNanos()) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value();
+    }
+
+    public V get(Long key, Function<Long, V> loader) {
+        return get(key, Duration.ofNanos(Long.MAX_VALUE), loader);
+    }
+
+    // Último valor conocido dentro del TTL, para responder cuando el servicio remoto falla
+    public V getStale(Long key) {
+        if (!enabled || key == null) {
+            return null;
+        }
+        Entry<V> entry = cache.getIfPresent(key);
+        return entry != null ? entry.value() : null;
+    }
+
+    public void put(Long key, V value) {
+        if (enabled && key != null && value != null) {
+            cache.put(key, new Entry<>(value, ticker.read()));
+        }
+    }
+
+    public void invalidate(Long key) {
+        cache.invalidate(key);
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return cache.stats().evictionCount();
+    }
+
+    public long refreshCount() {
+        return refreshes.sum();
+    }
+
+    public long size() {
+        cache.cleanUp();
+        return cache.estimatedSize();
+    }
+
+    /**
+     * Publica los contadores con los nombres de caché estándar de Micrometer ({@code cache.gets},
+     * {@code cache.evictions}, {@code cache.size}) y la etiqueta {@code cache}. No se usa
+     * {@code CaffeineCacheMetrics}: los aciertos y fallos de Caffeine no cuentan como fallo una
+     * entrada más vieja que {@code maxAge}.
+     */
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("cache.gets", this, NearCache::hitCount)
+                .description("Near cache lookups served from memory")
+                .tag("cache", name)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", this, NearCache::missCount)
+                .description("Near cache lookups that had to call the remote service")
+                .tag("cache", name)
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("cache.evictions", this, NearCache::evictionCount)
+                .description("Near cache entries evicted by size")
+                .tag("cache", name)
+                .register(registry);
+        FunctionCounter.builder("cache.refreshes", this, NearCache::refreshCount)
+                .description("Near cache entries reloaded in the background")
+                .tag("cache", name)
+                .register(registry);
+        Gauge.builder("cache.size", cache, Cache::estimatedSize)
+                .description("Approximate number of entries in the near cache")
+                .tag("cache", name)
+                .register(registry);
+    }
+
+    private void refreshAsync(Long key, Function<Long, V> loader) {
+        if (!refreshing.add(key)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    put(key, loader.apply(key));
+                    refreshes.increment();
+                } catch (Exception e) {
+                    log.warn("Refresh of {} cache entry {} failed, keeping cached value: {}", name, key, e.getMessage());
+                } finally {
+                    refreshing.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(key);
+        }
+    }
+
+    private record Entry<V>(V value, long loadedAt) {
+    }
+}
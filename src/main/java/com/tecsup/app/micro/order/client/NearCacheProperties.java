@@ -0,0 +1,34 @@
+package com.tecsup.app.micro.order.client;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "client.cache")
+public class NearCacheProperties {
+
+    private Spec user = new Spec(Duration.ofMinutes(30), Duration.ofMinutes(10), 10_000);
+    private Spec product = new Spec(Duration.ofMinutes(5), Duration.ofMinutes(1), 10_000);
+
+    // Antigüedad máxima de un precio cacheado que se acepta al calcular una orden; 0 = consultar siempre
+    private Duration priceMaxAge = Duration.ZERO;
+
+    @Data
+    public static class Spec {
+        private boolean enabled = true;
+        private Duration ttl;
+        private Duration refreshAfter;
+        private long maxSize;
+
+        public Spec() {
+        }
+
+        public Spec(Duration ttl, Duration refreshAfter, long maxSize) {
+            this.ttl = ttl;
+            this.refreshAfter = refreshAfter;
+            this.maxSize = maxSize;
+        }
+    }
+}
@@ -1,37 +1,226 @@
 package com.tecsup.app.micro.order.client;
 
-import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestTemplate;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Slf4j
 @RequiredArgsConstructor
 @Component
 public class ProductClient {
 
-    private final RestTemplate restTemplate;
+    // Nombre de las instancias de resilience4j (circuit breaker, bulkhead, retry, time limiter)
+    private static final String RESILIENCE_NAME = "productService";
+    private static final String DEPENDENCY = "product-service";
+    private static final String UNKNOWN_PRODUCT_NAME = "Unknown product";
+
+    private final DownstreamHttpClient httpClient;
+    private final DownstreamResilience resilience;
+    private final Executor productLookupExecutor;
+    private final NearCache<Product> productNearCache;
+    private final NearCacheProperties nearCacheProperties;
+    private final DownstreamMetrics downstreamMetrics;
+
+    // Llamadas en curso por producto: peticiones concurrentes del mismo id comparten la misma llamada
+    private final Map<Long, CompletableFuture<Product>> inFlight = new ConcurrentHashMap<>();
 
     @Value("${product.service.url}")
     private String productServiceUrl;
 
-    @CircuitBreaker(name = "productService",
-            fallbackMethod = "getProductByIdFallback")
+    // El product service aún no expone un endpoint masivo; mientras tanto se reparte en paralelo
+    @Value("${product.service.bulk-enabled:false}")
+    private boolean bulkEnabled;
+
     public Product getProductById(Long productId) {
+        Product cached = productNearCache.get(productId, this::refreshProduct);
+        if (cached != null) {
+            return cached;
+        }
+
+        try {
+            Product product = refreshProduct(productId);
+            productNearCache.put(productId, product);
+            return product;
+        } catch (RuntimeException e) {
+            return getProductByIdFallback(productId, e);
+        }
+    }
+
+    /**
+     * Resuelve varios productos a la vez. Los ids se deduplican, se envían en bloque cuando el
+     * product service lo permite y, si no, en paralelo sobre un pool acotado. Los productos que
+     * fallan se devuelven con el mismo valor de fallback que {@link #getProductById(Long)}.
+     */
+    public Map<Long, Product> getProductsByIds(Collection<Long> productIds) {
+        return resolveProducts(productIds, null);
+    }
+
+    /**
+     * Igual que {@link #getProductsByIds(Collection)}, pero para calcular precios: solo acepta
+     * entradas de caché más recientes que {@code client.cache.price-max-age} y nunca sirve un
+     * precio cacheado cuando el product service falla.
+     */
+    public Map<Long, Product> getProductsForPricing(Collection<Long> productIds) {
+        return resolveProducts(productIds, nearCacheProperties.getPriceMaxAge());
+    }
+
+    private Map<Long, Product> resolveProducts(Collection<Long> productIds, Duration maxAge) {
+        Set<Long> ids = productIds.stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+
+        Map<Long, CompletableFuture<Product>> futures = new LinkedHashMap<>();
+        Map<Long, CompletableFuture<Product>> toFetch = new LinkedHashMap<>();
+        for (Long id : ids) {
+            Product cached = maxAge == null
+                    ? productNearCache.get(id, this::refreshProduct)
+                    : productNearCache.get(id, maxAge, this::refreshProduct);
+            if (cached != null) {
+                futures.put(id, CompletableFuture.completedFuture(cached));
+                continue;
+            }
+
+            CompletableFuture<Product> created = new CompletableFuture<>();
+            CompletableFuture<Product> existing = inFlight.putIfAbsent(id, created);
+            if (existing != null) {
+                futures.put(id, existing);
+            } else {
+                futures.put(id, created);
+                toFetch.put(id, created);
+            }
+        }
+
+        if (!toFetch.isEmpty()) {
+            log.debug("Resolving {} products ({} shared with in-flight calls)", ids.size(), ids.size() - toFetch.size());
+            if (!bulkEnabled || !fetchBulk(toFetch)) {
+                fetchEach(toFetch);
+            }
+        }
+
+        // Las llamadas compartidas terminan en null si fallan; cada llamador aplica su propio fallback
+        Map<Long, Product> products = new LinkedHashMap<>();
+        futures.forEach((id, future) -> {
+            Product product = future.join();
+            if (product == null) {
+                RuntimeException cause = new RuntimeException("Product not available with id: " + id);
+                product = maxAge == null ? getProductByIdFallback(id, cause) : unknownProduct(id, cause);
+            }
+            products.put(id, product);
+        });
+        return products;
+    }
+
+    private boolean fetchBulk(Map<Long, CompletableFuture<Product>> pending) {
+        String url = productServiceUrl + "/api/products/batch?ids="
+                + pending.keySet().stream().map(String::valueOf).collect(Collectors.joining(","));
+        log.debug("Calling Product Service at: {}", url);
+
+        Product[] response;
+        try {
+            response = resilience.call(RESILIENCE_NAME,
+                    () -> downstreamMetrics.record(DEPENDENCY, "batch", () -> httpClient.get(url, Product[].class)));
+        } catch (Exception e) {
+            log.warn("Bulk call to Product Service failed, falling back to individual calls: {}", e.getMessage());
+            return false;
+        }
+
+        Map<Long, Product> found = response == null ? Map.of() : Arrays.stream(response)
+                .filter(product -> product.getId() != null)
+                .collect(Collectors.toMap(Product::getId, Function.identity(), (a, b) -> a));
+        pending.forEach((id, future) -> {
+            Product product = found.get(id);
+            productNearCache.put(id, product);
+            complete(id, future, product);
+        });
+        return true;
+    }
+
+    private void fetchEach(Map<Long, CompletableFuture<Product>> pending) {
+        pending.forEach((id, future) -> fetchProductAsync(id).whenComplete((product, error) -> {
+            if (error != null) {
+                log.error("Error calling Product Service for id {}: {}", id, error.getMessage());
+                complete(id, future, null);
+                return;
+            }
+            productNearCache.put(id, product);
+            complete(id, future, product);
+        }));
+    }
+
+    // Con el transporte WebClient la llamada no ocupa ningún hilo mientras espera la respuesta
+    private CompletableFuture<Product> fetchProductAsync(Long productId) {
+        String url = productServiceUrl + "/api/products/" + productId;
+        log.debug("Calling Product Service at: {}", url);
+
+        try {
+            return resilience.callAsync(RESILIENCE_NAME, () -> downstreamMetrics.recordAsync(DEPENDENCY, "get",
+                            () -> httpClient.getAsync(url, Product.class, productLookupExecutor))
+                    .thenApply(product -> {
+                        if (product == null) {
+                            throw new RuntimeException("Product not found with id: " + productId);
+                        }
+                        return product;
+                    }));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Descuenta del product service las unidades ya reservadas en órdenes guardadas y devuelve el
+     * stock que queda de cada producto. Sin fallback: si falla, quien llama vuelve a intentarlo.
+     * Los productos confirmados se quitan de la near-cache para que el siguiente cálculo de precios
+     * lea su stock actualizado.
+     */
+    public List<StockLevel> confirmReservations(List<StockAdjustment> adjustments) {
+        String url = productServiceUrl + "/api/products/stock/reservations";
+        log.debug("Confirming {} stock reservations at: {}", adjustments.size(), url);
+
+        // Descontar stock no es idempotente: sin reintentos aquí, los hace StockReservationService
+        StockLevel[] levels = resilience.callOnce(RESILIENCE_NAME, () -> downstreamMetrics.record(DEPENDENCY, "reserve",
+                () -> httpClient.post(url, adjustments, StockLevel[].class)));
+        adjustments.forEach(adjustment -> productNearCache.invalidate(adjustment.getProductId()));
+        return levels == null ? List.of() : Arrays.asList(levels);
+    }
+
+    // Consulta remota protegida por resilience4j, sin fallback: solo devuelve datos reales
+    private Product refreshProduct(Long productId) {
+        return resilience.call(RESILIENCE_NAME, () -> fetchProduct(productId));
+    }
+
+    private void complete(Long productId, CompletableFuture<Product> future, Product product) {
+        inFlight.remove(productId, future);
+        future.complete(product);
+    }
+
+    private Product fetchProduct(Long productId) {
         String url = productServiceUrl + "/api/products/" + productId;
-        log.info("Calling Product Service at: {}", url);
+        log.debug("Calling Product Service at: {}", url);
 
         try {
-            Product product = restTemplate.getForObject(url, Product.class);
+            Product product = downstreamMetrics.record(DEPENDENCY, "get", () -> httpClient.get(url, Product.class));
             if (product == null) {
                 log.error("Product Service returned null for product id: {}", productId);
                 throw new RuntimeException("Product not found with id: " + productId);
             }
-            log.info("Product retrieved successfully: {}", product);
+            log.debug("Product retrieved successfully: {}", product);
             return product;
         } catch (org.springframework.web.client.HttpClientErrorException e) {
             log.error("HTTP error calling Product Service for id {}: Status {} - {}", productId, e.getStatusCode(), e.getMessage());
@@ -41,13 +230,30 @@ public class ProductClient {
             throw new RuntimeException("Error calling Product Service: " + e.getMessage(), e);
         }
     }
-    private Product getProductByIdFallback(Long ProductId, Throwable throwable) {
+
+    public Product getProductByIdFallback(Long ProductId, Throwable throwable) {
+        Product stale = productNearCache.getStale(ProductId);
+        if (stale != null) {
+            log.warn("Product Service unavailable, serving cached product {}: {}", ProductId, throwable.getMessage());
+            downstreamMetrics.fallback(DEPENDENCY, "cache");
+            return stale;
+        }
+        return unknownProduct(ProductId, throwable);
+    }
+
+    // Indica si el producto es el valor genérico del fallback y no datos reales
+    public static boolean isFallback(Product product) {
+        return product == null || UNKNOWN_PRODUCT_NAME.equals(product.getName());
+    }
+
+    private Product unknownProduct(Long ProductId, Throwable throwable) {
         log.warn("Fallback method invoked for getProductById due to: {}", throwable.getMessage());
+        downstreamMetrics.fallback(DEPENDENCY, "default");
         return Product.builder()
                 .id(ProductId)
-                .name("Unknown product")
+                .name(UNKNOWN_PRODUCT_NAME)
                 .price(BigDecimal.ZERO)
                 .build();
     }
 
-}
\ No newline at end of file
+}
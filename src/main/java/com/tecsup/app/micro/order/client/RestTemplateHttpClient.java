@@ -0,0 +1,20 @@
+package com.tecsup.app.micro.order.client;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.client.RestTemplate;
+
+@RequiredArgsConstructor
+public class RestTemplateHttpClient implements DownstreamHttpClient {
+
+    private final RestTemplate restTemplate;
+
+    @Override
+    public <T> T get(String url, Class<T> responseType) {
+        return restTemplate.getForObject(url, responseType);
+    }
+
+    @Override
+    public <T> T post(String url, Object body, Class<T> responseType) {
+        return restTemplate.postForObject(url, body, responseType);
+    }
+}
@@ -0,0 +1,66 @@
+package com.tecsup.app.micro.order.client;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * Limita los reintentos de una dependencia a una fracción de sus llamadas en el último segundo
+ * (más un mínimo fijo). Con el servicio caído, cada llamada falla y se reintenta poco: la carga
+ * extra queda acotada por el presupuesto en lugar de multiplicarse por el número de intentos.
+ */
+class RetryBudget {
+
+    private final double ratio;
+    private final int minPerSecond;
+    private final LongSupplier nanoClock;
+    private final AtomicReference<Window> window;
+
+    RetryBudget(double ratio, int minPerSecond) {
+        this(ratio, minPerSecond, System::nanoTime);
+    }
+
+    RetryBudget(double ratio, int minPerSecond, LongSupplier nanoClock) {
+        this.ratio = ratio;
+        this.minPerSecond = minPerSecond;
+        this.nanoClock = nanoClock;
+        this.window = new AtomicReference<>(new Window(second(), 0, 0));
+    }
+
+    void recordCall() {
+        long second = second();
+        window.updateAndGet(current -> current.at(second).withCall());
+    }
+
+    boolean tryRetry() {
+        long second = second();
+        while (true) {
+            Window current = window.get();
+            Window next = current.at(second);
+            if (next.retries() >= Math.max(minPerSecond, (long) (next.calls() * ratio))) {
+                return false;
+            }
+            if (window.compareAndSet(current, next.withRetry())) {
+                return true;
+            }
+        }
+    }
+
+    private long second() {
+        return nanoClock.getAsLong() / 1_000_000_000L;
+    }
+
+    private record Window(long second, long calls, long retries) {
+
+        Window at(long now) {
+            return now == second ? this : new Window(now, 0, 0);
+        }
+
+        Window withCall() {
+            return new Window(second, calls + 1, retries);
+        }
+
+        Window withRetry() {
+            return new Window(second, calls, retries + 1);
+        }
+    }
+}
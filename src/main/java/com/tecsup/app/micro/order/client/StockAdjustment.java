@@ -0,0 +1,18 @@
+package com.tecsup.app.micro.order.client;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Unidades de un producto que se descuentan del stock del product service. Con cantidad 0 solo
+ * se consulta el stock actual.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockAdjustment {
+
+    private Long productId;
+    private long quantity;
+}
@@ -0,0 +1,14 @@
+package com.tecsup.app.micro.order.client;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockLevel {
+
+    private Long productId;
+    private long stock;
+}
@@ -1,35 +1,59 @@
 package com.tecsup.app.micro.order.client;
 
-import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestTemplate;
 
 @Slf4j
 @RequiredArgsConstructor
 @Component
 public class UserClient {
 
-    private final RestTemplate restTemplate;
+    // Nombre de las instancias de resilience4j (circuit breaker, bulkhead, retry, time limiter)
+    private static final String RESILIENCE_NAME = "userService";
+    private static final String DEPENDENCY = "user-service";
+    private static final String UNKNOWN_USER_NAME = "Unknown User";
+
+    private final DownstreamHttpClient httpClient;
+    private final DownstreamResilience resilience;
+    private final NearCache<User> userNearCache;
+    private final DownstreamMetrics downstreamMetrics;
 
     @Value("${user.service.url}")
     private String userServiceUrl;
 
-    @CircuitBreaker(name = "userService",
-            fallbackMethod = "getUserByIdFallback")
     public User getUserById(Long userId) {
+        User cached = userNearCache.get(userId, this::refreshUser);
+        if (cached != null) {
+            return cached;
+        }
+
+        try {
+            User usr = refreshUser(userId);
+            userNearCache.put(userId, usr);
+            return usr;
+        } catch (RuntimeException e) {
+            return getUserByIdFallback(userId, e);
+        }
+    }
+
+    // Las recargas en segundo plano también pasan por resilience4j, pero sin fallback
+    private User refreshUser(Long userId) {
+        return resilience.call(RESILIENCE_NAME, () -> fetchUser(userId));
+    }
+
+    private User fetchUser(Long userId) {
         String url = userServiceUrl + "/api/users/" + userId;
-        log.info("Calling User Service at: {}", url);
+        log.debug("Calling User Service at: {}", url);
 
         try {
-            User usr = restTemplate.getForObject(url, User.class);
+            User usr = downstreamMetrics.record(DEPENDENCY, "get", () -> httpClient.get(url, User.class));
             if (usr == null) {
                 log.error("User Service returned null for user id: {}", userId);
                 throw new RuntimeException("User not found with id: " + userId);
             }
-            log.info("User retrieved successfully: {}", usr);
+            log.debug("User retrieved successfully: {}", usr);
             return usr;
         } catch (org.springframework.web.client.HttpClientErrorException e) {
             log.error("HTTP error calling User Service for id {}: Status {} - {}", userId, e.getStatusCode(), e.getMessage());
@@ -40,12 +64,24 @@ public class UserClient {
         }
     }
 
-    private User getUserByIdFallback(Long createdBy, Throwable throwable) {
+    public User getUserByIdFallback(Long createdBy, Throwable throwable) {
+        User stale = userNearCache.getStale(createdBy);
+        if (stale != null) {
+            log.warn("User Service unavailable, serving cached user {}: {}", createdBy, throwable.getMessage());
+            downstreamMetrics.fallback(DEPENDENCY, "cache");
+            return stale;
+        }
         log.warn("Fallback method invoked for getUserById due to: {}", throwable.getMessage());
+        downstreamMetrics.fallback(DEPENDENCY, "default");
         return User.builder()
                 .id(createdBy)
-                .name("Unknown User")
+                .name(UNKNOWN_USER_NAME)
                 .email("Unknown Email")
                 .build();
     }
+
+    // Indica si el usuario es el valor genérico del fallback y no datos reales
+    public static boolean isFallback(User user) {
+        return user == null || UNKNOWN_USER_NAME.equals(user.getName());
+    }
 }
@@ -0,0 +1,102 @@
+package com.tecsup.app.micro.order.client;
+
+import com.tecsup.app.micro.order.config.logging.CorrelationIdFilter;
+import io.netty.channel.ChannelOption;
+import io.netty.handler.timeout.ReadTimeoutHandler;
+import io.netty.handler.timeout.WriteTimeoutHandler;
+import org.slf4j.MDC;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transporte no bloqueante sobre Reactor Netty: pool de conexiones keep-alive por host,
+ * HTTP/2 cuando el servidor lo acepta y timeouts explícitos de conexión, lectura y respuesta.
+ */
+public class WebClientHttpClient implements DownstreamHttpClient {
+
+    private final WebClient webClient;
+    private final ConnectionProvider connectionProvider;
+
+    public WebClientHttpClient(DownstreamHttpProperties properties) {
+        this.connectionProvider = ConnectionProvider.builder("downstream")
+                .maxConnections(properties.getMaxConnectionsPerHost())
+                .pendingAcquireMaxCount(properties.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(properties.getPendingAcquireTimeout())
+                .maxIdleTime(properties.getMaxIdleTime())
+                .evictInBackground(properties.getMaxIdleTime())
+                .build();
+
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .keepAlive(true)
+                .protocol(properties.isHttp2()
+                        ? new HttpProtocol[]{HttpProtocol.HTTP11, HttpProtocol.H2C}
+                        : new HttpProtocol[]{HttpProtocol.HTTP11})
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) properties.getConnectTimeout().toMillis())
+                .responseTimeout(properties.getReadTimeout())
+                .doOnConnected(connection -> connection
+                        .addHandlerLast(new ReadTimeoutHandler(properties.getReadTimeout().toMillis(), TimeUnit.MILLISECONDS))
+                        .addHandlerLast(new WriteTimeoutHandler(properties.getReadTimeout().toMillis(), TimeUnit.MILLISECONDS)));
+
+        this.webClient = WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                // Se evalúa al construir la petición, todavía en el hilo que tiene el MDC de la petición
+                .defaultRequest(request -> {
+                    String correlationId = MDC.get(CorrelationIdFilter.MDC_KEY);
+                    if (correlationId != null) {
+                        request.header(CorrelationIdFilter.HEADER, correlationId);
+                    }
+                })
+                .build();
+    }
+
+    @Override
+    public <T> T get(String url, Class<T> responseType) {
+        return exchange(url, responseType).block();
+    }
+
+    @Override
+    public <T> T post(String url, Object body, Class<T> responseType) {
+        return mapErrors(webClient.post()
+                .uri(url)
+                .bodyValue(body)
+                .retrieve()
+                .bodyToMono(responseType))
+                .block();
+    }
+
+    @Override
+    public <T> CompletableFuture<T> getAsync(String url, Class<T> responseType, Executor executor) {
+        return exchange(url, responseType).toFuture();
+    }
+
+    public void dispose() {
+        connectionProvider.dispose();
+    }
+
+    private <T> Mono<T> exchange(String url, Class<T> responseType) {
+        return mapErrors(webClient.get()
+                .uri(url)
+                .retrieve()
+                .bodyToMono(responseType));
+    }
+
+    private <T> Mono<T> mapErrors(Mono<T> response) {
+        return response
+                .onErrorMap(WebClientResponseException.class, e -> e.getStatusCode().is4xxClientError()
+                        ? HttpClientErrorException.create(e.getStatusCode(), e.getStatusText(), e.getHeaders(),
+                                e.getResponseBodyAsByteArray(), null)
+                        : HttpServerErrorException.create(e.getStatusCode(), e.getStatusText(), e.getHeaders(),
+                                e.getResponseBodyAsByteArray(), null));
+    }
+}
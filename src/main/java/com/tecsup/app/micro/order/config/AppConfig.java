@@ -1,15 +1,216 @@
 package com.tecsup.app.micro.order.config;
 
+import com.tecsup.app.micro.order.archive.OrderArchiveProperties;
+import com.tecsup.app.micro.order.cache.CaffeineOrderCacheStore;
+import com.tecsup.app.micro.order.cache.OrderCacheProperties;
+import com.tecsup.app.micro.order.cache.OrderCacheStore;
+import com.tecsup.app.micro.order.client.DownstreamHttpClient;
+import com.tecsup.app.micro.order.client.DownstreamHttpProperties;
+import com.tecsup.app.micro.order.client.DownstreamResilience;
+import com.tecsup.app.micro.order.client.DownstreamResilienceProperties;
+import com.tecsup.app.micro.order.client.NearCache;
+import com.tecsup.app.micro.order.client.NearCacheProperties;
+import com.tecsup.app.micro.order.client.Product;
+import com.tecsup.app.micro.order.client.RestTemplateHttpClient;
+import com.tecsup.app.micro.order.client.User;
+import com.tecsup.app.micro.order.client.WebClientHttpClient;
+import com.tecsup.app.micro.order.config.datasource.ReplicaDataSourceProperties;
+import com.tecsup.app.micro.order.config.logging.CorrelationIdFilter;
+import com.tecsup.app.micro.order.config.logging.MdcTaskDecorator;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+
 @Configuration
+@EnableConfigurationProperties({NearCacheProperties.class, OrderReadProperties.class, DownstreamHttpProperties.class,
+        OrderProcessingProperties.class, OrderCacheProperties.class, OrderStockProperties.class,
+        OrderIdempotencyProperties.class, DownstreamResilienceProperties.class, LoadSheddingProperties.class,
+        OrderStatsProperties.class, OrderExportProperties.class, ReplicaDataSourceProperties.class,
+        OrderArchiveProperties.class, OrderNumberProperties.class})
 public class AppConfig {
 
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(DownstreamHttpProperties properties) {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(properties.getConnectTimeout());
+        requestFactory.setReadTimeout(properties.getReadTimeout());
+        RestTemplate restTemplate = new RestTemplate(requestFactory);
+        // Propaga el id de correlación de la petición a user-service y product-service
+        restTemplate.getInterceptors().add((request, body, execution) -> {
+            String correlationId = MDC.get(CorrelationIdFilter.MDC_KEY);
+            if (correlationId != null) {
+                request.getHeaders().set(CorrelationIdFilter.HEADER, correlationId);
+            }
+            return execution.execute(request, body);
+        });
+        return restTemplate;
+    }
+
+    // client.http.type elige el transporte de UserClient y ProductClient
+    @Bean
+    @ConditionalOnProperty(name = "client.http.type", havingValue = "rest-template", matchIfMissing = true)
+    public DownstreamHttpClient restTemplateHttpClient(RestTemplate restTemplate) {
+        return new RestTemplateHttpClient(restTemplate);
+    }
+
+    @Bean(destroyMethod = "dispose")
+    @ConditionalOnProperty(name = "client.http.type", havingValue = "webclient")
+    public DownstreamHttpClient webClientHttpClient(DownstreamHttpProperties properties) {
+        return new WebClientHttpClient(properties);
+    }
+
+    // Pool acotado para repartir las consultas de productos; si se llena, el hilo que llama ejecuta la consulta
+    @Bean
+    public ThreadPoolTaskExecutor productLookupExecutor(
+            @Value("${product.service.batch.parallelism:8}") int parallelism) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(parallelism);
+        executor.setMaxPoolSize(parallelism);
+        executor.setQueueCapacity(parallelism * 16);
+        executor.setThreadNamePrefix("product-lookup-");
+        executor.setTaskDecorator(new MdcTaskDecorator());
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        return executor;
+    }
+
+    // Hilos para consultar usuario y productos en paralelo al leer una orden
+    @Bean
+    public TaskExecutor orderReadExecutor(OrderReadProperties properties) {
+        if (properties.getExecutor() == OrderReadProperties.ExecutorType.VIRTUAL) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("order-read-");
+            executor.setVirtualThreads(true);
+            executor.setConcurrencyLimit(properties.getParallelism());
+            executor.setTaskDecorator(new MdcTaskDecorator());
+            return executor;
+        }
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(properties.getParallelism());
+        executor.setMaxPoolSize(properties.getParallelism());
+        executor.setQueueCapacity(properties.getParallelism() * 8);
+        executor.setThreadNamePrefix("order-read-");
+        executor.setTaskDecorator(new MdcTaskDecorator());
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        return executor;
+    }
+
+    // Recargas en segundo plano de las near-caches; si la cola se llena la recarga se rechaza y se reintenta en la siguiente lectura
+    @Bean
+    public ThreadPoolTaskExecutor cacheRefreshExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(2);
+        executor.setQueueCapacity(256);
+        executor.setThreadNamePrefix("cache-refresh-");
+        return executor;
+    }
+
+    // Un hilo por worker de la outbox de órdenes; solo se usan en modo asíncrono
+    @Bean
+    public ThreadPoolTaskScheduler orderOutboxScheduler(OrderProcessingProperties properties) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(properties.getWorkers());
+        scheduler.setThreadNamePrefix("order-outbox-");
+        return scheduler;
+    }
+
+    // Un solo hilo envía las confirmaciones de stock, así nunca se solapan dos envíos
+    @Bean
+    public ThreadPoolTaskScheduler stockConfirmationScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(1);
+        scheduler.setThreadNamePrefix("stock-confirm-");
+        return scheduler;
+    }
+
+    // Un hilo aplica los agregados de estadísticas; así dos aplicaciones nunca se solapan
+    @Bean
+    public ThreadPoolTaskScheduler orderStatsScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(1);
+        scheduler.setThreadNamePrefix("order-stats-");
+        return scheduler;
+    }
+
+    // Un hilo archiva las órdenes antiguas; dos ejecuciones nunca escriben segmentos a la vez
+    @Bean
+    public ThreadPoolTaskScheduler orderArchiveScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(1);
+        scheduler.setThreadNamePrefix("order-archive-");
+        return scheduler;
+    }
+
+    // Timeouts del time limiter y esperas entre reintentos de las llamadas asíncronas a otros servicios
+    @Bean(destroyMethod = "shutdownNow")
+    public ScheduledExecutorService resilienceScheduler() {
+        return Executors.newScheduledThreadPool(2, new CustomizableThreadFactory("downstream-resilience-"));
+    }
+
+    // El que crearía Spring Boot; hay que declararlo porque readOnlyTransactionTemplate lo desactiva.
+    // Con dos, cada servicio recibe el suyo por el nombre del parámetro
+    @Bean
+    public TransactionTemplate transactionTemplate(PlatformTransactionManager transactionManager) {
+        return new TransactionTemplate(transactionManager);
+    }
+
+    // Lecturas agrupadas en una transacción; con réplica configurada usan su pool (ReplicaDataSourceConfig)
+    @Bean
+    public TransactionTemplate readOnlyTransactionTemplate(PlatformTransactionManager transactionManager) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        return template;
+    }
+
+    // Solo sobre /api/orders: actuator sigue respondiendo aunque se rechacen órdenes
+    @Bean
+    public FilterRegistrationBean<LoadSheddingFilter> loadSheddingFilter(LoadSheddingProperties properties,
+                                                                         DownstreamResilience resilience,
+                                                                         MeterRegistry meterRegistry) {
+        FilterRegistrationBean<LoadSheddingFilter> registration =
+                new FilterRegistrationBean<>(new LoadSheddingFilter(properties, resilience, meterRegistry));
+        registration.addUrlPatterns("/api/orders", "/api/orders/*");
+        return registration;
+    }
+
+    // Respuestas de órdenes ya armadas; un OrderCacheStore @Primary (p. ej. Redis) sustituye al de memoria
+    @Bean
+    public OrderCacheStore orderCacheStore(OrderCacheProperties properties) {
+        return properties.isEnabled() ? new CaffeineOrderCacheStore(properties) : OrderCacheStore.NONE;
+    }
+
+    @Bean
+    public NearCache<User> userNearCache(NearCacheProperties properties, ThreadPoolTaskExecutor cacheRefreshExecutor,
+                                         MeterRegistry meterRegistry) {
+        NearCache<User> cache = new NearCache<>("user", properties.getUser(), cacheRefreshExecutor);
+        cache.bindTo(meterRegistry);
+        return cache;
+    }
+
+    @Bean
+    public NearCache<Product> productNearCache(NearCacheProperties properties, ThreadPoolTaskExecutor cacheRefreshExecutor,
+                                               MeterRegistry meterRegistry) {
+        NearCache<Product> cache = new NearCache<>("product", properties.getProduct(), cacheRefreshExecutor);
+        cache.bindTo(meterRegistry);
+        return cache;
     }
 
 }
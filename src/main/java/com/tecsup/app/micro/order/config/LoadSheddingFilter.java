@@ -0,0 +1,84 @@
+package com.tecsup.app.micro.order.config;
+
+import com.tecsup.app.micro.order.client.DownstreamResilience;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Rechaza con 503 y {@code Retry-After} las peticiones que llegan cuando el servicio ya no puede
+ * atenderlas a tiempo: demasiadas peticiones en curso, o una dependencia con demasiadas llamadas
+ * esperando su bulkhead. Rechazar al entrar es más barato que dejarlas esperar hasta el timeout
+ * y mantiene la latencia de las que sí se atienden.
+ */
+@Slf4j
+public class LoadSheddingFilter extends OncePerRequestFilter {
+
+    private final LoadSheddingProperties properties;
+    private final DownstreamResilience resilience;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Counter shedOverloaded;
+    private final Counter shedDependency;
+
+    public LoadSheddingFilter(LoadSheddingProperties properties, DownstreamResilience resilience,
+                              MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.resilience = resilience;
+        Gauge.builder("order.requests.in.flight", inFlight, AtomicInteger::get)
+                .description("Peticiones a /api/orders en curso")
+                .register(meterRegistry);
+        this.shedOverloaded = shedCounter(meterRegistry, "in-flight");
+        this.shedDependency = shedCounter(meterRegistry, "dependency");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (!properties.isEnabled()) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        String saturated = resilience.saturatedDependency(properties.getMaxQueued());
+        if (saturated != null) {
+            log.debug("Shedding {} {}: {} is saturated", request.getMethod(), request.getRequestURI(), saturated);
+            shed(response, shedDependency);
+            return;
+        }
+        if (inFlight.incrementAndGet() > properties.getMaxInFlight()) {
+            inFlight.decrementAndGet();
+            log.debug("Shedding {} {}: too many requests in flight", request.getMethod(), request.getRequestURI());
+            shed(response, shedOverloaded);
+            return;
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private void shed(HttpServletResponse response, Counter counter) {
+        counter.increment();
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, properties.getRetryAfter().toSeconds())));
+    }
+
+    private static Counter shedCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("order.requests.shed")
+                .description("Peticiones rechazadas con 503 por sobrecarga")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,22 @@
+package com.tecsup.app.micro.order.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "order.load-shedding")
+public class LoadSheddingProperties {
+
+    private boolean enabled = true;
+
+    // Peticiones a /api/orders en curso a partir de las cuales se responde 503
+    private int maxInFlight = 150;
+
+    // Llamadas esperando permiso del bulkhead de una dependencia a partir de las cuales se responde 503
+    private int maxQueued = 20;
+
+    // Valor de Retry-After en las respuestas rechazadas
+    private Duration retryAfter = Duration.ofSeconds(1);
+}
@@ -0,0 +1,23 @@
+package com.tecsup.app.micro.order.config;
+
+import com.tecsup.app.micro.order.client.Product;
+import com.tecsup.app.micro.order.client.StockAdjustment;
+import com.tecsup.app.micro.order.client.StockLevel;
+import com.tecsup.app.micro.order.client.User;
+import com.tecsup.app.micro.order.dto.CreateOrderRequest;
+import com.tecsup.app.micro.order.dto.Order;
+import com.tecsup.app.micro.order.dto.OrderSummary;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Tipos que Jackson lee o escribe fuera de los controladores (clientes HTTP, caché de respuestas,
+ * outbox, alta en bloque) y la proyección que Hibernate instancia con {@code select new}. El
+ * procesamiento AOT descubre por sí mismo los de los controladores; para la imagen nativa hay que
+ * declarar el resto. En la JVM no tiene efecto.
+ */
+@Configuration(proxyBeanMethods = false)
+@RegisterReflectionForBinding({Order.class, CreateOrderRequest.class, OrderSummary.class, Product.class, User.class,
+        StockAdjustment.class, StockLevel.class})
+public class NativeHintsConfig {
+}
@@ -0,0 +1,15 @@
+package com.tecsup.app.micro.order.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "order.export")
+public class OrderExportProperties {
+
+    // Exportaciones simultáneas; cada una usa una conexión del pool propio de exportación
+    private int maxConcurrent = 2;
+
+    // Filas que el driver trae por viaje al recorrer el cursor
+    private int fetchSize = 1000;
+}
@@ -0,0 +1,17 @@
+package com.tecsup.app.micro.order.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "order.idempotency")
+public class OrderIdempotencyProperties {
+
+    // Durante esta ventana un reintento con la misma Idempotency-Key se resuelve en memoria;
+    // pasado el plazo se resuelve con el índice único de orders.idempotency_key
+    private Duration window = Duration.ofMinutes(10);
+
+    private long maxKeys = 100_000;
+}
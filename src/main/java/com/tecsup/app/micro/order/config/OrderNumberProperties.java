@@ -0,0 +1,13 @@
+package com.tecsup.app.micro.order.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "order.number")
+public class OrderNumberProperties {
+
+    // Identificador de esta réplica entre 0 y 1023, distinto en cada una (p. ej. el ordinal del
+    // StatefulSet). Sin valor se deriva del nombre del host, y dos réplicas podrían coincidir
+    private Integer nodeId;
+}
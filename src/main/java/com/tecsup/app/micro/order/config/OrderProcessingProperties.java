@@ -0,0 +1,31 @@
+package com.tecsup.app.micro.order.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "order.processing")
+public class OrderProcessingProperties {
+
+    public enum Mode { SYNCHRONOUS, ASYNCHRONOUS }
+
+    // ASYNCHRONOUS: POST /api/orders guarda la orden PENDING y responde 202; los workers la confirman después
+    private Mode mode = Mode.SYNCHRONOUS;
+
+    private int workers = 2;
+
+    // Órdenes que un worker reclama y confirma juntas
+    private int batchSize = 50;
+
+    private Duration pollInterval = Duration.ofMillis(500);
+
+    // Tras reclamar un lote, el resto de workers no lo vuelve a tomar hasta que venza este plazo
+    private Duration claimTimeout = Duration.ofMinutes(1);
+
+    private Duration retryDelay = Duration.ofSeconds(10);
+
+    // Agotados los intentos, la orden pasa a CANCELLED
+    private int maxAttempts = 5;
+}
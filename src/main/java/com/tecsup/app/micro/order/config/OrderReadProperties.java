@@ -0,0 +1,30 @@
+package com.tecsup.app.micro.order.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "order.read")
+public class OrderReadProperties {
+
+    public enum ExecutionMode { SEQUENTIAL, PARALLEL }
+
+    public enum ExecutorType { BOUNDED, VIRTUAL }
+
+    // PARALLEL consulta usuario y productos a la vez en lugar de uno tras otro
+    private ExecutionMode executionMode = ExecutionMode.SEQUENTIAL;
+
+    // VIRTUAL requiere Java 21+; BOUNDED usa un pool de hilos de tamaño fijo
+    private ExecutorType executor = ExecutorType.BOUNDED;
+
+    private int parallelism = 32;
+
+    // Tiempo máximo para armar la respuesta; lo que no llegue a tiempo se completa con el fallback
+    private Duration deadline = Duration.ofSeconds(3);
+
+    // Por defecto los items se arman con la copia guardada en order_items; true vuelve a pedir
+    // nombre y precio actuales al product service en cada lectura
+    private boolean liveProductLookup = false;
+}
@@ -0,0 +1,26 @@
+package com.tecsup.app.micro.order.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "order.stats")
+public class OrderStatsProperties {
+
+    private boolean enabled = true;
+
+    // Cada cuánto se suman a las tablas de agregados los deltas guardados en order_stats_delta;
+    // GET /api/orders/stats puede ir como mucho este intervalo por detrás
+    private Duration flushInterval = Duration.ofSeconds(5);
+
+    // Deltas aplicados y borrados por transacción
+    private int flushBatchSize = 1000;
+
+    // Días como máximo en una consulta de estadísticas
+    private int maxRangeDays = 366;
+
+    // Productos como máximo en el ranking de más vendidos
+    private int maxTopProducts = 100;
+}
@@ -0,0 +1,20 @@
+package com.tecsup.app.micro.order.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "order.stock")
+public class OrderStockProperties {
+
+    // Requiere que el product service exponga POST /api/products/stock/reservations
+    private boolean enabled = false;
+
+    // Cada cuánto se envían al product service las reservas de las órdenes ya guardadas
+    private Duration confirmInterval = Duration.ofMillis(200);
+
+    // Filas de order_stock_adjustment por petición de confirmación (y productos por consulta de stock)
+    private int confirmBatchSize = 100;
+}
@@ -0,0 +1,37 @@
+package com.tecsup.app.micro.order.config.datasource;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "order.datasource.replica")
+public class ReplicaDataSourceProperties {
+
+    // Sin réplica todo va al pool de spring.datasource, como antes
+    private boolean enabled = false;
+
+    private String url;
+
+    // Si no se indican, los de spring.datasource; el driver se deduce de la URL
+    private String username;
+    private String password;
+    private String driverClassName;
+
+    // Pool propio: una ráfaga de lecturas no deja sin conexiones a las escrituras
+    private int maximumPoolSize = 10;
+    private int minimumIdle = 2;
+
+    // Corto: si la réplica no da conexión a tiempo, la petición falla en lugar de acumularse
+    private Duration connectionTimeout = Duration.ofSeconds(2);
+
+    // Con más retraso que esto las lecturas vuelven al primario hasta que la réplica se ponga al día
+    private Duration maxLag = Duration.ofSeconds(5);
+    private Duration lagCheckInterval = Duration.ofSeconds(1);
+
+    // Segundos de retraso de la réplica. 0 si ya aplicó todo lo recibido, aunque el primario lleve
+    // rato sin escribir. Vacío para comprobar solo que responde
+    private String lagQuery = "select case when pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() then 0"
+            + " else extract(epoch from now() - pg_last_xact_replay_timestamp()) end";
+}
@@ -0,0 +1,105 @@
+package com.tecsup.app.micro.order.config.datasource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Mide cada {@code lag-check-interval} el retraso de la réplica. Mientras no responda o vaya más
+ * de {@code max-lag} por detrás, {@link #isUsable()} es false y las transacciones de solo lectura
+ * usan el primario. Hasta la primera medición también se lee del primario.
+ */
+@Slf4j
+public class ReplicaLagMonitor implements SmartLifecycle {
+
+    private final JdbcTemplate replica;
+    private final ReplicaDataSourceProperties properties;
+    private final ThreadPoolTaskScheduler scheduler;
+
+    private ScheduledFuture<?> task;
+    private volatile boolean running;
+    private volatile boolean usable;
+    private volatile double lagSeconds = Double.NaN;
+
+    public ReplicaLagMonitor(DataSource replicaDataSource, ReplicaDataSourceProperties properties,
+                             ThreadPoolTaskScheduler scheduler, MeterRegistry meterRegistry) {
+        this.replica = new JdbcTemplate(replicaDataSource);
+        // La consulta no puede tardar más que el intervalo entre mediciones
+        this.replica.setQueryTimeout((int) Math.max(1, properties.getLagCheckInterval().toSeconds()));
+        this.properties = properties;
+        this.scheduler = scheduler;
+        Gauge.builder("order.datasource.replica.lag", this, monitor -> monitor.lagSeconds)
+                .description("Replication lag of the read replica; NaN while it does not respond")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("order.datasource.replica.usable", this, monitor -> monitor.usable ? 1 : 0)
+                .description("1 while read-only transactions are routed to the replica")
+                .register(meterRegistry);
+    }
+
+    public boolean isUsable() {
+        return usable;
+    }
+
+    public void check() {
+        boolean wasUsable = usable;
+        try {
+            double lag = measureLag();
+            lagSeconds = lag;
+            usable = lag <= properties.getMaxLag().toMillis() / 1000.0;
+            if (wasUsable && !usable) {
+                log.warn("Replica is {}s behind (max {}), reading from primary", lag, properties.getMaxLag());
+            } else if (!wasUsable && usable) {
+                log.info("Replica caught up ({}s behind), routing read-only transactions to it", lag);
+            }
+        } catch (DataAccessException e) {
+            lagSeconds = Double.NaN;
+            usable = false;
+            if (wasUsable) {
+                log.warn("Replica unavailable, reading from primary: {}", e.getMessage());
+            }
+        }
+    }
+
+    private double measureLag() {
+        if (!StringUtils.hasText(properties.getLagQuery())) {
+            Boolean valid = replica.execute(
+                    (ConnectionCallback<Boolean>) connection -> connection.isValid(replica.getQueryTimeout()));
+            // Sin consulta de retraso solo se comprueba la conexión; NaN nunca cumple max-lag
+            return Boolean.TRUE.equals(valid) ? 0 : Double.NaN;
+        }
+        Double lag = replica.queryForObject(properties.getLagQuery(), Double.class);
+        return lag == null ? 0 : lag;
+    }
+
+    @Override
+    public synchronized void start() {
+        check();
+        task = scheduler.scheduleWithFixedDelay(this::check, properties.getLagCheckInterval());
+        running = true;
+        log.info("Monitoring replica lag every {} (max {})", properties.getLagCheckInterval(), properties.getMaxLag());
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (task != null) {
+            task.cancel(false);
+            task = null;
+        }
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
@@ -0,0 +1,52 @@
+package com.tecsup.app.micro.order.config.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.MDC;
+import org.slf4j.Marker;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Muestreo de las líneas INFO/DEBUG de la aplicación. La decisión se toma por id de correlación,
+ * así que una petición conserva o pierde todas sus líneas juntas. WARN y ERROR nunca se descartan.
+ * Se configura en logback-spring.xml con {@code logging.sampling.rate} (1.0 = sin muestreo).
+ */
+public class SamplingTurboFilter extends TurboFilter {
+
+    private static final int BUCKETS = 10_000;
+
+    private String loggerPrefix = "com.tecsup.app.micro.order";
+    private double rate = 1.0;
+    private int threshold = BUCKETS;
+
+    public void setLoggerPrefix(String loggerPrefix) {
+        this.loggerPrefix = loggerPrefix;
+    }
+
+    public void setRate(double rate) {
+        this.rate = rate;
+    }
+
+    @Override
+    public void start() {
+        threshold = (int) Math.round(Math.max(0, Math.min(1, rate)) * BUCKETS);
+        super.start();
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (threshold >= BUCKETS || level == null || level.isGreaterOrEqual(Level.WARN)
+                || !logger.getName().startsWith(loggerPrefix)) {
+            return FilterReply.NEUTRAL;
+        }
+
+        String correlationId = MDC.get(CorrelationIdFilter.MDC_KEY);
+        int bucket = correlationId != null
+                ? Math.floorMod(correlationId.hashCode(), BUCKETS)
+                : ThreadLocalRandom.current().nextInt(BUCKETS);
+        return bucket < threshold ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+}
@@ -1,13 +1,40 @@
 package com.tecsup.app.micro.order.controller;
 
+import com.tecsup.app.micro.order.dto.BulkOrderResult;
+import com.tecsup.app.micro.order.dto.BulkStatusChangeRequest;
+import com.tecsup.app.micro.order.dto.BulkStatusChangeResult;
 import com.tecsup.app.micro.order.dto.CreateOrderRequest;
 import com.tecsup.app.micro.order.dto.Order;
+import com.tecsup.app.micro.order.dto.OrderPage;
+import com.tecsup.app.micro.order.dto.OrderStats;
+import com.tecsup.app.micro.order.dto.OrderStatusResponse;
+import com.tecsup.app.micro.order.dto.StatusChangeRequest;
+import com.tecsup.app.micro.order.service.AsyncOrderService;
+import com.tecsup.app.micro.order.service.BulkOrderService;
+import com.tecsup.app.micro.order.service.OrderExportService;
+import com.tecsup.app.micro.order.service.OrderListingService;
 import com.tecsup.app.micro.order.service.OrderService;
+import com.tecsup.app.micro.order.service.OrderStatsService;
+import com.tecsup.app.micro.order.service.OrderStatusService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ETag;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
 
 @Slf4j
 @AllArgsConstructor
@@ -15,19 +42,181 @@ import org.springframework.web.bind.annotation.*;
 @RequestMapping("/api/orders")
 public class OrderController {
 
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
     private final OrderService orderService;
+    private final BulkOrderService bulkOrderService;
+    private final OrderListingService orderListingService;
+    private final AsyncOrderService asyncOrderService;
+    private final OrderStatsService orderStatsService;
+    private final OrderExportService orderExportService;
+    private final OrderStatusService orderStatusService;
 
+    // En modo asíncrono responde 202 con el estado PENDING; el cliente consulta /{id}/status.
+    // Un reintento con el mismo Idempotency-Key devuelve la orden ya creada en lugar de duplicarla
     @PostMapping
-    public ResponseEntity<Order> createOrder(@RequestBody CreateOrderRequest request) {
+    public ResponseEntity<?> createOrder(@RequestBody CreateOrderRequest request,
+                                         @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
         log.info("REST request to create order for user: {}", request.getUserId());
-        Order order = orderService.createOrder(request);
-        return ResponseEntity.status(HttpStatus.CREATED).body(order);
+        try {
+            return asyncOrderService.isEnabled()
+                    ? accepted(asyncOrderService.acceptOrder(request, idempotencyKey))
+                    : ResponseEntity.status(HttpStatus.CREATED).body(orderService.createOrder(request, idempotencyKey));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        } catch (IllegalStateException e) {
+            // Sin stock suficiente para alguno de los productos
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage(), e);
+        }
+    }
+
+    private ResponseEntity<OrderStatusResponse> accepted(OrderStatusResponse accepted) {
+        URI location = ServletUriComponentsBuilder.fromCurrentRequest()
+                .path("/{id}/status")
+                .buildAndExpand(accepted.getId())
+                .toUri();
+        return ResponseEntity.accepted().location(location).body(accepted);
+    }
+
+    // El cuerpo es un arreglo JSON de CreateOrderRequest; se lee en streaming, sin cargarlo completo
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<BulkOrderResult>> createOrders(HttpServletRequest request) throws IOException {
+        log.info("REST request to create orders in bulk");
+        List<BulkOrderResult> results = bulkOrderService.createOrders(request.getInputStream());
+        return ResponseEntity.ok(results);
+    }
+
+    // Listado paginado por keyset: filtra por userId, status o rango [from, to) de created_at
+    @GetMapping
+    public ResponseEntity<OrderPage> listOrders(
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String expand) {
+        log.info("REST request to list orders");
+        boolean expandItems = "items".equals(expand);
+
+        try {
+            OrderPage page;
+            if (userId != null) {
+                page = orderListingService.listByUser(userId, cursor, size, expandItems);
+            } else if (status != null) {
+                page = orderListingService.listByStatus(status, cursor, size, expandItems);
+            } else if (from != null && to != null) {
+                page = orderListingService.listByCreatedAt(from, to, cursor, size, expandItems);
+            } else {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "One of userId, status or from/to is required");
+            }
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    // Órdenes con items creadas en [from, to), escritas en la respuesta a medida que se leen
+    @GetMapping("/export")
+    public void exportOrders(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "ndjson") String format,
+            HttpServletResponse response) throws IOException {
+        log.info("REST request to export orders from {} to {}", from, to);
+        try {
+            OrderExportService.Format exportFormat = OrderExportService.Format.of(format);
+            boolean csv = exportFormat == OrderExportService.Format.CSV;
+            response.setContentType(csv ? "text/csv;charset=UTF-8" : "application/x-ndjson");
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                    "attachment; filename=\"orders." + (csv ? "csv" : "ndjson") + "\"");
+            orderExportService.export(from, to, exportFormat, response.getOutputStream());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        } catch (IllegalStateException e) {
+            // Todas las conexiones de exportación están ocupadas
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage(), e);
+        }
     }
 
+    // Totales por estado y por día del rango [from, to] y productos más vendidos, leídos de los agregados
+    @GetMapping("/stats")
+    public ResponseEntity<OrderStats> getStats(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "10") int top) {
+        log.info("REST request to get order stats");
+        try {
+            return ResponseEntity.ok(orderStatsService.getStats(from, to, top));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    // Lleva varias órdenes al mismo estado; las que no pueden cambiar se informan en skipped
+    @PatchMapping("/status")
+    public ResponseEntity<BulkStatusChangeResult> changeStatuses(@RequestBody BulkStatusChangeRequest request) {
+        log.info("REST request to change status of {} orders to {}",
+                request.getOrderIds() == null ? 0 : request.getOrderIds().size(), request.getStatus());
+        try {
+            return ResponseEntity.ok(orderStatusService.changeStatus(request.getOrderIds(), request.getStatus()));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    // Con version en el cuerpo, responde 409 si la orden cambió desde que el cliente la leyó
+    @PatchMapping("/{id}/status")
+    public ResponseEntity<OrderStatusResponse> changeStatus(@PathVariable Long id,
+                                                            @RequestBody StatusChangeRequest request) {
+        log.info("REST request to change status of order {} to {}", id, request.getStatus());
+        try {
+            return ResponseEntity.ok(orderStatusService.changeStatus(id, request.getStatus(), request.getVersion()));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        } catch (IllegalStateException e) {
+            // Transición no permitida o modificación concurrente
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage(), e);
+        }
+    }
+
+    @GetMapping("/{id}/status")
+    public ResponseEntity<OrderStatusResponse> getOrderStatus(@PathVariable Long id) {
+        log.info("REST request to get order status by id: {}", id);
+        return ResponseEntity.ok(asyncOrderService.getOrderStatus(id));
+    }
+
+    /**
+     * Devuelve el JSON ya codificado (de la caché de respuestas cuando está), sin volver a serializar.
+     * El ETag sale del id y la versión de la orden y se compara con If-None-Match antes de armarla:
+     * si coincide se responde 304 sin consultar la caché ni los otros servicios. Se lee antes que el
+     * cuerpo, así que si la orden cambia entre medio el ETag queda viejo y solo se pierde un 304.
+     * Una respuesta con usuario o productos de fallback no lleva ETag, para no fijarla en el cliente.
+     */
     @GetMapping("/{id}")
-    public ResponseEntity<Order> getOrderById(@PathVariable Long id) {
+    public ResponseEntity<byte[]> getOrderById(@PathVariable Long id,
+                                               @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         log.info("REST request to get order by id: {}", id);
-        Order order = orderService.getOrderById(id);
-        return ResponseEntity.ok(order);
+        String etag = orderService.getOrderETag(id);
+        if (etag != null && matches(etag, ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+
+        OrderService.OrderJson json = orderService.readOrderJson(id);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON);
+        if (etag != null && json.complete()) {
+            response.eTag(etag);
+        }
+        return response.body(json.json());
+    }
+
+    // Comparación débil, como pide RFC 9110 para If-None-Match
+    static boolean matches(String etag, String ifNoneMatch) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        ETag current = ETag.create(etag);
+        return ETag.parse(ifNoneMatch).stream()
+                .anyMatch(candidate -> candidate.isWildcard() || candidate.compare(current, false));
     }
-}
\ No newline at end of file
+}
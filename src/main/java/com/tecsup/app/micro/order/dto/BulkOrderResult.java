@@ -0,0 +1,28 @@
+package com.tecsup.app.micro.order.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkOrderResult {
+
+    public static final String CREATED = "CREATED";
+    public static final String FAILED = "FAILED";
+
+    // Posición de la orden dentro del arreglo recibido
+    private int index;
+    private String result;
+    private Long orderId;
+    private String orderNumber;
+    private BigDecimal totalAmount;
+    private String error;
+
+    public static BulkOrderResult failed(int index, String error) {
+        return new BulkOrderResult(index, FAILED, null, null, null, error);
+    }
+}
@@ -0,0 +1,16 @@
+package com.tecsup.app.micro.order.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkStatusChangeRequest {
+
+    private List<Long> orderIds;
+    private String status;
+}
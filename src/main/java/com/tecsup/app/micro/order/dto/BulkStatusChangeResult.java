@@ -0,0 +1,31 @@
+package com.tecsup.app.micro.order.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkStatusChangeResult {
+
+    private String status;
+    private int requested;
+    private int updated;
+
+    // Solo las órdenes que no cambiaron; las actualizadas se cuentan en updated
+    private List<Skipped> skipped;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Skipped {
+        private Long orderId;
+
+        // null si la orden no existe
+        private String currentStatus;
+        private String reason;
+    }
+}
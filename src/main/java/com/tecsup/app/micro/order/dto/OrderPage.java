@@ -0,0 +1,18 @@
+package com.tecsup.app.micro.order.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderPage {
+
+    private List<OrderSummary> orders;
+
+    // Cursor opaco para pedir la página siguiente; null si no hay más resultados
+    private String nextCursor;
+}
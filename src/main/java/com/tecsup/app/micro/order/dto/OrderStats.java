@@ -0,0 +1,57 @@
+package com.tecsup.app.micro.order.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderStats {
+
+    // Rango [from, to] de días de creación, ambos incluidos
+    private LocalDate from;
+    private LocalDate to;
+
+    // Órdenes e importe del rango por estado
+    private Map<String, StatusTotals> byStatus;
+
+    // Un elemento por día con órdenes; el ingreso excluye las canceladas
+    private List<DailyTotals> daily;
+
+    // Más vendidos por unidades, desde que hay registro
+    private List<ProductSales> topProducts;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class StatusTotals {
+        private long orders;
+        private BigDecimal amount;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class DailyTotals {
+        private LocalDate date;
+        private long orders;
+        private BigDecimal revenue;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ProductSales {
+        private Long productId;
+        private String productName;
+        private long unitsSold;
+        private BigDecimal revenue;
+        private long orders;
+    }
+}
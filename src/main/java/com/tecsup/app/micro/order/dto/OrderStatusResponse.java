@@ -0,0 +1,28 @@
+package com.tecsup.app.micro.order.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class OrderStatusResponse {
+
+    private Long id;
+    private String orderNumber;
+    private String status;
+    private BigDecimal totalAmount;
+    private LocalDateTime updatedAt;
+
+    // Para enviarla en la siguiente transición y detectar cambios concurrentes
+    private Long version;
+
+    // Motivo del rechazo cuando una orden aceptada termina CANCELLED
+    private String error;
+}
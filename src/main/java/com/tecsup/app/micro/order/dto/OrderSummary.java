@@ -0,0 +1,36 @@
+package com.tecsup.app.micro.order.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class OrderSummary {
+
+    private Long id;
+    private String orderNumber;
+    private Long userId;
+    private String status;
+    private BigDecimal totalAmount;
+    private LocalDateTime createdAt;
+
+    // Solo se completa cuando se pide expand=items
+    private List<OrderItem> items;
+
+    // Usado por las proyecciones JPQL de OrderRepository
+    public OrderSummary(Long id, String orderNumber, Long userId, String status,
+                        BigDecimal totalAmount, LocalDateTime createdAt) {
+        this.id = id;
+        this.orderNumber = orderNumber;
+        this.userId = userId;
+        this.status = status;
+        this.totalAmount = totalAmount;
+        this.createdAt = createdAt;
+    }
+}
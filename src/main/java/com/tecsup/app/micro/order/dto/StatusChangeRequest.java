@@ -0,0 +1,16 @@
+package com.tecsup.app.micro.order.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StatusChangeRequest {
+
+    private String status;
+
+    // Versión leída por el cliente; si la orden cambió desde entonces la transición se rechaza. Opcional
+    private Long version;
+}
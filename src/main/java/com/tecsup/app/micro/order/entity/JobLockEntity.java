@@ -0,0 +1,31 @@
+package com.tecsup.app.micro.order.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Bloqueo de un trabajo periódico entre réplicas. Solo lo escribe
+ * {@link com.tecsup.app.micro.order.service.JobLockService}, que crea la fila de cada trabajo la
+ * primera vez que pide su bloqueo.
+ */
+@Entity
+@Table(name = "job_lock")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JobLockEntity {
+
+    @Id
+    @Column(length = 50)
+    private String name;
+
+    @Column(name = "locked_until", nullable = false)
+    private LocalDateTime lockedUntil;
+
+    @Column(name = "locked_by")
+    private String lockedBy;
+}
@@ -0,0 +1,46 @@
+package com.tecsup.app.micro.order.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Órdenes e importe acumulados por día de creación y estado. Solo la escribe
+ * {@link com.tecsup.app.micro.order.service.OrderStatsService} sumando deltas.
+ */
+@Entity
+@Table(name = "order_daily_stats")
+@IdClass(OrderDailyStatsEntity.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderDailyStatsEntity {
+
+    @Id
+    @Column(name = "order_date", nullable = false)
+    private LocalDate orderDate;
+
+    @Id
+    @Column(nullable = false, length = 20)
+    private String status;
+
+    @Column(name = "order_count", nullable = false)
+    private Long orderCount;
+
+    @Column(name = "total_amount", nullable = false, precision = 14, scale = 2)
+    private BigDecimal totalAmount;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+
+        private LocalDate orderDate;
+        private String status;
+    }
+}
@@ -14,8 +14,10 @@ import java.math.BigDecimal;
 @AllArgsConstructor
 public class OrderItemEntity {
 
+    // Secuencia con asignación en bloques (pooled) para que Hibernate pueda agrupar los INSERT
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_items_seq")
+    @SequenceGenerator(name = "order_items_seq", sequenceName = "order_items_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "order_id", nullable = false)
@@ -24,6 +26,13 @@ public class OrderItemEntity {
     @Column(name = "product_id", nullable = false)
     private Long productId;
 
+    // Nombre y categoría del producto al momento de la compra; NULL en los items anteriores a V5
+    @Column(name = "product_name")
+    private String productName;
+
+    @Column(name = "product_category", length = 100)
+    private String productCategory;
+
     @Column(nullable = false)
     private Integer quantity;
 
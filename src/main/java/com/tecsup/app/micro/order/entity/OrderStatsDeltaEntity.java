@@ -0,0 +1,44 @@
+package com.tecsup.app.micro.order.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Cambio de las estadísticas todavía sin aplicar. Se escribe en la transacción de la orden y
+ * {@link com.tecsup.app.micro.order.service.OrderStatsService#flush()} lo suma a los agregados y
+ * lo borra.
+ */
+@Entity
+@Table(name = "order_stats_delta")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderStatsDeltaEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_stats_delta_seq")
+    @SequenceGenerator(name = "order_stats_delta_seq", sequenceName = "order_stats_delta_seq", allocationSize = 50)
+    private Long id;
+
+    // Fila de order_daily_stats a la que se suma; sin estado, la fila solo suma items
+    @Column(name = "order_date")
+    private LocalDate orderDate;
+
+    @Column(length = 20)
+    private String status;
+
+    @Column(name = "order_count", nullable = false)
+    private Long orderCount;
+
+    @Column(name = "total_amount", nullable = false, precision = 14, scale = 2)
+    private BigDecimal totalAmount;
+
+    // Orden cuyos items se suman a product_sales_stats
+    @Column(name = "items_order_id")
+    private Long itemsOrderId;
+}
@@ -0,0 +1,52 @@
+package com.tecsup.app.micro.order.entity;
+
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Estados de una orden y transiciones permitidas:
+ * PENDING → CONFIRMED → SHIPPED → DELIVERED, y CANCELLED desde cualquier estado no final.
+ * Una orden aceptada en modo asíncrono solo la confirma el worker, que le agrega items y total
+ * (ver {@code OrderStatusService}).
+ * {@link OrderEntity#getStatus()} guarda el nombre.
+ */
+public enum OrderStatus {
+    PENDING, CONFIRMED, SHIPPED, DELIVERED, CANCELLED;
+
+    public static OrderStatus of(String value) {
+        if (value != null) {
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                // Se informa abajo con los valores válidos
+            }
+        }
+        throw new IllegalArgumentException("status must be one of " + EnumSet.allOf(OrderStatus.class));
+    }
+
+    public boolean canTransitionTo(OrderStatus target) {
+        return target.allowedFrom().contains(this);
+    }
+
+    // Ningún estado se alcanza desde uno final
+    public boolean isFinal() {
+        for (OrderStatus target : values()) {
+            if (canTransitionTo(target)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Estados desde los que se puede llegar a este
+    public Set<OrderStatus> allowedFrom() {
+        return switch (this) {
+            case PENDING -> EnumSet.noneOf(OrderStatus.class);
+            case CONFIRMED -> EnumSet.of(PENDING);
+            case SHIPPED -> EnumSet.of(CONFIRMED);
+            case DELIVERED -> EnumSet.of(SHIPPED);
+            case CANCELLED -> EnumSet.of(PENDING, CONFIRMED, SHIPPED);
+        };
+    }
+}
@@ -0,0 +1,34 @@
+package com.tecsup.app.micro.order.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Unidades de un producto de una orden guardada que el product service todavía no descontó. Se
+ * escribe en la transacción de la orden y
+ * {@link com.tecsup.app.micro.order.service.StockReservationService#confirmPending()} la envía y la
+ * borra.
+ */
+@Entity
+@Table(name = "order_stock_adjustment")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderStockAdjustmentEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_stock_adjustment_seq")
+    @SequenceGenerator(name = "order_stock_adjustment_seq", sequenceName = "order_stock_adjustment_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(nullable = false)
+    private Long quantity;
+}
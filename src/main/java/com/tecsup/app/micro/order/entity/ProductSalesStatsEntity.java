@@ -0,0 +1,37 @@
+package com.tecsup.app.micro.order.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Ventas acumuladas por producto. Solo la escribe
+ * {@link com.tecsup.app.micro.order.service.OrderStatsService} sumando deltas.
+ */
+@Entity
+@Table(name = "product_sales_stats")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSalesStatsEntity {
+
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+
+    // Último nombre con el que se vendió, copiado de order_items.product_name
+    @Column(name = "product_name", length = 255)
+    private String productName;
+
+    @Column(name = "units_sold", nullable = false)
+    private Long unitsSold;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal revenue;
+
+    @Column(name = "order_count", nullable = false)
+    private Long orderCount;
+}
@@ -0,0 +1,38 @@
+package com.tecsup.app.micro.order.repository;
+
+import com.tecsup.app.micro.order.entity.JobLockEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface JobLockRepository extends JpaRepository<JobLockEntity, String> {
+
+    // Un solo UPDATE condicional: lo toma quien llega si venció, o lo renueva quien ya lo tiene
+    @Modifying
+    @Query("""
+            update JobLockEntity l
+            set l.lockedUntil = :until, l.lockedBy = :owner
+            where l.name = :name and (l.lockedUntil <= :now or l.lockedBy = :owner)""")
+    int tryAcquire(@Param("name") String name,
+                   @Param("owner") String owner,
+                   @Param("now") LocalDateTime now,
+                   @Param("until") LocalDateTime until);
+
+    // Primera vez que se pide el bloqueo; si otra réplica la creó antes falla por la clave primaria
+    @Modifying
+    @Query(value = "insert into job_lock (name, locked_until, locked_by) values (:name, :until, :owner)",
+            nativeQuery = true)
+    int insert(@Param("name") String name, @Param("owner") String owner, @Param("until") LocalDateTime until);
+
+    @Modifying
+    @Query("""
+            update JobLockEntity l
+            set l.lockedUntil = :now, l.lockedBy = null
+            where l.name = :name and l.lockedBy = :owner""")
+    int release(@Param("name") String name, @Param("owner") String owner, @Param("now") LocalDateTime now);
+}
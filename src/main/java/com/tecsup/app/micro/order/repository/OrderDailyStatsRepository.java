@@ -0,0 +1,33 @@
+package com.tecsup.app.micro.order.repository;
+
+import com.tecsup.app.micro.order.entity.OrderDailyStatsEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface OrderDailyStatsRepository extends JpaRepository<OrderDailyStatsEntity, OrderDailyStatsEntity.Key> {
+
+    // Suma en la base de datos, así varias instancias pueden aplicar sus deltas sobre la misma fila
+    @Modifying
+    @Query("""
+            update OrderDailyStatsEntity s
+            set s.orderCount = s.orderCount + :orders, s.totalAmount = s.totalAmount + :amount
+            where s.orderDate = :orderDate and s.status = :status""")
+    int increment(@Param("orderDate") LocalDate orderDate,
+                  @Param("status") String status,
+                  @Param("orders") long orders,
+                  @Param("amount") BigDecimal amount);
+
+    @Query("""
+            select s from OrderDailyStatsEntity s
+            where s.orderDate >= :from and s.orderDate <= :to
+            order by s.orderDate, s.status""")
+    List<OrderDailyStatsEntity> findByOrderDateRange(@Param("from") LocalDate from, @Param("to") LocalDate to);
+}
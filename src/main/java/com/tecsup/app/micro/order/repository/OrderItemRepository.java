@@ -2,8 +2,23 @@ package com.tecsup.app.micro.order.repository;
 
 import com.tecsup.app.micro.order.entity.OrderItemEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface OrderItemRepository extends JpaRepository<OrderItemEntity, Long> {
+
+    // Ambas consultas usan idx_order_items_order_id en lugar de recorrer toda la tabla
+    List<OrderItemEntity> findByOrderIdOrderByIdAsc(Long orderId);
+
+    List<OrderItemEntity> findByOrderIdInOrderByOrderIdAscIdAsc(Collection<Long> orderIds);
+
+    @Modifying
+    @Query("delete from OrderItemEntity i where i.orderId in :orderIds")
+    int deleteByOrderIdIn(@Param("orderIds") Collection<Long> orderIds);
 }
@@ -0,0 +1,37 @@
+package com.tecsup.app.micro.order.repository;
+
+import com.tecsup.app.micro.order.entity.OrderOutboxEntity;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+@Repository
+public interface OrderOutboxRepository extends JpaRepository<OrderOutboxEntity, Long> {
+
+    // FOR UPDATE SKIP LOCKED (lock timeout -2): varios workers reclaman lotes distintos sin esperarse
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("""
+            select o from OrderOutboxEntity o
+            where o.status = 'PENDING' and o.availableAt <= :now
+            order by o.id""")
+    List<OrderOutboxEntity> findReady(@Param("now") LocalDateTime now, Limit limit);
+
+    Optional<OrderOutboxEntity> findByOrderId(Long orderId);
+
+    // Órdenes aceptadas que el worker todavía no procesó: sin items ni total hasta entonces
+    @Query("select o.orderId from OrderOutboxEntity o where o.status = 'PENDING' and o.orderId in :orderIds")
+    Set<Long> findPendingOrderIds(@Param("orderIds") Collection<Long> orderIds);
+}
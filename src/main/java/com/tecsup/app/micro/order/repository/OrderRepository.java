@@ -1,9 +1,97 @@
 package com.tecsup.app.micro.order.repository;
 
+import com.tecsup.app.micro.order.dto.OrderSummary;
 import com.tecsup.app.micro.order.entity.OrderEntity;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface OrderRepository extends JpaRepository<OrderEntity, Long> {
+
+    // En una transacción de lectura-escritura para leer siempre del primario: una réplica atrasada
+    // no vería la orden recién guardada con esta clave y el reintento la duplicaría
+    @Transactional
+    @Query("select o.id from OrderEntity o where o.idempotencyKey = :idempotencyKey")
+    Optional<Long> findIdByIdempotencyKey(@Param("idempotencyKey") String idempotencyKey);
+
+    @Query("select o.version from OrderEntity o where o.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    @Query("""
+            select new com.tecsup.app.micro.order.dto.OrderSummary(o.id, o.orderNumber, o.userId, o.status, o.totalAmount, o.createdAt)
+            from OrderEntity o
+            where o.id in :ids""")
+    List<OrderSummary> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Transición en bloque con un solo UPDATE. Hace a mano lo que @Version y @PreUpdate hacen al
+    // guardar una entidad; la condición sobre status descarta las que cambiaron desde que se leyeron
+    @Modifying
+    @Query("""
+            update OrderEntity o
+            set o.status = :status, o.updatedAt = :now, o.version = o.version + 1
+            where o.id in :ids and o.status in :from""")
+    int updateStatus(@Param("ids") Collection<Long> ids,
+                     @Param("from") Collection<String> from,
+                     @Param("status") String status,
+                     @Param("now") LocalDateTime now);
+
+    // Las más antiguas primero, recorriendo idx_orders_created_at hasta createdBefore
+    @Query("""
+            select o.id from OrderEntity o
+            where o.createdAt < :createdBefore and o.status in :statuses
+            order by o.createdAt, o.id""")
+    List<Long> findIdsToArchive(@Param("createdBefore") LocalDateTime createdBefore,
+                                @Param("statuses") Collection<String> statuses,
+                                Limit limit);
+
+    @Modifying
+    @Query("delete from OrderEntity o where o.id in :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Paginación por keyset sobre (created_at, id) descendente: cada página continúa
+    // desde la última fila de la anterior en lugar de saltar filas con OFFSET
+
+    @Query("""
+            select new com.tecsup.app.micro.order.dto.OrderSummary(o.id, o.orderNumber, o.userId, o.status, o.totalAmount, o.createdAt)
+            from OrderEntity o
+            where o.userId = :userId
+              and (o.createdAt < :afterCreatedAt or (o.createdAt = :afterCreatedAt and o.id < :afterId))
+            order by o.createdAt desc, o.id desc""")
+    List<OrderSummary> findSummariesByUserId(@Param("userId") Long userId,
+                                             @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+                                             @Param("afterId") Long afterId,
+                                             Limit limit);
+
+    @Query("""
+            select new com.tecsup.app.micro.order.dto.OrderSummary(o.id, o.orderNumber, o.userId, o.status, o.totalAmount, o.createdAt)
+            from OrderEntity o
+            where o.status = :status
+              and (o.createdAt < :afterCreatedAt or (o.createdAt = :afterCreatedAt and o.id < :afterId))
+            order by o.createdAt desc, o.id desc""")
+    List<OrderSummary> findSummariesByStatus(@Param("status") String status,
+                                             @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+                                             @Param("afterId") Long afterId,
+                                             Limit limit);
+
+    @Query("""
+            select new com.tecsup.app.micro.order.dto.OrderSummary(o.id, o.orderNumber, o.userId, o.status, o.totalAmount, o.createdAt)
+            from OrderEntity o
+            where o.createdAt >= :from and o.createdAt < :to
+              and (o.createdAt < :afterCreatedAt or (o.createdAt = :afterCreatedAt and o.id < :afterId))
+            order by o.createdAt desc, o.id desc""")
+    List<OrderSummary> findSummariesByCreatedAtRange(@Param("from") LocalDateTime from,
+                                                     @Param("to") LocalDateTime to,
+                                                     @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+                                                     @Param("afterId") Long afterId,
+                                                     Limit limit);
 }
@@ -0,0 +1,23 @@
+package com.tecsup.app.micro.order.repository;
+
+import com.tecsup.app.micro.order.entity.OrderStatsDeltaEntity;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface OrderStatsDeltaRepository extends JpaRepository<OrderStatsDeltaEntity, Long> {
+
+    // FOR UPDATE SKIP LOCKED: cada réplica aplica un lote distinto sin esperar a las demás
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("select d from OrderStatsDeltaEntity d order by d.id")
+    List<OrderStatsDeltaEntity> findBatch(Limit limit);
+}
@@ -0,0 +1,34 @@
+package com.tecsup.app.micro.order.repository;
+
+import com.tecsup.app.micro.order.client.StockLevel;
+import com.tecsup.app.micro.order.entity.OrderStockAdjustmentEntity;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OrderStockAdjustmentRepository extends JpaRepository<OrderStockAdjustmentEntity, Long> {
+
+    // FOR UPDATE SKIP LOCKED: cada réplica envía un lote distinto sin esperar a las demás
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("select a from OrderStockAdjustmentEntity a order by a.id")
+    List<OrderStockAdjustmentEntity> findBatch(Limit limit);
+
+    // Unidades de cada producto guardadas en órdenes y todavía sin descontar en el product service
+    @Query("""
+            select new com.tecsup.app.micro.order.client.StockLevel(a.productId, sum(a.quantity))
+            from OrderStockAdjustmentEntity a
+            where a.productId in :productIds
+            group by a.productId""")
+    List<StockLevel> sumUnsent(@Param("productIds") Collection<Long> productIds);
+}
@@ -0,0 +1,32 @@
+package com.tecsup.app.micro.order.repository;
+
+import com.tecsup.app.micro.order.entity.ProductSalesStatsEntity;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Repository
+public interface ProductSalesStatsRepository extends JpaRepository<ProductSalesStatsEntity, Long> {
+
+    @Modifying
+    @Query("""
+            update ProductSalesStatsEntity s
+            set s.unitsSold = s.unitsSold + :units, s.revenue = s.revenue + :revenue,
+                s.orderCount = s.orderCount + :orders, s.productName = coalesce(:productName, s.productName)
+            where s.productId = :productId""")
+    int increment(@Param("productId") Long productId,
+                  @Param("productName") String productName,
+                  @Param("units") long units,
+                  @Param("revenue") BigDecimal revenue,
+                  @Param("orders") long orders);
+
+    // Recorre idx_product_sales_stats_units y se detiene en el límite
+    @Query("select s from ProductSalesStatsEntity s order by s.unitsSold desc, s.productId")
+    List<ProductSalesStatsEntity> findTopSellers(Limit limit);
+}
@@ -0,0 +1,299 @@
+package com.tecsup.app.micro.order.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tecsup.app.micro.order.cache.OrderResponseCache;
+import com.tecsup.app.micro.order.client.Product;
+import com.tecsup.app.micro.order.client.ProductClient;
+import com.tecsup.app.micro.order.client.UserClient;
+import com.tecsup.app.micro.order.config.OrderProcessingProperties;
+import com.tecsup.app.micro.order.dto.CreateOrderRequest;
+import com.tecsup.app.micro.order.dto.OrderStatusResponse;
+import com.tecsup.app.micro.order.entity.OrderEntity;
+import com.tecsup.app.micro.order.entity.OrderItemEntity;
+import com.tecsup.app.micro.order.entity.OrderOutboxEntity;
+import com.tecsup.app.micro.order.repository.OrderItemRepository;
+import com.tecsup.app.micro.order.repository.OrderOutboxRepository;
+import com.tecsup.app.micro.order.repository.OrderRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Alta de órdenes en dos fases. {@link #acceptOrder} solo guarda la orden PENDING y su fila de
+ * outbox en una transacción corta, sin llamadas remotas. Después los workers reclaman lotes de la
+ * outbox, validan usuarios y productos fuera de cualquier transacción y confirman el lote entero
+ * (items, total y estado CONFIRMED) en una sola transacción. Una orden que agota sus intentos
+ * pasa a CANCELLED.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AsyncOrderService {
+
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private final OrderService orderService;
+    private final OrderRepository orderRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final OrderOutboxRepository outboxRepository;
+    private final UserClient userClient;
+    private final ProductClient productClient;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final OrderProcessingProperties properties;
+    private final OrderResponseCache orderResponseCache;
+    private final IdempotencyService idempotencyService;
+    private final StockReservationService stockReservationService;
+    private final OrderStatsService orderStatsService;
+
+    public boolean isEnabled() {
+        return properties.getMode() == OrderProcessingProperties.Mode.ASYNCHRONOUS;
+    }
+
+    public OrderStatusResponse acceptOrder(CreateOrderRequest request) {
+        return acceptOrder(request, null);
+    }
+
+    // Con idempotencyKey, un reintento devuelve el estado de la orden ya aceptada
+    public OrderStatusResponse acceptOrder(CreateOrderRequest request, String idempotencyKey) {
+        return idempotencyService.submit(idempotencyKey, () -> accept(request, idempotencyKey),
+                OrderStatusResponse::getId, this::getOrderStatus);
+    }
+
+    private OrderStatusResponse accept(CreateOrderRequest request, String idempotencyKey) {
+        String error = orderService.validate(request);
+        if (error != null) {
+            throw new IllegalArgumentException(error);
+        }
+
+        String payload = writePayload(request);
+        // Total en cero hasta que un worker calcule los precios
+        OrderEntity order = orderService.newOrderEntity(request.getUserId(), List.of());
+        order.setIdempotencyKey(idempotencyKey);
+        transactionTemplate.executeWithoutResult(status -> {
+            orderRepository.save(order);
+            LocalDateTime now = LocalDateTime.now();
+            outboxRepository.save(new OrderOutboxEntity(null, order.getId(), payload, OrderOutboxEntity.PENDING,
+                    0, null, now, now, null));
+            orderStatsService.recordCreated(order, List.of());
+        });
+        log.info("Order {} accepted for asynchronous processing", order.getId());
+        return toStatus(order, null);
+    }
+
+    public OrderStatusResponse getOrderStatus(Long id) {
+        OrderEntity order = orderRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Order not found with id: " + id));
+        String error = "CANCELLED".equals(order.getStatus())
+                ? outboxRepository.findByOrderId(id).map(OrderOutboxEntity::getLastError).orElse(null)
+                : null;
+        return toStatus(order, error);
+    }
+
+    /**
+     * Reclama y procesa un lote de la outbox. Devuelve cuántas filas reclamó, para que el worker
+     * siga vaciando la cola mientras lleguen lotes completos.
+     */
+    public int processPending() {
+        List<OrderOutboxEntity> claimed = transactionTemplate.execute(status -> claim());
+        if (claimed == null || claimed.isEmpty()) {
+            return 0;
+        }
+        log.info("Processing {} accepted orders", claimed.size());
+
+        List<Accepted> accepted = new ArrayList<>(claimed.size());
+        for (OrderOutboxEntity entry : claimed) {
+            try {
+                accepted.add(new Accepted(entry, objectMapper.readValue(entry.getPayload(), CreateOrderRequest.class)));
+            } catch (JsonProcessingException e) {
+                fail(entry, "Unreadable order request: " + e.getOriginalMessage(), true);
+            }
+        }
+
+        // Un recorrido por usuario y una sola consulta de productos para todo el lote
+        Set<Long> userIds = new LinkedHashSet<>();
+        Set<Long> productIds = new LinkedHashSet<>();
+        for (Accepted order : accepted) {
+            userIds.add(order.request().getUserId());
+            order.request().getItems().forEach(item -> productIds.add(item.getProductId()));
+        }
+        // Los clientes no lanzan excepciones: si un servicio no responde devuelven su valor de
+        // fallback, y una orden no se confirma con un usuario genérico ni con un precio en cero
+        Set<Long> unavailableUsers = new HashSet<>();
+        for (Long userId : userIds) {
+            if (UserClient.isFallback(userClient.getUserById(userId))) {
+                unavailableUsers.add(userId);
+            }
+        }
+        Map<Long, Product> products = productIds.isEmpty() ? Map.of() : productClient.getProductsForPricing(productIds);
+
+        List<Priced> priced = new ArrayList<>(accepted.size());
+        for (Accepted order : accepted) {
+            String unavailable = orderService.unavailable(order.request(), unavailableUsers, products);
+            if (unavailable != null) {
+                fail(order.outbox(), unavailable, false);
+                continue;
+            }
+            try {
+                List<OrderItemEntity> items = orderService.priceItems(order.request().getItems(), products);
+                priced.add(new Priced(order.outbox(), items,
+                        stockReservationService.reserve(order.request().getItems(), products)));
+            } catch (RuntimeException e) {
+                fail(order.outbox(), e.getMessage(), false);
+            }
+        }
+        confirm(priced);
+        return claimed.size();
+    }
+
+    private List<OrderOutboxEntity> claim() {
+        LocalDateTime now = LocalDateTime.now();
+        List<OrderOutboxEntity> ready = outboxRepository.findReady(now, Limit.of(properties.getBatchSize()));
+        for (OrderOutboxEntity entry : ready) {
+            entry.setAttempts(entry.getAttempts() + 1);
+            entry.setAvailableAt(now.plus(properties.getClaimTimeout()));
+        }
+        return ready;
+    }
+
+    // Todo el lote en una transacción; si falla, se reintenta orden por orden
+    private void confirm(List<Priced> priced) {
+        if (priced.isEmpty()) {
+            return;
+        }
+        try {
+            recordConfirmed(priced, transactionTemplate.execute(status -> save(priced)));
+            return;
+        } catch (RuntimeException e) {
+            log.warn("Confirming a batch of {} orders failed, retrying one by one: {}", priced.size(), e.getMessage());
+        }
+
+        for (Priced order : priced) {
+            order.resetIds();
+            try {
+                recordConfirmed(List.of(order), transactionTemplate.execute(status -> save(List.of(order))));
+            } catch (RuntimeException e) {
+                order.reservation().release();
+                fail(order.outbox(), e.getMessage(), false);
+            }
+        }
+    }
+
+    private List<Confirmed> save(List<Priced> priced) {
+        Map<Long, OrderEntity> orders = orderRepository.findAllById(priced.stream().map(order -> order.outbox().getOrderId()).toList())
+                .stream()
+                .collect(Collectors.toMap(OrderEntity::getId, Function.identity()));
+        Map<Long, OrderOutboxEntity> entries = outboxRepository.findAllById(priced.stream().map(order -> order.outbox().getId()).toList())
+                .stream()
+                .collect(Collectors.toMap(OrderOutboxEntity::getId, Function.identity()));
+
+        LocalDateTime now = LocalDateTime.now();
+        List<OrderItemEntity> items = new ArrayList<>();
+        List<Confirmed> confirmed = new ArrayList<>();
+        for (Priced order : priced) {
+            OrderOutboxEntity entry = entries.get(order.outbox().getId());
+            entry.setStatus(OrderOutboxEntity.DONE);
+            entry.setProcessedAt(now);
+
+            // La orden pudo cancelarse mientras esperaba en la outbox
+            OrderEntity orderEntity = orders.get(order.outbox().getOrderId());
+            if (orderEntity == null || !"PENDING".equals(orderEntity.getStatus())) {
+                continue;
+            }
+            BigDecimal acceptedTotal = orderEntity.getTotalAmount();
+            orderEntity.setStatus("CONFIRMED");
+            orderResponseCache.invalidate(orderEntity.getId());
+            orderEntity.setTotalAmount(orderService.totalOf(order.items()));
+            order.items().forEach(item -> item.setOrderId(orderEntity.getId()));
+            items.addAll(order.items());
+            confirmed.add(new Confirmed(orderEntity, order.items()));
+            orderStatsService.recordStatusChange(orderEntity, "PENDING", acceptedTotal);
+            orderStatsService.recordItems(order.items());
+            order.reservation().record(orderEntity.getId());
+        }
+        orderItemRepository.saveAll(items);
+        return confirmed;
+    }
+
+    // Las unidades de las órdenes confirmadas ya quedaron guardadas para el product service; las de
+    // las que se cancelaron mientras esperaban se sueltan
+    private void recordConfirmed(List<Priced> priced, List<Confirmed> confirmed) {
+        Set<Long> confirmedIds = confirmed.stream().map(order -> order.order().getId()).collect(Collectors.toSet());
+        priced.forEach(order -> {
+            if (confirmedIds.contains(order.outbox().getOrderId())) {
+                order.reservation().commit();
+            } else {
+                order.reservation().release();
+            }
+        });
+        confirmed.forEach(order -> orderService.recordOrderCreated(order.order(), order.items().size()));
+    }
+
+    private void fail(OrderOutboxEntity claimed, String error, boolean permanent) {
+        String message = error == null ? "Unknown error" : error;
+        log.warn("Processing accepted order {} failed (attempt {}): {}", claimed.getOrderId(), claimed.getAttempts(), message);
+        transactionTemplate.executeWithoutResult(status -> {
+            OrderOutboxEntity entry = outboxRepository.findById(claimed.getId()).orElseThrow();
+            entry.setLastError(message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message);
+
+            LocalDateTime now = LocalDateTime.now();
+            if (!permanent && entry.getAttempts() < properties.getMaxAttempts()) {
+                entry.setAvailableAt(now.plus(properties.getRetryDelay()));
+                return;
+            }
+            entry.setStatus(OrderOutboxEntity.FAILED);
+            entry.setProcessedAt(now);
+            orderRepository.findById(entry.getOrderId())
+                    .filter(order -> "PENDING".equals(order.getStatus()))
+                    .ifPresent(order -> {
+                        order.setStatus("CANCELLED");
+                        orderResponseCache.invalidate(order.getId());
+                        orderStatsService.recordStatusChange(order, "PENDING", order.getTotalAmount());
+                    });
+        });
+    }
+
+    private String writePayload(CreateOrderRequest request) {
+        try {
+            return objectMapper.writeValueAsString(request);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid order request: " + e.getOriginalMessage(), e);
+        }
+    }
+
+    private OrderStatusResponse toStatus(OrderEntity order, String error) {
+        return new OrderStatusResponse(order.getId(), order.getOrderNumber(), order.getStatus(),
+                order.getTotalAmount(), order.getUpdatedAt(), order.getVersion(), error);
+    }
+
+    private record Accepted(OrderOutboxEntity outbox, CreateOrderRequest request) {
+    }
+
+    private record Confirmed(OrderEntity order, List<OrderItemEntity> items) {
+    }
+
+    private record Priced(OrderOutboxEntity outbox, List<OrderItemEntity> items,
+                          StockReservationService.Reservation reservation) {
+
+        void resetIds() {
+            items.forEach(item -> {
+                item.setId(null);
+                item.setOrderId(null);
+            });
+        }
+    }
+}
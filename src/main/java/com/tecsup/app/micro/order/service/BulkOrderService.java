@@ -0,0 +1,193 @@
+package com.tecsup.app.micro.order.service;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tecsup.app.micro.order.client.Product;
+import com.tecsup.app.micro.order.client.ProductClient;
+import com.tecsup.app.micro.order.client.UserClient;
+import com.tecsup.app.micro.order.dto.BulkOrderResult;
+import com.tecsup.app.micro.order.dto.CreateOrderRequest;
+import com.tecsup.app.micro.order.entity.OrderEntity;
+import com.tecsup.app.micro.order.entity.OrderItemEntity;
+import com.tecsup.app.micro.order.repository.OrderItemRepository;
+import com.tecsup.app.micro.order.repository.OrderRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Alta masiva de órdenes. El arreglo JSON se lee elemento a elemento y se procesa en bloques:
+ * usuarios y productos se validan una vez por bloque y cada bloque se guarda en su propia
+ * transacción con INSERT agrupados. Si un bloque falla, sus órdenes se reintentan una a una
+ * para que solo las órdenes con error queden fuera.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BulkOrderService {
+
+    private final OrderService orderService;
+    private final OrderRepository orderRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final UserClient userClient;
+    private final ProductClient productClient;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final StockReservationService stockReservationService;
+    private final OrderStatsService orderStatsService;
+
+    @Value("${order.bulk.chunk-size:200}")
+    private int chunkSize;
+
+    public List<BulkOrderResult> createOrders(InputStream json) throws IOException {
+        List<BulkOrderResult> results = new ArrayList<>();
+        List<Candidate> chunk = new ArrayList<>(chunkSize);
+        int index = 0;
+
+        try (MappingIterator<CreateOrderRequest> requests = objectMapper.readerFor(CreateOrderRequest.class).readValues(json)) {
+            while (requests.hasNextValue()) {
+                chunk.add(new Candidate(index++, requests.nextValue()));
+                if (chunk.size() == chunkSize) {
+                    results.addAll(processChunk(chunk));
+                    chunk.clear();
+                }
+            }
+        }
+        if (!chunk.isEmpty()) {
+            results.addAll(processChunk(chunk));
+        }
+
+        long created = results.stream().filter(result -> BulkOrderResult.CREATED.equals(result.getResult())).count();
+        log.info("Bulk order import finished: {} created, {} failed", created, results.size() - created);
+        return results;
+    }
+
+    private List<BulkOrderResult> processChunk(List<Candidate> chunk) {
+        List<BulkOrderResult> results = new ArrayList<>(chunk.size());
+        List<Candidate> valid = new ArrayList<>(chunk.size());
+        for (Candidate candidate : chunk) {
+            String error = orderService.validate(candidate.request());
+            if (error != null) {
+                results.add(BulkOrderResult.failed(candidate.index(), error));
+            } else {
+                valid.add(candidate);
+            }
+        }
+
+        if (!valid.isEmpty()) {
+            // Un solo recorrido por usuario y una sola consulta de productos para todo el bloque
+            Set<Long> userIds = new LinkedHashSet<>();
+            Set<Long> productIds = new LinkedHashSet<>();
+            for (Candidate candidate : valid) {
+                userIds.add(candidate.request().getUserId());
+                candidate.request().getItems().forEach(item -> productIds.add(item.getProductId()));
+            }
+            Set<Long> unavailableUsers = new HashSet<>();
+            for (Long userId : userIds) {
+                if (UserClient.isFallback(userClient.getUserById(userId))) {
+                    unavailableUsers.add(userId);
+                }
+            }
+            Map<Long, Product> products = productClient.getProductsForPricing(productIds);
+
+            List<Prepared> prepared = new ArrayList<>(valid.size());
+            for (Candidate candidate : valid) {
+                // Sin usuario real o con precios de fallback la orden no se guarda
+                String unavailable = orderService.unavailable(candidate.request(), unavailableUsers, products);
+                if (unavailable != null) {
+                    results.add(BulkOrderResult.failed(candidate.index(), unavailable));
+                    continue;
+                }
+                List<OrderItemEntity> items = orderService.priceItems(candidate.request().getItems(), products);
+                OrderEntity order = orderService.newOrderEntity(candidate.request().getUserId(), items);
+                StockReservationService.Reservation reservation;
+                try {
+                    reservation = stockReservationService.reserve(candidate.request().getItems(), products);
+                } catch (IllegalStateException e) {
+                    results.add(BulkOrderResult.failed(candidate.index(), e.getMessage()));
+                    continue;
+                }
+                prepared.add(new Prepared(candidate.index(), order, items, reservation));
+            }
+            results.addAll(persist(prepared));
+        }
+
+        results.sort(Comparator.comparingInt(BulkOrderResult::getIndex));
+        return results;
+    }
+
+    private List<BulkOrderResult> persist(List<Prepared> prepared) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> save(prepared));
+            prepared.forEach(order -> order.reservation().commit());
+            return prepared.stream().map(this::created).toList();
+        } catch (RuntimeException e) {
+            log.warn("Bulk chunk of {} orders failed, retrying one by one: {}", prepared.size(), e.getMessage());
+        }
+
+        List<BulkOrderResult> results = new ArrayList<>(prepared.size());
+        for (Prepared order : prepared) {
+            order.resetForRetry();
+            try {
+                transactionTemplate.executeWithoutResult(status -> save(List.of(order)));
+                order.reservation().commit();
+                results.add(created(order));
+            } catch (RuntimeException e) {
+                order.reservation().release();
+                results.add(BulkOrderResult.failed(order.index(), e.getMessage()));
+            }
+        }
+        return results;
+    }
+
+    // Todas las órdenes primero y luego todos los items, para que Hibernate los envíe en dos lotes
+    private void save(List<Prepared> prepared) {
+        List<OrderItemEntity> items = new ArrayList<>();
+        for (Prepared order : prepared) {
+            orderRepository.save(order.order());
+            order.items().forEach(item -> item.setOrderId(order.order().getId()));
+            items.addAll(order.items());
+        }
+        orderItemRepository.saveAll(items);
+        prepared.forEach(order -> {
+            orderStatsService.recordCreated(order.order(), order.items());
+            order.reservation().record(order.order().getId());
+        });
+    }
+
+    private BulkOrderResult created(Prepared prepared) {
+        OrderEntity order = prepared.order();
+        orderService.recordOrderCreated(order, prepared.items().size());
+        return new BulkOrderResult(prepared.index(), BulkOrderResult.CREATED, order.getId(),
+                order.getOrderNumber(), order.getTotalAmount(), null);
+    }
+
+    private record Candidate(int index, CreateOrderRequest request) {
+    }
+
+    private record Prepared(int index, OrderEntity order, List<OrderItemEntity> items,
+                            StockReservationService.Reservation reservation) {
+
+        // Deshace lo que dejó el bloque revertido: con id o version asignados, save() haría merge
+        void resetForRetry() {
+            order.setId(null);
+            order.setVersion(null);
+            items.forEach(item -> {
+                item.setId(null);
+                item.setOrderId(null);
+            });
+        }
+    }
+}
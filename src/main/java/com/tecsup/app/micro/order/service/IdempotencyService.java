@@ -0,0 +1,106 @@
+package com.tecsup.app.micro.order.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.tecsup.app.micro.order.config.OrderIdempotencyProperties;
+import com.tecsup.app.micro.order.repository.OrderRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Deduplica las altas de órdenes por {@code Idempotency-Key}. Dentro de la ventana en memoria, los
+ * reintentos (también los que llegan mientras la primera petición sigue en curso) esperan a la
+ * primera y reciben la misma orden sin tocar la base de datos. Fuera de la ventana, o desde otra
+ * instancia, la clave se resuelve con el índice único de {@code orders.idempotency_key}.
+ */
+@Slf4j
+@Service
+public class IdempotencyService {
+
+    private static final Pattern VALID_KEY = Pattern.compile("[A-Za-z0-9._:-]{1,64}");
+
+    private final OrderRepository orderRepository;
+    // Clave -> id de la orden; el future queda pendiente mientras la primera petición se procesa
+    private final ConcurrentMap<String, CompletableFuture<Long>> submissions;
+
+    public IdempotencyService(OrderRepository orderRepository, OrderIdempotencyProperties properties) {
+        this.orderRepository = orderRepository;
+        Cache<String, CompletableFuture<Long>> cache = Caffeine.newBuilder()
+                .expireAfterWrite(properties.getWindow())
+                .maximumSize(properties.getMaxKeys())
+                .build();
+        this.submissions = cache.asMap();
+    }
+
+    /**
+     * Ejecuta {@code create} una sola vez por clave. Un reintento devuelve {@code replay} de la orden
+     * ya creada. Sin clave, solo ejecuta {@code create}.
+     *
+     * @throws IllegalArgumentException si la clave no tiene un formato válido
+     */
+    public <T> T submit(String key, Supplier<T> create, Function<T, Long> idOf, Function<Long, T> replay) {
+        if (key == null) {
+            return create.get();
+        }
+        if (!VALID_KEY.matcher(key).matches()) {
+            throw new IllegalArgumentException("Idempotency-Key must be 1-64 characters of [A-Za-z0-9._:-]");
+        }
+
+        while (true) {
+            CompletableFuture<Long> owned = new CompletableFuture<>();
+            CompletableFuture<Long> existing = submissions.putIfAbsent(key, owned);
+            if (existing != null) {
+                Long orderId;
+                try {
+                    orderId = existing.join();
+                } catch (CompletionException | CancellationException e) {
+                    // La primera petición falló y ya soltó la clave: este reintento lo vuelve a intentar
+                    continue;
+                }
+                log.debug("Replaying order {} for Idempotency-Key {}", orderId, key);
+                return replay.apply(orderId);
+            }
+            return createOnce(key, owned, create, idOf, replay);
+        }
+    }
+
+    private <T> T createOnce(String key, CompletableFuture<Long> owned, Supplier<T> create,
+                             Function<T, Long> idOf, Function<Long, T> replay) {
+        try {
+            Optional<Long> stored = orderRepository.findIdByIdempotencyKey(key);
+            if (stored.isPresent()) {
+                owned.complete(stored.get());
+                return replay.apply(stored.get());
+            }
+            T result = create.get();
+            owned.complete(idOf.apply(result));
+            return result;
+        } catch (DataIntegrityViolationException e) {
+            // Otra instancia guardó la misma clave entre la consulta y el INSERT
+            Optional<Long> stored = orderRepository.findIdByIdempotencyKey(key);
+            if (stored.isPresent()) {
+                owned.complete(stored.get());
+                return replay.apply(stored.get());
+            }
+            throw abandon(key, owned, e);
+        } catch (RuntimeException e) {
+            throw abandon(key, owned, e);
+        }
+    }
+
+    private RuntimeException abandon(String key, CompletableFuture<Long> owned, RuntimeException e) {
+        submissions.remove(key, owned);
+        owned.completeExceptionally(e);
+        return e;
+    }
+}
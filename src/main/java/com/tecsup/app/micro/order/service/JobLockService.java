@@ -0,0 +1,82 @@
+package com.tecsup.app.micro.order.service;
+
+import com.tecsup.app.micro.order.repository.JobLockRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Elige una sola réplica para los trabajos que no pueden correr en paralelo, con una fila de
+ * {@code job_lock} por trabajo. El bloqueo es un arrendamiento: quien lo tiene lo renueva con
+ * {@link #tryLock} antes de cada tanda, y si la réplica cae sin soltarlo otra lo toma al vencer.
+ * El vencimiento se calcula con el reloj de cada réplica, así que el arrendamiento debe ser mucho
+ * mayor que la diferencia entre relojes y que lo que tarda una tanda.
+ */
+@Slf4j
+@Service
+public class JobLockService {
+
+    private final JobLockRepository jobLockRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final String owner;
+
+    @Autowired
+    public JobLockService(JobLockRepository jobLockRepository, TransactionTemplate transactionTemplate) {
+        this(jobLockRepository, transactionTemplate, hostName() + "/" + UUID.randomUUID());
+    }
+
+    JobLockService(JobLockRepository jobLockRepository, TransactionTemplate transactionTemplate, String owner) {
+        this.jobLockRepository = jobLockRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.owner = owner;
+    }
+
+    // Toma o renueva el bloqueo por lease; false si lo tiene otra réplica
+    public boolean tryLock(String name, Duration lease) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime until = now.plus(lease);
+        Integer updated = transactionTemplate.execute(status -> jobLockRepository.tryAcquire(name, owner, now, until));
+        boolean acquired = updated != null && updated == 1;
+        if (!acquired && !jobLockRepository.existsById(name)) {
+            acquired = insert(name, until);
+        }
+        if (!acquired) {
+            log.debug("Job lock {} is held by another instance", name);
+        }
+        return acquired;
+    }
+
+    public void unlock(String name) {
+        transactionTemplate.executeWithoutResult(status -> jobLockRepository.release(name, owner, LocalDateTime.now()));
+    }
+
+    // En su propia transacción: si otra réplica ganó la carrera, la clave duplicada no arrastra a nadie
+    private boolean insert(String name, LocalDateTime until) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> jobLockRepository.insert(name, owner, until));
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            return false;
+        }
+    }
+
+    private static String hostName() {
+        String host = System.getenv("HOSTNAME");
+        if (host != null && !host.isBlank()) {
+            return host;
+        }
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "localhost";
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.tecsup.app.micro.order.service;
+
+import com.tecsup.app.micro.order.archive.ArchivedOrder;
+import com.tecsup.app.micro.order.archive.OrderArchive;
+import com.tecsup.app.micro.order.archive.OrderArchiveProperties;
+import com.tecsup.app.micro.order.entity.OrderItemEntity;
+import com.tecsup.app.micro.order.entity.OrderStatus;
+import com.tecsup.app.micro.order.repository.OrderItemRepository;
+import com.tecsup.app.micro.order.repository.OrderRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Mueve las órdenes antiguas en estado final de {@code orders}/{@code order_items} a los segmentos
+ * de {@link OrderArchive}. Cada tanda se escribe y sincroniza en disco antes de borrar sus filas;
+ * si el proceso cae entre ambos pasos, la siguiente ejecución vuelve a archivarlas en otro
+ * segmento y la copia nueva tapa a la anterior. Con varias réplicas solo archiva la que tiene el
+ * bloqueo {@value #LOCK} de {@link JobLockService}; las demás no hacen nada en esa ejecución.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OrderArchiveService {
+
+    static final String LOCK = "order-archive";
+
+    private final OrderRepository orderRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final OrderArchive orderArchive;
+    private final TransactionTemplate transactionTemplate;
+    private final OrderArchiveProperties properties;
+    private final JobLockService jobLockService;
+
+    // Archiva las órdenes creadas hace más de order.archive.min-age; devuelve cuántas
+    public int archive() {
+        return archive(LocalDateTime.now().minus(properties.getMinAge()));
+    }
+
+    /**
+     * Archiva hasta {@code max-segments-per-run} tandas de órdenes creadas antes de
+     * {@code createdBefore}. Devuelve cuántas órdenes se archivaron: 0 también si otra réplica
+     * tiene el bloqueo.
+     *
+     * @throws IllegalStateException si el archivo está desactivado o un estado configurado no es final
+     */
+    public synchronized int archive(LocalDateTime createdBefore) {
+        if (!orderArchive.isEnabled()) {
+            throw new IllegalStateException("Order archive is disabled");
+        }
+        List<String> statuses = new ArrayList<>();
+        for (String value : properties.getStatuses()) {
+            OrderStatus status = OrderStatus.of(value);
+            // Una orden que todavía puede cambiar de estado no se puede sacar de la base de datos
+            if (!status.isFinal()) {
+                throw new IllegalStateException("Only final statuses can be archived, not " + status);
+            }
+            statuses.add(status.name());
+        }
+
+        int archived = 0;
+        try {
+            // Se renueva antes de cada tanda; si otra réplica lo tomó, se deja de archivar
+            for (int segment = 0; segment < properties.getMaxSegmentsPerRun(); segment++) {
+                if (!jobLockService.tryLock(LOCK, properties.getLockLease())) {
+                    break;
+                }
+                int count = archiveSegment(createdBefore, statuses);
+                archived += count;
+                if (count < properties.getSegmentMaxOrders()) {
+                    break;
+                }
+            }
+        } finally {
+            jobLockService.unlock(LOCK);
+        }
+        return archived;
+    }
+
+    private int archiveSegment(LocalDateTime createdBefore, List<String> statuses) {
+        List<ArchivedOrder> orders = transactionTemplate.execute(status -> {
+            List<Long> ids = orderRepository.findIdsToArchive(createdBefore, statuses,
+                    Limit.of(properties.getSegmentMaxOrders()));
+            if (ids.isEmpty()) {
+                return List.<ArchivedOrder>of();
+            }
+            Map<Long, List<OrderItemEntity>> items = orderItemRepository.findByOrderIdInOrderByOrderIdAscIdAsc(ids)
+                    .stream()
+                    .collect(Collectors.groupingBy(OrderItemEntity::getOrderId));
+            return orderRepository.findAllById(ids).stream()
+                    .map(order -> new ArchivedOrder(order, items.getOrDefault(order.getId(), List.of())))
+                    .toList();
+        });
+        if (orders.isEmpty()) {
+            return 0;
+        }
+
+        orderArchive.append(orders);
+        List<Long> ids = orders.stream().map(order -> order.order().getId()).toList();
+        // Las filas de order_outbox se borran por ON DELETE CASCADE
+        transactionTemplate.executeWithoutResult(status -> {
+            orderItemRepository.deleteByOrderIdIn(ids);
+            orderRepository.deleteByIdIn(ids);
+        });
+        log.debug("Deleted {} archived orders from the database", ids.size());
+        return ids.size();
+    }
+}
@@ -0,0 +1,69 @@
+package com.tecsup.app.micro.order.service;
+
+import com.tecsup.app.micro.order.archive.OrderArchiveProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Ejecuta {@link OrderArchiveService#archive()} cada {@code order.archive.run-interval}. Solo
+ * arranca con {@code order.archive.enabled=true}, y la primera ejecución espera un intervalo para
+ * no cargar el arranque. Corre en todas las réplicas, pero en cada ejecución archiva solo la que
+ * toma el bloqueo.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OrderArchiveWorker implements SmartLifecycle {
+
+    private final OrderArchiveService orderArchiveService;
+    private final OrderArchiveProperties properties;
+    private final ThreadPoolTaskScheduler orderArchiveScheduler;
+
+    private ScheduledFuture<?> task;
+    private volatile boolean running;
+
+    @Override
+    public boolean isAutoStartup() {
+        return properties.isEnabled();
+    }
+
+    @Override
+    public synchronized void start() {
+        task = orderArchiveScheduler.scheduleWithFixedDelay(this::archive,
+                Instant.now().plus(properties.getRunInterval()), properties.getRunInterval());
+        running = true;
+        log.info("Started order archiving every {} (orders older than {} in {})", properties.getRunInterval(),
+                properties.getMinAge(), properties.getStatuses());
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (task != null) {
+            task.cancel(false);
+            task = null;
+        }
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void archive() {
+        try {
+            int archived = orderArchiveService.archive();
+            if (archived > 0) {
+                log.info("Archived {} orders", archived);
+            }
+        } catch (RuntimeException e) {
+            log.error("Order archiving failed: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.tecsup.app.micro.order.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tecsup.app.micro.order.config.OrderExportProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Exportación de órdenes con sus items en NDJSON (una orden por línea) o CSV (un item por línea).
+ * Una sola consulta une orders y order_items en la base de datos, ordenada por orden, y se recorre
+ * con un cursor de {@code order.export.fetch-size} filas: cada fila se escribe en cuanto llega,
+ * así la memoria no depende de cuántas órdenes se exporten.
+ * <p>
+ * Usa un pool de conexiones propio, de solo lectura y con {@code order.export.max-concurrent}
+ * conexiones: una exportación larga nunca ocupa conexiones del pool de las altas y lecturas.
+ */
+@Slf4j
+@Service
+public class OrderExportService implements DisposableBean {
+
+    public enum Format {
+        NDJSON, CSV;
+
+        public static Format of(String value) {
+            try {
+                return valueOf(value.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("format must be ndjson or csv");
+            }
+        }
+    }
+
+    private static final String EXPORT_SQL = """
+            SELECT o.id, o.order_number, o.user_id, o.status, o.total_amount, o.created_at,
+                   i.product_id, i.product_name, i.quantity, i.unit_price, i.subtotal
+            FROM orders o
+            LEFT JOIN order_items i ON i.order_id = o.id
+            WHERE o.created_at >= ? AND o.created_at < ?
+            ORDER BY o.created_at, o.id, i.id""";
+
+    private final ObjectMapper objectMapper;
+    private final HikariDataSource exportDataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final Semaphore permits;
+
+    public OrderExportService(DataSourceProperties dataSourceProperties, OrderExportProperties properties,
+                              ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        // Las conexiones se abren con la primera exportación y se cierran al quedar ociosas
+        this.exportDataSource = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        exportDataSource.setPoolName("order-export");
+        exportDataSource.setMaximumPoolSize(properties.getMaxConcurrent());
+        exportDataSource.setMinimumIdle(0);
+        exportDataSource.setReadOnly(true);
+        // Sin autocommit, PostgreSQL respeta el fetch size con un cursor en lugar de traer todo el resultado
+        exportDataSource.setAutoCommit(false);
+        this.jdbcTemplate = new JdbcTemplate(exportDataSource);
+        jdbcTemplate.setFetchSize(properties.getFetchSize());
+        this.permits = new Semaphore(properties.getMaxConcurrent());
+    }
+
+    /**
+     * Escribe en {@code out} las órdenes creadas en [from, to) y devuelve cuántas exportó.
+     *
+     * @throws IllegalArgumentException si el rango no es válido
+     * @throws IllegalStateException    si ya hay {@code order.export.max-concurrent} exportaciones en curso
+     */
+    public int export(LocalDateTime from, LocalDateTime to, Format format, OutputStream out) throws IOException {
+        if (from == null || to == null || !from.isBefore(to)) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        if (!permits.tryAcquire()) {
+            throw new IllegalStateException("Too many exports running, try again later");
+        }
+
+        long start = System.nanoTime();
+        try {
+            RowWriter writer = format == Format.CSV ? new CsvWriter(out) : new NdjsonWriter(out);
+            int[] orders = {0};
+            long[] current = {Long.MIN_VALUE};
+            jdbcTemplate.query(EXPORT_SQL, rs -> {
+                try {
+                    long orderId = rs.getLong(1);
+                    if (orderId != current[0]) {
+                        if (orders[0] > 0) {
+                            writer.endOrder();
+                        }
+                        writer.startOrder(rs);
+                        current[0] = orderId;
+                        orders[0]++;
+                    }
+                    if (rs.getObject(7) != null) {
+                        writer.item(rs);
+                    }
+                } catch (IOException e) {
+                    // El cliente cortó la descarga: se aborta la consulta
+                    throw new UncheckedIOException(e);
+                }
+            }, Timestamp.valueOf(from), Timestamp.valueOf(to));
+            if (orders[0] > 0) {
+                writer.endOrder();
+            }
+            writer.finish();
+            log.info("Exported {} orders as {} in {}ms", orders[0], format, (System.nanoTime() - start) / 1_000_000);
+            return orders[0];
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            permits.release();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        exportDataSource.close();
+    }
+
+    private interface RowWriter {
+
+        void startOrder(ResultSet rs) throws SQLException, IOException;
+
+        void item(ResultSet rs) throws SQLException, IOException;
+
+        void endOrder() throws IOException;
+
+        void finish() throws IOException;
+    }
+
+    private final class NdjsonWriter implements RowWriter {
+
+        private final JsonGenerator json;
+
+        NdjsonWriter(OutputStream out) throws IOException {
+            this.json = objectMapper.getFactory().createGenerator(out);
+        }
+
+        @Override
+        public void startOrder(ResultSet rs) throws SQLException, IOException {
+            json.writeStartObject();
+            json.writeNumberField("id", rs.getLong(1));
+            json.writeStringField("orderNumber", rs.getString(2));
+            json.writeNumberField("userId", rs.getLong(3));
+            json.writeStringField("status", rs.getString(4));
+            json.writeNumberField("totalAmount", rs.getBigDecimal(5));
+            json.writeStringField("createdAt", rs.getTimestamp(6).toLocalDateTime().toString());
+            json.writeArrayFieldStart("items");
+        }
+
+        @Override
+        public void item(ResultSet rs) throws SQLException, IOException {
+            json.writeStartObject();
+            json.writeNumberField("productId", rs.getLong(7));
+            json.writeStringField("productName", rs.getString(8));
+            json.writeNumberField("quantity", rs.getInt(9));
+            json.writeNumberField("unitPrice", rs.getBigDecimal(10));
+            json.writeNumberField("subtotal", rs.getBigDecimal(11));
+            json.writeEndObject();
+        }
+
+        @Override
+        public void endOrder() throws IOException {
+            json.writeEndArray();
+            json.writeEndObject();
+            json.writeRaw('\n');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            json.flush();
+        }
+    }
+
+    // Una línea por item con los datos de su orden; las órdenes sin items salen en una línea sin columnas de item
+    private static final class CsvWriter implements RowWriter {
+
+        private static final String HEADER = "order_id,order_number,user_id,status,total_amount,created_at,"
+                + "product_id,product_name,quantity,unit_price,subtotal\n";
+
+        private final Writer out;
+        private String orderColumns;
+        private boolean hasItems;
+
+        CsvWriter(OutputStream out) throws IOException {
+            this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+            this.out.write(HEADER);
+        }
+
+        @Override
+        public void startOrder(ResultSet rs) throws SQLException {
+            orderColumns = rs.getLong(1) + "," + escape(rs.getString(2)) + "," + rs.getLong(3) + ","
+                    + escape(rs.getString(4)) + "," + plain(rs.getBigDecimal(5)) + ","
+                    + rs.getTimestamp(6).toLocalDateTime();
+            hasItems = false;
+        }
+
+        @Override
+        public void item(ResultSet rs) throws SQLException, IOException {
+            out.write(orderColumns);
+            out.write(',');
+            out.write(rs.getLong(7) + "," + escape(rs.getString(8)) + "," + rs.getInt(9) + ","
+                    + plain(rs.getBigDecimal(10)) + "," + plain(rs.getBigDecimal(11)));
+            out.write('\n');
+            hasItems = true;
+        }
+
+        @Override
+        public void endOrder() throws IOException {
+            if (!hasItems) {
+                out.write(orderColumns);
+                out.write(",,,,,\n");
+            }
+        }
+
+        @Override
+        public void finish() throws IOException {
+            out.flush();
+        }
+
+        private static String plain(BigDecimal value) {
+            return value == null ? "" : value.toPlainString();
+        }
+
+        // RFC 4180: entre comillas si contiene separador, comillas o saltos de línea
+        private static String escape(String value) {
+            if (value == null) {
+                return "";
+            }
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package com.tecsup.app.micro.order.service;
 
+import com.tecsup.app.micro.order.cache.OrderResponseCache;
 import com.tecsup.app.micro.order.client.Product;
 import com.tecsup.app.micro.order.client.ProductClient;
+import com.tecsup.app.micro.order.config.OrderReadProperties;
 import com.tecsup.app.micro.order.dto.CreateOrderRequest;
 import com.tecsup.app.micro.order.dto.OrderItem;
 import com.tecsup.app.micro.order.dto.ProductResponse;
@@ -13,8 +15,11 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -22,69 +27,130 @@ import java.util.stream.Collectors;
 @AllArgsConstructor
 public class OrderItemService {
 
+    private static final int MAX_PRODUCT_NAME_LENGTH = 255;
+    private static final int MAX_PRODUCT_CATEGORY_LENGTH = 100;
+
     private final OrderItemRepository orderItemRepository;
     private final ProductClient productClient;
+    private final OrderResponseCache orderResponseCache;
+    private final OrderReadProperties readProperties;
 
     @Transactional
     public List<OrderItem> createOrderItems(Long orderId, List<CreateOrderRequest.CreateOrderItemRequest> itemsRequest) {
-        return itemsRequest.stream()
+        // Validar todos los productos en una sola consulta
+        Map<Long, Product> products = productClient.getProductsForPricing(itemsRequest.stream()
+                .map(CreateOrderRequest.CreateOrderItemRequest::getProductId)
+                .toList());
+
+        List<OrderItemEntity> itemEntities = itemsRequest.stream()
                 .map(itemRequest -> {
-                    // Validar producto y obtener información
-                    Product product = productClient.getProductById(itemRequest.getProductId());
-                    log.info("Creating order item for product: {}", product);
+                    Product product = products.get(itemRequest.getProductId());
+                    log.debug("Creating order item for product: {}", product);
 
-                    // Calcular subtotal
+                    // Calcular subtotal en céntimos; el BigDecimal se crea solo para la entidad
                     BigDecimal unitPrice = product.getPrice();
-                    BigDecimal subtotal = unitPrice.multiply(BigDecimal.valueOf(itemRequest.getQuantity()))
-                            .setScale(2, RoundingMode.HALF_UP);
+                    BigDecimal subtotal = PricingEngine.toAmount(
+                            PricingEngine.subtotalCents(unitPrice, itemRequest.getQuantity()));
 
                     // Crear entity
                     OrderItemEntity itemEntity = new OrderItemEntity();
                     itemEntity.setOrderId(orderId);
                     itemEntity.setProductId(itemRequest.getProductId());
+                    snapshot(itemEntity, product);
                     itemEntity.setQuantity(itemRequest.getQuantity());
                     itemEntity.setUnitPrice(unitPrice);
                     itemEntity.setSubtotal(subtotal);
+                    return itemEntity;
+                })
+                .collect(Collectors.toList());
 
-                    itemEntity = orderItemRepository.save(itemEntity);
-                    log.info("Order item saved with id: {}", itemEntity.getId());
+        // Cambian los items de la orden: su respuesta cacheada deja de valer
+        orderResponseCache.invalidate(orderId);
 
-                    // Construir DTO
-                    OrderItem orderItem = new OrderItem();
-                    orderItem.setId(itemEntity.getId());
-                    ProductResponse productResponse = new ProductResponse(product.getId(), product.getName(), product.getPrice());
-                    orderItem.setProduct(productResponse);
-                    orderItem.setQuantity(itemEntity.getQuantity());
-                    orderItem.setUnitPrice(itemEntity.getUnitPrice());
-                    orderItem.setSubtotal(itemEntity.getSubtotal());
+        // Un solo saveAll para que los INSERT viajen en lote
+        itemEntities = orderItemRepository.saveAll(itemEntities);
+        log.info("{} order items saved for order id: {}", itemEntities.size(), orderId);
 
-                    return orderItem;
-                })
+        return itemEntities.stream()
+                .map(itemEntity -> toOrderItem(itemEntity, products))
                 .collect(Collectors.toList());
     }
 
     public List<OrderItem> getOrderItemsByOrderId(Long orderId) {
-        log.info("Getting order items for order id: {}", orderId);
+        log.debug("Getting order items for order id: {}", orderId);
 
-        List<OrderItemEntity> itemEntities = orderItemRepository.findAll()
-                .stream()
-                .filter(item -> item.getOrderId().equals(orderId))
-                .collect(Collectors.toList());
+        List<OrderItemEntity> itemEntities = orderItemRepository.findByOrderIdOrderByIdAsc(orderId);
+        Map<Long, Product> products = resolveProducts(itemEntities);
 
         return itemEntities.stream()
-                .map(entity -> {
-                    Product product = productClient.getProductById(entity.getProductId());
-                    ProductResponse productResponse = new ProductResponse(product.getId(), product.getName(), product.getPrice());
-
-                    OrderItem orderItem = new OrderItem();
-                    orderItem.setId(entity.getId());
-                    orderItem.setProduct(productResponse);
-                    orderItem.setQuantity(entity.getQuantity());
-                    orderItem.setUnitPrice(entity.getUnitPrice());
-                    orderItem.setSubtotal(entity.getSubtotal());
-
-                    return orderItem;
-                })
+                .map(entity -> toOrderItem(entity, products))
                 .collect(Collectors.toList());
     }
+
+    public Map<Long, List<OrderItem>> getOrderItemsByOrderIds(Collection<Long> orderIds) {
+        log.debug("Getting order items for {} orders", orderIds.size());
+
+        if (orderIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        // Una sola consulta IN para todas las órdenes
+        List<OrderItemEntity> itemEntities = orderItemRepository.findByOrderIdInOrderByOrderIdAscIdAsc(orderIds);
+        Map<Long, Product> products = resolveProducts(itemEntities);
+
+        return itemEntities.stream()
+                .collect(Collectors.groupingBy(OrderItemEntity::getOrderId,
+                        LinkedHashMap::new,
+                        Collectors.mapping(entity -> toOrderItem(entity, products), Collectors.toList())));
+    }
+
+    // Solo se consultan los productos de items sin copia, salvo que se pida la búsqueda en vivo
+    private Map<Long, Product> resolveProducts(List<OrderItemEntity> itemEntities) {
+        List<Long> productIds = productIdsToResolve(itemEntities, readProperties.isLiveProductLookup());
+        return productIds.isEmpty() ? Map.of() : productClient.getProductsByIds(productIds);
+    }
+
+    // Guarda en el item el producto tal como es al comprarlo. El valor genérico del fallback no se
+    // copia: el item queda sin copia y se vuelve a consultar al leerlo
+    static void snapshot(OrderItemEntity itemEntity, Product product) {
+        if (ProductClient.isFallback(product)) {
+            itemEntity.setProductName(null);
+            itemEntity.setProductCategory(null);
+            return;
+        }
+        itemEntity.setProductName(truncate(product.getName(), MAX_PRODUCT_NAME_LENGTH));
+        itemEntity.setProductCategory(truncate(product.getCategory(), MAX_PRODUCT_CATEGORY_LENGTH));
+    }
+
+    static List<Long> productIdsToResolve(List<OrderItemEntity> itemEntities, boolean liveProductLookup) {
+        return itemEntities.stream()
+                .filter(entity -> liveProductLookup || entity.getProductName() == null)
+                .map(OrderItemEntity::getProductId)
+                .distinct()
+                .toList();
+    }
+
+    // Con el producto consultado se usan sus datos actuales; si no, la copia del item y el precio pagado
+    static ProductResponse toProductResponse(OrderItemEntity entity, Map<Long, Product> products) {
+        Product product = products.get(entity.getProductId());
+        if (product != null) {
+            return new ProductResponse(product.getId(), product.getName(), product.getPrice());
+        }
+        return new ProductResponse(entity.getProductId(), entity.getProductName(), entity.getUnitPrice());
+    }
+
+    private static String truncate(String value, int maxLength) {
+        return value == null || value.length() <= maxLength ? value : value.substring(0, maxLength);
+    }
+
+    private OrderItem toOrderItem(OrderItemEntity entity, Map<Long, Product> products) {
+        OrderItem orderItem = new OrderItem();
+        orderItem.setId(entity.getId());
+        orderItem.setProduct(toProductResponse(entity, products));
+        orderItem.setQuantity(entity.getQuantity());
+        orderItem.setUnitPrice(entity.getUnitPrice());
+        orderItem.setSubtotal(entity.getSubtotal());
+
+        return orderItem;
+    }
 }
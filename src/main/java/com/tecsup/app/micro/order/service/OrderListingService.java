@@ -0,0 +1,110 @@
+package com.tecsup.app.micro.order.service;
+
+import com.tecsup.app.micro.order.dto.OrderItem;
+import com.tecsup.app.micro.order.dto.OrderPage;
+import com.tecsup.app.micro.order.dto.OrderSummary;
+import com.tecsup.app.micro.order.entity.OrderStatus;
+import com.tecsup.app.micro.order.repository.OrderRepository;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+@Slf4j
+@Service
+@AllArgsConstructor
+public class OrderListingService {
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    // Punto de partida de la primera página: más reciente que cualquier orden real
+    private static final LocalDateTime FIRST_PAGE_CREATED_AT = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
+    private final OrderRepository orderRepository;
+    private final OrderItemService orderItemService;
+
+    public OrderPage listByUser(Long userId, String cursor, int size, boolean expandItems) {
+        log.debug("Listing orders for user: {}", userId);
+        Cursor position = Cursor.decode(cursor);
+        int pageSize = pageSize(size);
+        List<OrderSummary> rows = orderRepository.findSummariesByUserId(userId,
+                position.createdAt(), position.id(), Limit.of(pageSize + 1));
+        return toPage(rows, pageSize, expandItems);
+    }
+
+    public OrderPage listByStatus(String status, String cursor, int size, boolean expandItems) {
+        log.debug("Listing orders with status: {}", status);
+        // Un estado desconocido es un error del cliente, no una página vacía
+        String filter = OrderStatus.of(status).name();
+        Cursor position = Cursor.decode(cursor);
+        int pageSize = pageSize(size);
+        List<OrderSummary> rows = orderRepository.findSummariesByStatus(filter,
+                position.createdAt(), position.id(), Limit.of(pageSize + 1));
+        return toPage(rows, pageSize, expandItems);
+    }
+
+    public OrderPage listByCreatedAt(LocalDateTime from, LocalDateTime to, String cursor, int size, boolean expandItems) {
+        log.debug("Listing orders created between {} and {}", from, to);
+        Cursor position = Cursor.decode(cursor);
+        int pageSize = pageSize(size);
+        List<OrderSummary> rows = orderRepository.findSummariesByCreatedAtRange(from, to,
+                position.createdAt(), position.id(), Limit.of(pageSize + 1));
+        return toPage(rows, pageSize, expandItems);
+    }
+
+    // Se pide una fila de más para saber si existe una página siguiente
+    private OrderPage toPage(List<OrderSummary> rows, int pageSize, boolean expandItems) {
+        boolean hasNext = rows.size() > pageSize;
+        List<OrderSummary> orders = hasNext ? rows.subList(0, pageSize) : rows;
+
+        if (expandItems && !orders.isEmpty()) {
+            // Items y productos de toda la página en una sola consulta cada uno
+            Map<Long, List<OrderItem>> items = orderItemService.getOrderItemsByOrderIds(
+                    orders.stream().map(OrderSummary::getId).toList());
+            orders.forEach(order -> order.setItems(items.getOrDefault(order.getId(), List.of())));
+        }
+
+        String nextCursor = null;
+        if (hasNext) {
+            OrderSummary last = orders.get(orders.size() - 1);
+            nextCursor = new Cursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        return new OrderPage(orders, nextCursor);
+    }
+
+    private int pageSize(int size) {
+        if (size <= 0) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.min(size, MAX_PAGE_SIZE);
+    }
+
+    private record Cursor(LocalDateTime createdAt, Long id) {
+
+        static Cursor decode(String value) {
+            if (value == null || value.isBlank()) {
+                return new Cursor(FIRST_PAGE_CREATED_AT, Long.MAX_VALUE);
+            }
+            try {
+                String decoded = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+                int separator = decoded.lastIndexOf('|');
+                return new Cursor(LocalDateTime.parse(decoded.substring(0, separator)),
+                        Long.valueOf(decoded.substring(separator + 1)));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + value, e);
+            }
+        }
+
+        String encode() {
+            String raw = createdAt + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
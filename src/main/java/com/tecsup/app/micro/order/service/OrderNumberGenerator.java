@@ -0,0 +1,135 @@
+package com.tecsup.app.micro.order.service;
+
+import com.tecsup.app.micro.order.config.OrderNumberProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Genera el número de orden en memoria antes del INSERT, sin coordinarse con la base de datos ni
+ * con las otras réplicas. El número es {@code ORD-<año>-<13 caracteres>}, con un valor de 63 bits
+ * en base 32 de Crockford:
+ * <pre>
+ * 41 bits: milisegundos desde 2025-01-01T00:00Z (hasta 2094)
+ * 10 bits: nodo (order.number.node-id)
+ * 12 bits: secuencia dentro del milisegundo
+ * </pre>
+ * Es único mientras cada réplica tenga su propio nodo, y el orden alfabético sigue al de creación
+ * (al milisegundo entre réplicas). El año sale del mismo instante, en la zona del sistema.
+ */
+@Slf4j
+@Component
+public class OrderNumberGenerator {
+
+    private static final long EPOCH_MILLIS = Instant.parse("2025-01-01T00:00:00Z").toEpochMilli();
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final int TIME_BITS = 63 - NODE_BITS - SEQUENCE_BITS;
+    static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+
+    // Alfabeto de Crockford: sin I, L, O ni U, y en orden ASCII para que ordenar el texto ordene el valor
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int ENCODED_LENGTH = 13;
+
+    private final int nodeId;
+    private final LongSupplier clock;
+    private final ZoneId zone;
+
+    // (milisegundo << SEQUENCE_BITS) | secuencia del último número; solo avanza
+    private final AtomicLong state = new AtomicLong();
+    private volatile YearPrefix yearPrefix = new YearPrefix(0, 0, "");
+
+    @Autowired
+    public OrderNumberGenerator(OrderNumberProperties properties) {
+        this(resolveNodeId(properties), System::currentTimeMillis, ZoneId.systemDefault());
+    }
+
+    OrderNumberGenerator(int nodeId, LongSupplier clock, ZoneId zone) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("order.number.node-id must be between 0 and " + MAX_NODE_ID);
+        }
+        this.nodeId = nodeId;
+        this.clock = clock;
+        this.zone = zone;
+    }
+
+    public String next() {
+        long value = nextValue();
+        long millis = EPOCH_MILLIS + (value >>> (NODE_BITS + SEQUENCE_BITS));
+        String prefix = prefixFor(millis);
+
+        char[] chars = new char[prefix.length() + ENCODED_LENGTH];
+        prefix.getChars(0, prefix.length(), chars, 0);
+        for (int i = chars.length - 1; i >= prefix.length(); i--) {
+            chars[i] = ALPHABET[(int) (value & 31)];
+            value >>>= 5;
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Reserva el siguiente (milisegundo, secuencia) con compare-and-set, sin bloquear. Si el reloj
+     * retrocede se sigue en el último milisegundo usado, y al agotar sus 4096 secuencias se pasa
+     * al siguiente aunque el reloj no haya llegado: los números nunca se repiten ni retroceden.
+     */
+    long nextValue() {
+        long now = clock.getAsLong() - EPOCH_MILLIS;
+        while (true) {
+            long last = state.get();
+            long next = now > (last >>> SEQUENCE_BITS) ? now << SEQUENCE_BITS : last + 1;
+            if (state.compareAndSet(last, next)) {
+                long millis = next >>> SEQUENCE_BITS;
+                if (millis >>> TIME_BITS != 0) {
+                    throw new IllegalStateException("Clock is past the order number range: "
+                            + Instant.ofEpochMilli(EPOCH_MILLIS + millis));
+                }
+                long sequence = next & ((1L << SEQUENCE_BITS) - 1);
+                return millis << (NODE_BITS + SEQUENCE_BITS) | (long) nodeId << SEQUENCE_BITS | sequence;
+            }
+        }
+    }
+
+    // "ORD-<año>-" calculado una vez por año
+    private String prefixFor(long millis) {
+        YearPrefix current = yearPrefix;
+        if (millis >= current.start() && millis < current.end()) {
+            return current.prefix();
+        }
+        ZonedDateTime yearStart = Instant.ofEpochMilli(millis).atZone(zone)
+                .withDayOfYear(1).toLocalDate().atStartOfDay(zone);
+        YearPrefix computed = new YearPrefix(yearStart.toInstant().toEpochMilli(),
+                yearStart.plusYears(1).toInstant().toEpochMilli(), "ORD-" + yearStart.getYear() + "-");
+        yearPrefix = computed;
+        return computed.prefix();
+    }
+
+    private static int resolveNodeId(OrderNumberProperties properties) {
+        if (properties.getNodeId() != null) {
+            log.info("Order numbers use node id {}", properties.getNodeId());
+            return properties.getNodeId();
+        }
+        String host = System.getenv("HOSTNAME");
+        if (host == null || host.isBlank()) {
+            try {
+                host = InetAddress.getLocalHost().getHostName();
+            } catch (UnknownHostException e) {
+                host = "localhost";
+            }
+        }
+        int nodeId = Math.floorMod(host.hashCode(), MAX_NODE_ID + 1);
+        log.warn("order.number.node-id is not set, using {} derived from host {}; set a distinct node id per replica "
+                + "to rule out duplicate order numbers", nodeId, host);
+        return nodeId;
+    }
+
+    private record YearPrefix(long start, long end, String prefix) {
+    }
+}
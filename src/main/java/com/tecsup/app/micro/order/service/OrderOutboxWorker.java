@@ -0,0 +1,66 @@
+package com.tecsup.app.micro.order.service;
+
+import com.tecsup.app.micro.order.config.OrderProcessingProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Workers que vacían la outbox de órdenes aceptadas. Solo arrancan con
+ * {@code order.processing.mode=asynchronous}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OrderOutboxWorker implements SmartLifecycle {
+
+    private final AsyncOrderService asyncOrderService;
+    private final OrderProcessingProperties properties;
+    private final ThreadPoolTaskScheduler orderOutboxScheduler;
+
+    private final List<ScheduledFuture<?>> tasks = new ArrayList<>();
+    private volatile boolean running;
+
+    @Override
+    public boolean isAutoStartup() {
+        return asyncOrderService.isEnabled();
+    }
+
+    @Override
+    public synchronized void start() {
+        for (int i = 0; i < properties.getWorkers(); i++) {
+            tasks.add(orderOutboxScheduler.scheduleWithFixedDelay(this::drain, properties.getPollInterval()));
+        }
+        running = true;
+        log.info("Started {} order outbox workers", properties.getWorkers());
+    }
+
+    @Override
+    public synchronized void stop() {
+        tasks.forEach(task -> task.cancel(false));
+        tasks.clear();
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Lotes seguidos mientras lleguen completos; con la cola vacía espera al siguiente intervalo
+    private void drain() {
+        try {
+            while (asyncOrderService.processPending() == properties.getBatchSize()) {
+                log.debug("Outbox batch full, claiming the next one");
+            }
+        } catch (RuntimeException e) {
+            log.error("Order outbox worker failed: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -1,9 +1,12 @@
 package com.tecsup.app.micro.order.service;
 
+import com.tecsup.app.micro.order.archive.OrderArchive;
+import com.tecsup.app.micro.order.cache.OrderResponseCache;
 import com.tecsup.app.micro.order.client.Product;
 import com.tecsup.app.micro.order.client.ProductClient;
 import com.tecsup.app.micro.order.client.User;
 import com.tecsup.app.micro.order.client.UserClient;
+import com.tecsup.app.micro.order.config.OrderReadProperties;
 import com.tecsup.app.micro.order.dto.*;
 import com.tecsup.app.micro.order.dto.ProductResponse;
 import com.tecsup.app.micro.order.dto.UserResponse;
@@ -11,17 +14,26 @@ import com.tecsup.app.micro.order.entity.OrderEntity;
 import com.tecsup.app.micro.order.entity.OrderItemEntity;
 import com.tecsup.app.micro.order.repository.OrderItemRepository;
 import com.tecsup.app.micro.order.repository.OrderRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -33,60 +45,76 @@ public class OrderService {
     private final OrderItemRepository orderItemRepository;
     private final UserClient userClient;
     private final ProductClient productClient;
+    private final OrderNumberGenerator orderNumberGenerator;
+    private final OrderReadProperties readProperties;
+    private final Executor orderReadExecutor;
+    private final MeterRegistry meterRegistry;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final OrderResponseCache orderResponseCache;
+    private final IdempotencyService idempotencyService;
+    private final StockReservationService stockReservationService;
+    private final OrderStatsService orderStatsService;
+    private final OrderArchive orderArchive;
 
-    @Transactional
     public Order createOrder(CreateOrderRequest request) {
-        log.info("Creating order for user: {}", request.getUserId());
-
-        // Validar usuario
-        User user = userClient.getUserById(request.getUserId());
-        log.info("User validated: {}", user);
-
-        // Calcular totales de los items
-        BigDecimal totalAmount = BigDecimal.ZERO;
-        List<OrderItem> orderItems = new ArrayList<>();
+        return createOrder(request, null);
+    }
 
-        // Crear la orden
-        OrderEntity orderEntity = new OrderEntity();
-        orderEntity.setUserId(request.getUserId());
-        orderEntity.setStatus("PENDING");
-        orderEntity.setTotalAmount(totalAmount);
-        orderEntity.setCreatedAt(LocalDateTime.now());
-        orderEntity.setUpdatedAt(LocalDateTime.now());
-        orderEntity.setOrderNumber("TEMP-" + UUID.randomUUID().toString()); // Valor temporal único
+    // Con idempotencyKey, un reintento de la misma petición devuelve la orden ya creada
+    public Order createOrder(CreateOrderRequest request, String idempotencyKey) {
+        return idempotencyService.submit(idempotencyKey, () -> create(request, idempotencyKey),
+                Order::getId, this::getOrderById);
+    }
 
-        // Guardar para obtener el ID
-        orderEntity = orderRepository.save(orderEntity);
-        log.info("Order saved with id: {}", orderEntity.getId());
+    // Las consultas remotas van fuera de la transacción: la conexión solo se toma para escribir
+    private Order create(CreateOrderRequest request, String idempotencyKey) {
+        long start = System.nanoTime();
+        log.debug("Creating order for user: {}", request.getUserId());
 
-        // Generar y actualizar con el número basado en el ID
-        orderEntity.setOrderNumber(generateOrderNumber(orderEntity.getId()));
-        orderEntity = orderRepository.save(orderEntity);
+        // Validar usuario
+        User user = userClient.getUserById(request.getUserId());
+        log.debug("User validated: {}", user);
 
-        // Crear los items de la orden
-        for (CreateOrderRequest.CreateOrderItemRequest itemRequest : request.getItems()) {
-            // Validar producto y obtener información
-            Product product = productClient.getProductById(itemRequest.getProductId());
-            log.info("Product validated: {}", product);
+        // Validar todos los productos de la orden en una sola consulta
+        Map<Long, Product> products = productClient.getProductsForPricing(request.getItems().stream()
+                .map(CreateOrderRequest.CreateOrderItemRequest::getProductId)
+                .toList());
 
-            // Calcular subtotal
-            BigDecimal unitPrice = product.getPrice();
-            BigDecimal subtotal = unitPrice.multiply(BigDecimal.valueOf(itemRequest.getQuantity()))
-                    .setScale(2, RoundingMode.HALF_UP);
-            totalAmount = totalAmount.add(subtotal);
+        // Calcular items y total antes de insertar, para que la orden se escriba una sola vez
+        List<OrderItemEntity> itemEntities = priceItems(request.getItems(), products);
+        OrderEntity orderEntity = newOrderEntity(request.getUserId(), itemEntities);
+        orderEntity.setIdempotencyKey(idempotencyKey);
 
-            // Crear entity
-            OrderItemEntity itemEntity = new OrderItemEntity();
-            itemEntity.setOrderId(orderEntity.getId());
-            itemEntity.setProductId(itemRequest.getProductId());
-            itemEntity.setQuantity(itemRequest.getQuantity());
-            itemEntity.setUnitPrice(unitPrice);
-            itemEntity.setSubtotal(subtotal);
+        // Las unidades quedan apartadas antes de escribir y se sueltan si la orden no llega a guardarse
+        StockReservationService.Reservation reservation = stockReservationService.reserve(request.getItems(), products);
+        try {
+            // El id sale del pool de la secuencia; los INSERT se envían juntos al hacer flush
+            transactionTemplate.executeWithoutResult(status -> {
+                orderRepository.save(orderEntity);
+                for (OrderItemEntity itemEntity : itemEntities) {
+                    itemEntity.setOrderId(orderEntity.getId());
+                }
+                orderItemRepository.saveAll(itemEntities);
+                orderStatsService.recordCreated(orderEntity, itemEntities);
+                reservation.record(orderEntity.getId());
+            });
+        } catch (RuntimeException e) {
+            reservation.release();
+            throw e;
+        }
+        reservation.commit();
+        recordOrderCreated(orderEntity, itemEntities.size());
+        // Una sola línea INFO por orden; el detalle de usuario y productos queda en DEBUG
+        log.info("Order created: id={} number={} user={} items={} total={} elapsedMs={}", orderEntity.getId(),
+                orderEntity.getOrderNumber(), request.getUserId(), itemEntities.size(), orderEntity.getTotalAmount(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
 
-            itemEntity = orderItemRepository.save(itemEntity);
-            log.info("Order item saved with id: {}", itemEntity.getId());
+        // Construir DTOs de los items
+        List<OrderItem> orderItems = new ArrayList<>();
+        for (OrderItemEntity itemEntity : itemEntities) {
+            Product product = products.get(itemEntity.getProductId());
 
-            // Construir DTO
             OrderItem orderItem = new OrderItem();
             orderItem.setId(itemEntity.getId());
             ProductResponse productResponse = new ProductResponse(product.getId(), product.getName(), product.getPrice());
@@ -98,10 +126,6 @@ public class OrderService {
             orderItems.add(orderItem);
         }
 
-        // Actualizar total de la orden
-        orderEntity.setTotalAmount(totalAmount);
-        orderRepository.save(orderEntity);
-
         // Construir la respuesta
         Order order = new Order();
         order.setId(orderEntity.getId());
@@ -114,20 +138,198 @@ public class OrderService {
         order.setCreatedAt(orderEntity.getCreatedAt());
         order.setUpdatedAt(orderEntity.getUpdatedAt());
 
+        // La orden suele leerse justo después de crearse: se guarda ya armada
+        if (isComplete(user, products)) {
+            orderResponseCache.put(order);
+        }
         return order;
     }
 
+    // Distribución de tamaño e importe de las órdenes creadas, también las de la carga masiva
+    void recordOrderCreated(OrderEntity orderEntity, int itemCount) {
+        DistributionSummary.builder("order.created.items")
+                .description("Number of items per created order")
+                .baseUnit("items")
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(itemCount);
+        DistributionSummary.builder("order.created.amount")
+                .description("Total amount per created order")
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(orderEntity.getTotalAmount().doubleValue());
+    }
+
+    // Calcula precio y subtotal de cada item sin tocar la base de datos
+    List<OrderItemEntity> priceItems(List<CreateOrderRequest.CreateOrderItemRequest> itemsRequest,
+                                     Map<Long, Product> products) {
+        List<OrderItemEntity> itemEntities = new ArrayList<>();
+        for (CreateOrderRequest.CreateOrderItemRequest itemRequest : itemsRequest) {
+            Product product = products.get(itemRequest.getProductId());
+            log.debug("Product validated: {}", product);
+
+            // Calcular subtotal en céntimos; el BigDecimal se crea solo para la entidad
+            BigDecimal unitPrice = product.getPrice();
+            BigDecimal subtotal = PricingEngine.toAmount(
+                    PricingEngine.subtotalCents(unitPrice, itemRequest.getQuantity()));
+
+            // Crear entity
+            OrderItemEntity itemEntity = new OrderItemEntity();
+            itemEntity.setProductId(itemRequest.getProductId());
+            OrderItemService.snapshot(itemEntity, product);
+            itemEntity.setQuantity(itemRequest.getQuantity());
+            itemEntity.setUnitPrice(unitPrice);
+            itemEntity.setSubtotal(subtotal);
+            itemEntities.add(itemEntity);
+        }
+        return itemEntities;
+    }
+
+    // Crea la orden con su número y total definitivos, lista para un único INSERT
+    OrderEntity newOrderEntity(Long userId, List<OrderItemEntity> itemEntities) {
+        OrderEntity orderEntity = new OrderEntity();
+        orderEntity.setOrderNumber(orderNumberGenerator.next());
+        orderEntity.setUserId(userId);
+        orderEntity.setStatus("PENDING");
+        orderEntity.setTotalAmount(totalOf(itemEntities));
+        orderEntity.setCreatedAt(LocalDateTime.now());
+        orderEntity.setUpdatedAt(LocalDateTime.now());
+        return orderEntity;
+    }
+
+    // Suma en céntimos: un solo BigDecimal por orden en lugar de uno por item
+    BigDecimal totalOf(List<OrderItemEntity> itemEntities) {
+        long totalCents = 0;
+        for (OrderItemEntity itemEntity : itemEntities) {
+            totalCents = Math.addExact(totalCents, PricingEngine.toCents(itemEntity.getSubtotal()));
+        }
+        return PricingEngine.toAmount(totalCents);
+    }
+
+    // Comprueba la forma de la petición antes de consultar servicios remotos; null si es válida
+    String validate(CreateOrderRequest request) {
+        if (request == null || request.getUserId() == null) {
+            return "userId is required";
+        }
+        if (request.getItems() == null || request.getItems().isEmpty()) {
+            return "At least one item is required";
+        }
+        for (CreateOrderRequest.CreateOrderItemRequest item : request.getItems()) {
+            if (item == null || item.getProductId() == null) {
+                return "productId is required";
+            }
+            if (item.getQuantity() == null || item.getQuantity() <= 0) {
+                return "quantity must be greater than 0 for product " + item.getProductId();
+            }
+        }
+        return null;
+    }
+
+    // Motivo para no guardar la orden si su usuario o algún producto es el fallback de su cliente
+    // (no existe o no se pudo leer); null si son datos reales
+    String unavailable(CreateOrderRequest request, Set<Long> unavailableUsers, Map<Long, Product> products) {
+        if (unavailableUsers.contains(request.getUserId())) {
+            return "User Service unavailable for user " + request.getUserId();
+        }
+        for (CreateOrderRequest.CreateOrderItemRequest item : request.getItems()) {
+            if (ProductClient.isFallback(products.get(item.getProductId()))) {
+                return "Product Service unavailable for product " + item.getProductId();
+            }
+        }
+        return null;
+    }
+
     public Order getOrderById(Long id) {
-        log.info("Getting order by id: {}", id);
+        log.debug("Getting order by id: {}", id);
+        Optional<Order> cached = orderResponseCache.get(id);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+
+        Assembled assembled = assemble(id);
+        if (assembled.complete()) {
+            orderResponseCache.put(assembled.order());
+        }
+        return assembled.order();
+    }
+
+    /**
+     * Igual que {@link #getOrderById(Long)} pero devuelve el JSON ya codificado. Con la caché caliente
+     * no se arma ni se serializa nada: se devuelven los mismos bytes guardados.
+     */
+    public byte[] getOrderJson(Long id) {
+        return readOrderJson(id).json();
+    }
+
+    // Como getOrderJson, indicando además si el usuario y los productos son datos reales y no fallbacks
+    public OrderJson readOrderJson(Long id) {
+        byte[] cached = orderResponseCache.getJson(id);
+        if (cached != null) {
+            return new OrderJson(cached, true);
+        }
 
-        OrderEntity orderEntity = orderRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Order not found with id: " + id));
+        Assembled assembled = assemble(id);
+        byte[] json = orderResponseCache.encode(assembled.order());
+        if (assembled.complete()) {
+            orderResponseCache.putJson(id, json);
+        }
+        return new OrderJson(json, assembled.complete());
+    }
 
-        // Obtener usuario
-        User user = userClient.getUserById(orderEntity.getUserId());
+    /**
+     * ETag débil de la orden a partir de su id y su {@code @Version}: cambia con cada modificación y
+     * se obtiene con una consulta por clave primaria, sin armar la respuesta. Null si la orden no
+     * está en la base (ya archivada o inexistente).
+     */
+    public String getOrderETag(Long id) {
+        return readOnlyTransactionTemplate.execute(status -> orderRepository.findVersionById(id))
+                .map(version -> "W/\"" + id + "-" + version + "\"")
+                .orElse(null);
+    }
+
+    private Assembled assemble(Long id) {
+        // Orden e items en una sola transacción de solo lectura (la réplica, si hay); la conexión
+        // se devuelve antes de consultar los otros servicios
+        Loaded loaded = readOnlyTransactionTemplate.execute(status -> orderRepository.findById(id)
+                .map(entity -> {
+                    log.debug("Getting order items for order id: {}", id);
+                    return new Loaded(entity, orderItemRepository.findByOrderIdOrderByIdAsc(id));
+                })
+                .orElse(null));
+        if (loaded == null) {
+            // Las órdenes antiguas ya archivadas se leen del segmento mapeado en memoria
+            loaded = orderArchive.find(id)
+                    .map(archived -> new Loaded(archived.order(), archived.items()))
+                    .orElseThrow(() -> new RuntimeException("Order not found with id: " + id));
+        }
+        OrderEntity orderEntity = loaded.order();
+        List<OrderItemEntity> itemEntities = loaded.items();
+        // Los items con copia del producto se arman sin consultar el product service
+        List<Long> productIds = OrderItemService.productIdsToResolve(itemEntities, readProperties.isLiveProductLookup());
+
+        // Obtener usuario y productos
+        User user;
+        Map<Long, Product> products;
+        if (readProperties.getExecutionMode() == OrderReadProperties.ExecutionMode.PARALLEL) {
+            long deadline = System.nanoTime() + readProperties.getDeadline().toNanos();
+            CompletableFuture<User> userFuture = CompletableFuture.supplyAsync(
+                    () -> userClient.getUserById(orderEntity.getUserId()), orderReadExecutor);
+            CompletableFuture<Map<Long, Product>> productsFuture = productIds.isEmpty()
+                    ? CompletableFuture.completedFuture(Map.of())
+                    : CompletableFuture.supplyAsync(() -> productClient.getProductsByIds(productIds), orderReadExecutor);
+
+            user = await(userFuture, deadline,
+                    cause -> userClient.getUserByIdFallback(orderEntity.getUserId(), cause));
+            products = await(productsFuture, deadline, cause -> productIds.stream()
+                    .collect(Collectors.toMap(Function.identity(),
+                            productId -> productClient.getProductByIdFallback(productId, cause))));
+        } else {
+            user = userClient.getUserById(orderEntity.getUserId());
+            products = productIds.isEmpty() ? Map.of() : productClient.getProductsByIds(productIds);
+        }
 
         // Obtener items
-        List<OrderItem> items = getOrderItemsByOrderId(id);
+        List<OrderItem> items = toOrderItems(itemEntities, products);
 
         // Construir la respuesta
         Order order = new Order();
@@ -141,29 +343,35 @@ public class OrderService {
         order.setCreatedAt(orderEntity.getCreatedAt());
         order.setUpdatedAt(orderEntity.getUpdatedAt());
 
-        return order;
+        return new Assembled(order, isComplete(user, products));
     }
 
-    private String generateOrderNumber(Long orderId) {
-        return "ORD-2025-" + String.format("%04d", orderId);
+    // Una respuesta armada con valores de fallback no se cachea: se rearma en la siguiente lectura
+    private boolean isComplete(User user, Map<Long, Product> products) {
+        return !UserClient.isFallback(user) && products.values().stream().noneMatch(ProductClient::isFallback);
     }
 
-    private List<OrderItem> getOrderItemsByOrderId(Long orderId) {
-        log.info("Getting order items for order id: {}", orderId);
-
-        List<OrderItemEntity> itemEntities = orderItemRepository.findAll()
-                .stream()
-                .filter(item -> item.getOrderId().equals(orderId))
-                .toList();
+    // Espera el resultado hasta el deadline de la petición; si no llega, responde con el fallback del cliente
+    private <T> T await(CompletableFuture<T> future, long deadline, Function<Throwable, T> fallback) {
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            return fallback.apply(new TimeoutException("Order read deadline of " + readProperties.getDeadline() + " exceeded"));
+        } catch (ExecutionException e) {
+            return fallback.apply(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return fallback.apply(e);
+        }
+    }
 
+    private List<OrderItem> toOrderItems(List<OrderItemEntity> itemEntities, Map<Long, Product> products) {
         return itemEntities.stream()
                 .map(entity -> {
-                    Product product = productClient.getProductById(entity.getProductId());
-                    ProductResponse productResponse = new ProductResponse(product.getId(), product.getName(), product.getPrice());
-
                     OrderItem orderItem = new OrderItem();
                     orderItem.setId(entity.getId());
-                    orderItem.setProduct(productResponse);
+                    orderItem.setProduct(OrderItemService.toProductResponse(entity, products));
                     orderItem.setQuantity(entity.getQuantity());
                     orderItem.setUnitPrice(entity.getUnitPrice());
                     orderItem.setSubtotal(entity.getSubtotal());
@@ -172,4 +380,13 @@ public class OrderService {
                 })
                 .collect(Collectors.toList());
     }
+
+    private record Loaded(OrderEntity order, List<OrderItemEntity> items) {
+    }
+
+    public record OrderJson(byte[] json, boolean complete) {
+    }
+
+    private record Assembled(Order order, boolean complete) {
+    }
 }
@@ -0,0 +1,275 @@
+package com.tecsup.app.micro.order.service;
+
+import com.tecsup.app.micro.order.config.OrderStatsProperties;
+import com.tecsup.app.micro.order.dto.OrderStats;
+import com.tecsup.app.micro.order.dto.OrderSummary;
+import com.tecsup.app.micro.order.entity.OrderDailyStatsEntity;
+import com.tecsup.app.micro.order.entity.OrderEntity;
+import com.tecsup.app.micro.order.entity.OrderItemEntity;
+import com.tecsup.app.micro.order.entity.OrderStatsDeltaEntity;
+import com.tecsup.app.micro.order.entity.ProductSalesStatsEntity;
+import com.tecsup.app.micro.order.repository.OrderDailyStatsRepository;
+import com.tecsup.app.micro.order.repository.OrderItemRepository;
+import com.tecsup.app.micro.order.repository.OrderStatsDeltaRepository;
+import com.tecsup.app.micro.order.repository.ProductSalesStatsRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Estadísticas de órdenes mantenidas de forma incremental. Cada alta o cambio de estado inserta
+ * sus deltas en {@code order_stats_delta} dentro de la misma transacción que la orden: son solo
+ * INSERT, así las órdenes del mismo día no compiten por la misma fila de agregados, y si la
+ * réplica cae los deltas ya están guardados. {@link #flush()} los suma en lote sobre
+ * {@code order_daily_stats} y {@code product_sales_stats} y los borra en la misma transacción,
+ * de modo que cada delta se aplica una sola vez. Consultar las estadísticas lee esas tablas: el
+ * costo depende de los días pedidos, no del número de órdenes.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OrderStatsService {
+
+    private static final String CANCELLED = "CANCELLED";
+
+    private final OrderDailyStatsRepository dailyStatsRepository;
+    private final ProductSalesStatsRepository productSalesStatsRepository;
+    private final OrderStatsDeltaRepository deltaRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final OrderStatsProperties properties;
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    // Llamar dentro de la transacción que guarda la orden y sus items
+    public void recordCreated(OrderEntity order, List<OrderItemEntity> items) {
+        if (!isEnabled()) {
+            return;
+        }
+        save(List.of(daily(order.getCreatedAt(), order.getStatus(), 1, order.getTotalAmount(),
+                items.isEmpty() ? null : order.getId())));
+    }
+
+    // Items guardados después de la orden (confirmación asíncrona), en la misma transacción
+    public void recordItems(List<OrderItemEntity> items) {
+        if (!isEnabled() || items.isEmpty()) {
+            return;
+        }
+        save(items.stream()
+                .map(OrderItemEntity::getOrderId)
+                .distinct()
+                .map(orderId -> new OrderStatsDeltaEntity(null, null, null, 0L, BigDecimal.ZERO, orderId))
+                .toList());
+    }
+
+    // Mueve la orden de (día, estado anterior) a (día, estado actual); también corrige el importe si cambió
+    public void recordStatusChange(OrderEntity order, String previousStatus, BigDecimal previousTotal) {
+        if (!isEnabled()) {
+            return;
+        }
+        save(List.of(daily(order.getCreatedAt(), previousStatus, -1, previousTotal.negate(), null),
+                daily(order.getCreatedAt(), order.getStatus(), 1, order.getTotalAmount(), null)));
+    }
+
+    // Igual que recordStatusChange, para transiciones en bloque que no cargan la entidad: una fila por día y estado
+    public void recordStatusChanges(List<OrderSummary> changed, String status) {
+        if (!isEnabled() || changed.isEmpty()) {
+            return;
+        }
+        Map<DailyKey, Delta> deltas = new HashMap<>();
+        for (OrderSummary order : changed) {
+            LocalDate day = order.getCreatedAt().toLocalDate();
+            deltas.merge(new DailyKey(day, order.getStatus()), new Delta(-1, 0, order.getTotalAmount().negate(), null),
+                    Delta::plus);
+            deltas.merge(new DailyKey(day, status), new Delta(1, 0, order.getTotalAmount(), null), Delta::plus);
+        }
+        save(deltas.entrySet().stream()
+                .map(entry -> new OrderStatsDeltaEntity(null, entry.getKey().date(), entry.getKey().status(),
+                        entry.getValue().count(), entry.getValue().amount(), null))
+                .toList());
+    }
+
+    /**
+     * Aplica los deltas guardados en lotes de {@code flush-batch-size}, cada lote en una
+     * transacción que también los borra. Si un lote falla, sus deltas siguen en la tabla y se
+     * reintentan en la siguiente llamada. Devuelve cuántas filas de agregados se actualizaron.
+     */
+    public synchronized int flush() {
+        int updated = 0;
+        while (true) {
+            Applied applied;
+            try {
+                applied = transactionTemplate.execute(status -> applyBatch());
+            } catch (RuntimeException e) {
+                log.warn("Flushing order stats failed, retrying later: {}", e.getMessage());
+                return updated;
+            }
+            updated += applied.rows();
+            if (applied.deltas() < properties.getFlushBatchSize()) {
+                return updated;
+            }
+        }
+    }
+
+    /**
+     * Totales de [from, to] y los {@code top} productos más vendidos. Sin fechas, los últimos 30 días.
+     *
+     * @throws IllegalArgumentException si el rango o {@code top} están fuera de los límites
+     */
+    public OrderStats getStats(LocalDate from, LocalDate to, int top) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(29);
+        if (start.isAfter(end)) {
+            throw new IllegalArgumentException("from must not be after to");
+        }
+        if (ChronoUnit.DAYS.between(start, end) >= properties.getMaxRangeDays()) {
+            throw new IllegalArgumentException("Date range must not exceed " + properties.getMaxRangeDays() + " days");
+        }
+        if (top < 0 || top > properties.getMaxTopProducts()) {
+            throw new IllegalArgumentException("top must be between 0 and " + properties.getMaxTopProducts());
+        }
+
+        Map<String, OrderStats.StatusTotals> byStatus = new TreeMap<>();
+        Map<LocalDate, OrderStats.DailyTotals> daily = new LinkedHashMap<>();
+        for (OrderDailyStatsEntity row : dailyStatsRepository.findByOrderDateRange(start, end)) {
+            byStatus.merge(row.getStatus(), new OrderStats.StatusTotals(row.getOrderCount(), row.getTotalAmount()),
+                    (a, b) -> new OrderStats.StatusTotals(a.getOrders() + b.getOrders(), a.getAmount().add(b.getAmount())));
+            OrderStats.DailyTotals day = daily.computeIfAbsent(row.getOrderDate(),
+                    date -> new OrderStats.DailyTotals(date, 0, BigDecimal.ZERO));
+            day.setOrders(day.getOrders() + row.getOrderCount());
+            if (!CANCELLED.equals(row.getStatus())) {
+                day.setRevenue(day.getRevenue().add(row.getTotalAmount()));
+            }
+        }
+
+        List<OrderStats.ProductSales> topProducts = new ArrayList<>();
+        if (top > 0) {
+            for (ProductSalesStatsEntity row : productSalesStatsRepository.findTopSellers(Limit.of(top))) {
+                topProducts.add(new OrderStats.ProductSales(row.getProductId(), row.getProductName(),
+                        row.getUnitsSold(), row.getRevenue(), row.getOrderCount()));
+            }
+        }
+        return new OrderStats(start, end, byStatus, new ArrayList<>(daily.values()), topProducts);
+    }
+
+    private static OrderStatsDeltaEntity daily(LocalDateTime createdAt, String status, long orders,
+                                               BigDecimal amount, Long itemsOrderId) {
+        return new OrderStatsDeltaEntity(null, createdAt.toLocalDate(), status, orders, amount, itemsOrderId);
+    }
+
+    private void save(List<OrderStatsDeltaEntity> deltas) {
+        // Fuera de una transacción el delta no quedaría atado a la orden
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Order stats must be recorded in the transaction that changes the order");
+        }
+        deltaRepository.saveAll(deltas);
+    }
+
+    private Applied applyBatch() {
+        List<OrderStatsDeltaEntity> batch = deltaRepository.findBatch(Limit.of(properties.getFlushBatchSize()));
+        if (batch.isEmpty()) {
+            return new Applied(0, 0);
+        }
+        Map<DailyKey, Delta> daily = new HashMap<>();
+        Set<Long> itemOrders = new LinkedHashSet<>();
+        for (OrderStatsDeltaEntity delta : batch) {
+            if (delta.getStatus() != null) {
+                daily.merge(new DailyKey(delta.getOrderDate(), delta.getStatus()),
+                        new Delta(delta.getOrderCount(), 0, delta.getTotalAmount(), null), Delta::plus);
+            }
+            if (delta.getItemsOrderId() != null) {
+                itemOrders.add(delta.getItemsOrderId());
+            }
+        }
+        Map<Long, Delta> products = productDeltas(itemOrders);
+
+        daily.forEach(this::applyDaily);
+        products.forEach(this::applyProduct);
+        deltaRepository.deleteAllByIdInBatch(batch.stream().map(OrderStatsDeltaEntity::getId).toList());
+        log.debug("Flushed {} order stats deltas: {} daily rows, {} products", batch.size(), daily.size(), products.size());
+        return new Applied(batch.size(), daily.size() + products.size());
+    }
+
+    // Los items se leen de order_items: cada producto cuenta una vez por orden aunque aparezca en varios items
+    private Map<Long, Delta> productDeltas(Set<Long> orderIds) {
+        Map<Long, Delta> products = new HashMap<>();
+        if (orderIds.isEmpty()) {
+            return products;
+        }
+        Map<Long, List<OrderItemEntity>> byOrder = orderItemRepository.findByOrderIdInOrderByOrderIdAscIdAsc(orderIds)
+                .stream()
+                .collect(Collectors.groupingBy(OrderItemEntity::getOrderId));
+        for (List<OrderItemEntity> items : byOrder.values()) {
+            Map<Long, Delta> perProduct = new HashMap<>();
+            for (OrderItemEntity item : items) {
+                perProduct.merge(item.getProductId(),
+                        new Delta(0, item.getQuantity(), item.getSubtotal(), item.getProductName()), Delta::plus);
+            }
+            perProduct.forEach((productId, delta) -> products.merge(productId, delta.withCount(1), Delta::plus));
+        }
+        return products;
+    }
+
+    // Primero UPDATE sumando; si la fila no existe todavía, INSERT
+    private void applyDaily(DailyKey key, Delta delta) {
+        if (delta.isEmpty()) {
+            return;
+        }
+        if (dailyStatsRepository.increment(key.date(), key.status(), delta.count(), delta.amount()) == 0) {
+            dailyStatsRepository.save(new OrderDailyStatsEntity(key.date(), key.status(), delta.count(), delta.amount()));
+        }
+    }
+
+    private void applyProduct(Long productId, Delta delta) {
+        if (delta.isEmpty()) {
+            return;
+        }
+        if (productSalesStatsRepository.increment(productId, delta.name(), delta.units(), delta.amount(), delta.count()) == 0) {
+            productSalesStatsRepository.save(new ProductSalesStatsEntity(productId, delta.name(), delta.units(),
+                    delta.amount(), delta.count()));
+        }
+    }
+
+    private record DailyKey(LocalDate date, String status) {
+    }
+
+    // deltas: filas de order_stats_delta aplicadas; rows: filas de agregados actualizadas
+    private record Applied(int deltas, int rows) {
+    }
+
+    // count: órdenes; units y name solo se usan en los deltas por producto
+    private record Delta(long count, long units, BigDecimal amount, String name) {
+
+        Delta plus(Delta other) {
+            return new Delta(count + other.count, units + other.units, amount.add(other.amount),
+                    other.name != null ? other.name : name);
+        }
+
+        Delta withCount(long newCount) {
+            return new Delta(newCount, units, amount, name);
+        }
+
+        boolean isEmpty() {
+            return count == 0 && units == 0 && amount.signum() == 0 && name == null;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.tecsup.app.micro.order.service;
+
+import com.tecsup.app.micro.order.config.OrderStatsProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Aplica periódicamente los deltas de {@link OrderStatsService} a las tablas de agregados. Solo
+ * arranca con {@code order.stats.enabled=true}; al parar hace una última aplicación. Los deltas
+ * ya están guardados en la base de datos: si la réplica cae, los aplica la siguiente que haga flush.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OrderStatsWorker implements SmartLifecycle {
+
+    private final OrderStatsService orderStatsService;
+    private final OrderStatsProperties properties;
+    private final ThreadPoolTaskScheduler orderStatsScheduler;
+
+    private ScheduledFuture<?> task;
+    private volatile boolean running;
+
+    @Override
+    public boolean isAutoStartup() {
+        return properties.isEnabled();
+    }
+
+    @Override
+    public synchronized void start() {
+        task = orderStatsScheduler.scheduleWithFixedDelay(this::flush, properties.getFlushInterval());
+        running = true;
+        log.info("Started order stats flush every {}", properties.getFlushInterval());
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (task != null) {
+            task.cancel(false);
+            task = null;
+        }
+        flush();
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void flush() {
+        try {
+            orderStatsService.flush();
+        } catch (RuntimeException e) {
+            log.error("Order stats flush failed: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.tecsup.app.micro.order.service;
+
+import com.tecsup.app.micro.order.cache.OrderResponseCache;
+import com.tecsup.app.micro.order.dto.BulkStatusChangeResult;
+import com.tecsup.app.micro.order.dto.OrderStatusResponse;
+import com.tecsup.app.micro.order.dto.OrderSummary;
+import com.tecsup.app.micro.order.entity.OrderEntity;
+import com.tecsup.app.micro.order.entity.OrderStatus;
+import com.tecsup.app.micro.order.repository.OrderOutboxRepository;
+import com.tecsup.app.micro.order.repository.OrderRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Cambios de estado validados con {@link OrderStatus}. Una orden se cambia con bloqueo optimista
+ * ({@code @Version}); en bloque, cada tramo de ids es una lectura y un solo UPDATE condicionado
+ * al estado de origen, sin cargar ni guardar entidades una a una.
+ * <p>
+ * Una orden cuya fila de outbox sigue PENDING no se puede confirmar a mano: aún no tiene items,
+ * total ni stock reservado, y el worker de {@link AsyncOrderService} la daría por procesada.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OrderStatusService {
+
+    private final OrderRepository orderRepository;
+    private final OrderOutboxRepository outboxRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final OrderResponseCache orderResponseCache;
+    private final OrderStatsService orderStatsService;
+
+    @Value("${order.status.bulk-chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${order.status.bulk-max-size:10000}")
+    private int maxBulkSize;
+
+    /**
+     * Cambia el estado de una orden. Con {@code expectedVersion}, solo si nadie la modificó desde
+     * que el cliente la leyó.
+     *
+     * @throws IllegalArgumentException si el estado no existe
+     * @throws IllegalStateException    si la transición no está permitida, la orden cambió entre medio o
+     *                                  se quiere confirmar una orden que el worker asíncrono no procesó
+     */
+    public OrderStatusResponse changeStatus(Long id, String status, Long expectedVersion) {
+        OrderStatus target = OrderStatus.of(status);
+        String[] previous = new String[1];
+        OrderEntity order;
+        try {
+            order = transactionTemplate.execute(tx -> {
+                OrderEntity entity = orderRepository.findById(id)
+                        .orElseThrow(() -> new RuntimeException("Order not found with id: " + id));
+                if (expectedVersion != null && !expectedVersion.equals(entity.getVersion())) {
+                    throw new IllegalStateException("Order " + id + " was modified (version " + entity.getVersion()
+                            + ", expected " + expectedVersion + ")");
+                }
+                OrderStatus current = OrderStatus.of(entity.getStatus());
+                if (!current.canTransitionTo(target)) {
+                    throw new IllegalStateException("Order " + id + " cannot change from " + current + " to " + target);
+                }
+                if (target == OrderStatus.CONFIRMED && !outboxRepository.findPendingOrderIds(List.of(id)).isEmpty()) {
+                    throw new IllegalStateException("Order " + id + " is still being processed");
+                }
+                previous[0] = entity.getStatus();
+                entity.setStatus(target.name());
+                orderStatsService.recordStatusChange(entity, previous[0], entity.getTotalAmount());
+                return entity;
+            });
+        } catch (ObjectOptimisticLockingFailureException e) {
+            throw new IllegalStateException("Order " + id + " was modified concurrently, read it again and retry", e);
+        }
+
+        orderResponseCache.invalidate(id);
+        log.info("Order {} changed from {} to {}", id, previous[0], target);
+        return new OrderStatusResponse(order.getId(), order.getOrderNumber(), order.getStatus(),
+                order.getTotalAmount(), order.getUpdatedAt(), order.getVersion(), null);
+    }
+
+    /**
+     * Lleva todas las órdenes posibles a {@code status}. Las que no existen o están en un estado
+     * desde el que no se puede llegar quedan en {@link BulkStatusChangeResult#getSkipped()}.
+     *
+     * @throws IllegalArgumentException si el estado no existe o la lista está vacía o supera el máximo
+     */
+    public BulkStatusChangeResult changeStatus(List<Long> ids, String status) {
+        OrderStatus target = OrderStatus.of(status);
+        if (ids == null || ids.isEmpty()) {
+            throw new IllegalArgumentException("orderIds is required");
+        }
+        if (ids.size() > maxBulkSize) {
+            throw new IllegalArgumentException("At most " + maxBulkSize + " orderIds per request");
+        }
+
+        List<Long> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        List<BulkStatusChangeResult.Skipped> skipped = new ArrayList<>();
+        int updated = 0;
+        for (int start = 0; start < distinct.size(); start += chunkSize) {
+            List<Long> chunk = distinct.subList(start, Math.min(start + chunkSize, distinct.size()));
+            List<OrderSummary> changed = transactionTemplate.execute(tx -> changeChunk(chunk, target, skipped));
+            // Ya confirmado el tramo
+            changed.forEach(order -> orderResponseCache.invalidate(order.getId()));
+            updated += changed.size();
+        }
+        log.info("Bulk status change to {}: {} updated, {} skipped", target, updated, skipped.size());
+        return new BulkStatusChangeResult(target.name(), distinct.size(), updated, skipped);
+    }
+
+    // Devuelve las órdenes cambiadas tal como estaban antes del UPDATE
+    private List<OrderSummary> changeChunk(List<Long> ids, OrderStatus target,
+                                           List<BulkStatusChangeResult.Skipped> skipped) {
+        Set<String> from = target.allowedFrom().stream().map(Enum::name).collect(Collectors.toSet());
+        Map<Long, OrderSummary> before = orderRepository.findSummariesByIdIn(ids).stream()
+                .collect(Collectors.toMap(OrderSummary::getId, Function.identity()));
+        Set<Long> processing = target == OrderStatus.CONFIRMED ? outboxRepository.findPendingOrderIds(ids) : Set.of();
+
+        List<Long> eligible = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            OrderSummary order = before.get(id);
+            if (order == null) {
+                skipped.add(new BulkStatusChangeResult.Skipped(id, null, "Order not found"));
+            } else if (!from.contains(order.getStatus())) {
+                skipped.add(new BulkStatusChangeResult.Skipped(id, order.getStatus(),
+                        "Cannot change from " + order.getStatus() + " to " + target));
+            } else if (processing.contains(id)) {
+                skipped.add(new BulkStatusChangeResult.Skipped(id, order.getStatus(), "Still being processed"));
+            } else {
+                eligible.add(id);
+            }
+        }
+        if (eligible.isEmpty()) {
+            return List.of();
+        }
+
+        int updated = orderRepository.updateStatus(eligible, from, target.name(), LocalDateTime.now());
+        List<Long> changed = eligible;
+        if (updated < eligible.size()) {
+            // Otra transacción cambió alguna entre la lectura y el UPDATE: se averigua cuáles
+            Map<Long, OrderSummary> after = orderRepository.findSummariesByIdIn(eligible).stream()
+                    .collect(Collectors.toMap(OrderSummary::getId, Function.identity()));
+            changed = new ArrayList<>(updated);
+            for (Long id : eligible) {
+                OrderSummary now = after.get(id);
+                if (now != null && target.name().equals(now.getStatus())) {
+                    changed.add(id);
+                } else {
+                    skipped.add(new BulkStatusChangeResult.Skipped(id, now == null ? null : now.getStatus(),
+                            "Modified concurrently"));
+                }
+            }
+        }
+        List<OrderSummary> result = changed.stream().map(before::get).toList();
+        orderStatsService.recordStatusChanges(result, target.name());
+        return result;
+    }
+}
@@ -0,0 +1,84 @@
+package com.tecsup.app.micro.order.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Precios de las órdenes en céntimos ({@code long}). Subtotales y totales se calculan sin crear
+ * {@link BigDecimal} intermedios; solo se convierte al guardar en la entidad o armar el DTO.
+ * Los resultados son idénticos, escala incluida, a
+ * {@code unitPrice.multiply(BigDecimal.valueOf(quantity)).setScale(2, RoundingMode.HALF_UP)} y a
+ * sumar esos subtotales con {@link BigDecimal#add}.
+ */
+public final class PricingEngine {
+
+    // Decimales de los importes guardados: NUMERIC(10, 2)
+    public static final int SCALE = 2;
+
+    // 18 dígitos caben siempre en un long
+    private static final int MAX_DIGITS = 18;
+
+    private static final long[] POWERS_OF_TEN = new long[MAX_DIGITS + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private PricingEngine() {
+    }
+
+    /**
+     * {@code unitPrice × quantity} en céntimos, redondeado HALF_UP a dos decimales.
+     *
+     * @throws ArithmeticException si el subtotal no cabe en un long
+     */
+    public static long subtotalCents(BigDecimal unitPrice, int quantity) {
+        int scale = unitPrice.scale();
+        if (scale < 0 || scale > MAX_DIGITS || unitPrice.precision() > MAX_DIGITS) {
+            return bigDecimalSubtotalCents(unitPrice, quantity);
+        }
+        // Valor sin escala; el BigDecimal temporal no sale del método
+        long unscaled = unitPrice.movePointRight(scale).longValueExact();
+        if (scale <= SCALE) {
+            // Con dos decimales o menos el subtotal es exacto: si no cabe, el resultado tampoco
+            return Math.multiplyExact(Math.multiplyExact(unscaled, quantity), POWERS_OF_TEN[SCALE - scale]);
+        }
+        long product = unscaled * quantity;
+        if (Math.multiplyHigh(unscaled, quantity) != product >> 63) {
+            // El producto intermedio no cabe aunque el subtotal redondeado quizá sí
+            return bigDecimalSubtotalCents(unitPrice, quantity);
+        }
+        long divisor = POWERS_OF_TEN[scale - SCALE];
+        long cents = product / divisor;
+        long remainder = Math.abs(product % divisor);
+        // HALF_UP: desde la mitad se redondea alejándose de cero
+        if (remainder >= divisor - remainder) {
+            cents += Long.signum(product);
+        }
+        return cents;
+    }
+
+    // Fuera del rango de un long: el mismo cálculo de siempre con BigDecimal
+    private static long bigDecimalSubtotalCents(BigDecimal unitPrice, int quantity) {
+        return unitPrice.multiply(BigDecimal.valueOf(quantity))
+                .setScale(SCALE, RoundingMode.HALF_UP)
+                .unscaledValue()
+                .longValueExact();
+    }
+
+    /**
+     * Importe exacto en céntimos.
+     *
+     * @throws ArithmeticException si tiene más de dos decimales distintos de cero o no cabe en un long
+     */
+    public static long toCents(BigDecimal amount) {
+        return amount.movePointRight(SCALE).longValueExact();
+    }
+
+    public static BigDecimal toAmount(long cents) {
+        return BigDecimal.valueOf(cents, SCALE);
+    }
+}
@@ -0,0 +1,63 @@
+package com.tecsup.app.micro.order.service;
+
+import com.tecsup.app.micro.order.config.OrderStockProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Envía periódicamente al product service las reservas de stock de las órdenes guardadas. Solo
+ * arranca con {@code order.stock.enabled=true}; al parar hace un último envío. Puede correr en
+ * todas las réplicas: cada una toma filas distintas de {@code order_stock_adjustment}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StockConfirmationWorker implements SmartLifecycle {
+
+    private final StockReservationService stockReservationService;
+    private final OrderStockProperties properties;
+    private final ThreadPoolTaskScheduler stockConfirmationScheduler;
+
+    private ScheduledFuture<?> task;
+    private volatile boolean running;
+
+    @Override
+    public boolean isAutoStartup() {
+        return properties.isEnabled();
+    }
+
+    @Override
+    public synchronized void start() {
+        task = stockConfirmationScheduler.scheduleWithFixedDelay(this::confirm, properties.getConfirmInterval());
+        running = true;
+        log.info("Started stock confirmation every {}", properties.getConfirmInterval());
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (task != null) {
+            task.cancel(false);
+            task = null;
+        }
+        confirm();
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void confirm() {
+        try {
+            stockReservationService.confirmPending();
+        } catch (RuntimeException e) {
+            log.error("Stock confirmation failed: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,343 @@
+package com.tecsup.app.micro.order.service;
+
+import com.tecsup.app.micro.order.cache.OrderResponseCache;
+import com.tecsup.app.micro.order.client.Product;
+import com.tecsup.app.micro.order.client.ProductClient;
+import com.tecsup.app.micro.order.client.StockAdjustment;
+import com.tecsup.app.micro.order.client.StockLevel;
+import com.tecsup.app.micro.order.config.OrderStockProperties;
+import com.tecsup.app.micro.order.dto.CreateOrderRequest;
+import com.tecsup.app.micro.order.entity.OrderEntity;
+import com.tecsup.app.micro.order.entity.OrderStatus;
+import com.tecsup.app.micro.order.entity.OrderStockAdjustmentEntity;
+import com.tecsup.app.micro.order.repository.OrderRepository;
+import com.tecsup.app.micro.order.repository.OrderStockAdjustmentRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Reserva de stock sin bloqueo global. Cada producto tiene sus propios contadores y una reserva
+ * es un compareAndSet sobre ellos, así que las órdenes de productos distintos nunca se esperan.
+ * <p>
+ * Las unidades de cada orden se guardan en {@code order_stock_adjustment} en la misma transacción
+ * que la orden ({@link Reservation#record(Long)}), y {@link #confirmPending()} las descuenta del
+ * product service en lotes desde cualquier réplica: una réplica que cae antes de enviarlas no las
+ * pierde. El envío es al menos una vez; si la réplica cae entre la respuesta y el borrado de las
+ * filas, se vuelven a descontar.
+ * <p>
+ * Los contadores son de cada réplica, así que entre dos confirmaciones varias réplicas pueden
+ * apartar las mismas unidades. El product service decide: si rechaza un lote, se envía orden por
+ * orden y las órdenes rechazadas se cancelan. Tras cada confirmación el stock local es el que
+ * informa el product service menos las unidades guardadas que aún no recibió; los productos
+ * rechazados o vistos por primera vez se vuelven a consultar en la siguiente.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StockReservationService {
+
+    private final ProductClient productClient;
+    private final OrderStockProperties properties;
+    private final OrderStockAdjustmentRepository adjustmentRepository;
+    private final OrderRepository orderRepository;
+    private final OrderStatsService orderStatsService;
+    private final OrderResponseCache orderResponseCache;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<Long, ProductStock> stocks = new ConcurrentHashMap<>();
+    // Productos cuyo stock hay que volver a consultar en la siguiente confirmación
+    private final Set<Long> refreshIds = ConcurrentHashMap.newKeySet();
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * Reserva las unidades de todos los items o de ninguno. Los productos sin stock informado no se
+     * controlan.
+     *
+     * @throws IllegalStateException si algún producto no tiene unidades suficientes
+     */
+    public Reservation reserve(List<CreateOrderRequest.CreateOrderItemRequest> items, Map<Long, Product> products) {
+        if (!isEnabled()) {
+            return new Reservation(Map.of());
+        }
+
+        Map<Long, Long> quantities = new TreeMap<>();
+        for (CreateOrderRequest.CreateOrderItemRequest item : items) {
+            quantities.merge(item.getProductId(), (long) item.getQuantity(), Long::sum);
+        }
+
+        Map<Long, Long> reserved = new LinkedHashMap<>();
+        for (Map.Entry<Long, Long> entry : quantities.entrySet()) {
+            Product product = products.get(entry.getKey());
+            if (product == null || product.getStock() == null) {
+                continue;
+            }
+            ProductStock stock = stocks.computeIfAbsent(entry.getKey(), id -> {
+                // El stock del cálculo de precios no descuenta lo que otras réplicas guardaron sin enviar
+                refreshIds.add(id);
+                return new ProductStock(product.getStock());
+            });
+            if (!stock.tryReserve(entry.getValue())) {
+                new Reservation(reserved).release();
+                refreshIds.add(entry.getKey());
+                throw new IllegalStateException("Insufficient stock for product " + entry.getKey());
+            }
+            reserved.put(entry.getKey(), entry.getValue());
+        }
+        return new Reservation(reserved);
+    }
+
+    /**
+     * Envía al product service las unidades guardadas, en lotes de {@code order.stock.confirm-batch-size}
+     * filas, y consulta el stock de los productos pendientes de revisar. Lo que falla se reintenta
+     * en la siguiente llamada. Devuelve cuántos productos se descontaron.
+     */
+    public synchronized int confirmPending() {
+        int confirmed = 0;
+        while (true) {
+            Sent sent;
+            try {
+                // Las filas quedan bloqueadas hasta borrarlas, para que otra réplica no las envíe también
+                sent = transactionTemplate.execute(status -> sendBatch());
+            } catch (RuntimeException e) {
+                log.warn("Confirming stock failed, retrying later: {}", e.getMessage());
+                break;
+            }
+            // Ya confirmada la cancelación
+            sent.cancelled().forEach(orderResponseCache::invalidate);
+            confirmed += sent.products();
+            if (!sent.complete() || sent.rows() < properties.getConfirmBatchSize()) {
+                break;
+            }
+        }
+
+        // Consulta sin descuento
+        List<Long> ids = new ArrayList<>(refreshIds);
+        refreshIds.removeAll(ids);
+        for (int start = 0; start < ids.size(); start += properties.getConfirmBatchSize()) {
+            List<Long> chunk = ids.subList(start, Math.min(start + properties.getConfirmBatchSize(), ids.size()));
+            try {
+                update(productClient.confirmReservations(chunk.stream().map(id -> new StockAdjustment(id, 0)).toList()));
+            } catch (RuntimeException e) {
+                log.warn("Reading stock of {} products failed, retrying later: {}", chunk.size(), e.getMessage());
+                refreshIds.addAll(ids.subList(start, ids.size()));
+                break;
+            }
+        }
+        return confirmed;
+    }
+
+    // Unidades disponibles para reservar según los contadores locales; -1 si el producto no se controla
+    public long available(Long productId) {
+        ProductStock stock = stocks.get(productId);
+        return stock == null ? -1 : stock.known.get() - stock.held.get();
+    }
+
+    private Sent sendBatch() {
+        List<OrderStockAdjustmentEntity> batch = adjustmentRepository.findBatch(Limit.of(properties.getConfirmBatchSize()));
+        if (batch.isEmpty()) {
+            return new Sent(0, 0, true, List.of());
+        }
+        try {
+            return new Sent(batch.size(), send(batch), true, List.of());
+        } catch (HttpClientErrorException e) {
+            // Reintentarlo igual no cambia nada: orden por orden se sabe cuáles no tienen stock
+            log.warn("Product Service rejected stock confirmation of {} rows, sending order by order: {}",
+                    batch.size(), e.getMessage());
+        }
+
+        Map<Long, List<OrderStockAdjustmentEntity>> byOrder = batch.stream()
+                .collect(Collectors.groupingBy(OrderStockAdjustmentEntity::getOrderId, LinkedHashMap::new, Collectors.toList()));
+        int products = 0;
+        int rows = 0;
+        List<Long> cancelled = new ArrayList<>();
+        for (Map.Entry<Long, List<OrderStockAdjustmentEntity>> order : byOrder.entrySet()) {
+            try {
+                products += send(order.getValue());
+            } catch (HttpClientErrorException e) {
+                if (cancel(order.getKey(), order.getValue(), e.getMessage())) {
+                    cancelled.add(order.getKey());
+                }
+            } catch (RuntimeException e) {
+                // Lo ya descontado se borra al confirmar la transacción; el resto queda para después
+                log.warn("Confirming stock of order {} failed, retrying later: {}", order.getKey(), e.getMessage());
+                return new Sent(rows, products, false, cancelled);
+            }
+            rows += order.getValue().size();
+        }
+        return new Sent(rows, products, true, cancelled);
+    }
+
+    // Descuenta las filas en el product service, las borra y corrige los contadores con el stock que devuelve
+    private int send(List<OrderStockAdjustmentEntity> rows) {
+        Map<Long, Long> quantities = new TreeMap<>();
+        rows.forEach(row -> quantities.merge(row.getProductId(), row.getQuantity(), Long::sum));
+        List<StockLevel> levels = productClient.confirmReservations(quantities.entrySet().stream()
+                .map(entry -> new StockAdjustment(entry.getKey(), entry.getValue()))
+                .toList());
+        adjustmentRepository.deleteAllByIdInBatch(rows.stream().map(OrderStockAdjustmentEntity::getId).toList());
+        update(levels);
+        log.debug("Confirmed stock of {} products", quantities.size());
+        return quantities.size();
+    }
+
+    // El product service no tiene stock para la orden: se cancela en lugar de dejarla confirmada sin unidades
+    private boolean cancel(Long orderId, List<OrderStockAdjustmentEntity> rows, String reason) {
+        adjustmentRepository.deleteAllByIdInBatch(rows.stream().map(OrderStockAdjustmentEntity::getId).toList());
+        rows.forEach(row -> refreshIds.add(row.getProductId()));
+
+        // Una orden ya enviada o cerrada no se cancela sola
+        OrderEntity order = orderRepository.findById(orderId).orElse(null);
+        OrderStatus current = order == null ? null : OrderStatus.of(order.getStatus());
+        if (current != OrderStatus.PENDING && current != OrderStatus.CONFIRMED) {
+            log.error("Product Service rejected the stock of order {} ({}), reconcile it by hand: {}",
+                    orderId, order == null ? "deleted" : order.getStatus(), reason);
+            return false;
+        }
+        String previous = order.getStatus();
+        order.setStatus(OrderStatus.CANCELLED.name());
+        orderStatsService.recordStatusChange(order, previous, order.getTotalAmount());
+        log.error("Order {} cancelled, Product Service rejected its stock: {}", orderId, reason);
+        return true;
+    }
+
+    /**
+     * Stock local = stock remoto − unidades guardadas que el product service aún no recibió, de
+     * cualquier réplica. Una orden guardada aquí entre la consulta y la escritura puede restarse dos
+     * veces: el valor queda por debajo hasta que su fila se envíe y se vuelva a calcular.
+     */
+    private void update(List<StockLevel> levels) {
+        Map<Long, ProductStock> tracked = new HashMap<>();
+        Map<Long, Long> committedBefore = new HashMap<>();
+        for (StockLevel level : levels) {
+            ProductStock stock = stocks.get(level.getProductId());
+            if (stock != null) {
+                tracked.put(level.getProductId(), stock);
+                committedBefore.put(level.getProductId(), stock.committed.get());
+            }
+        }
+        if (tracked.isEmpty()) {
+            return;
+        }
+        Map<Long, Long> unsent = adjustmentRepository.sumUnsent(tracked.keySet()).stream()
+                .collect(Collectors.toMap(StockLevel::getProductId, StockLevel::getStock));
+
+        for (StockLevel level : levels) {
+            ProductStock stock = tracked.get(level.getProductId());
+            if (stock == null) {
+                continue;
+            }
+            long base = level.getStock() - unsent.getOrDefault(level.getProductId(), 0L);
+            long before = committedBefore.get(level.getProductId());
+            while (true) {
+                long current = stock.known.get();
+                // Lo guardado desde la consulta quizá no esté en unsent: se resta aparte. Si una orden
+                // resta su stock entre la lectura y el compareAndSet, este falla y se recalcula
+                long committed = stock.committed.get();
+                if (stock.known.compareAndSet(current, base - (committed - before))) {
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Unidades reservadas para una orden. {@link #record(Long)} en la transacción que guarda la
+     * orden y, ya confirmada, {@link #commit()}; {@link #release()} si no llegó a guardarse. Solo
+     * cuenta la primera de commit o release.
+     */
+    public final class Reservation {
+
+        private final Map<Long, Long> quantities;
+        private final AtomicBoolean settled = new AtomicBoolean();
+
+        private Reservation(Map<Long, Long> quantities) {
+            this.quantities = quantities;
+        }
+
+        /**
+         * Guarda las unidades pendientes de descontar en el product service junto con la orden.
+         *
+         * @throws IllegalStateException fuera de una transacción
+         */
+        public void record(Long orderId) {
+            if (quantities.isEmpty()) {
+                return;
+            }
+            // Fuera de una transacción las unidades no quedarían atadas a la orden
+            if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+                throw new IllegalStateException("Stock reservations must be recorded in the transaction that saves the order");
+            }
+            adjustmentRepository.saveAll(quantities.entrySet().stream()
+                    .map(entry -> new OrderStockAdjustmentEntity(null, orderId, entry.getKey(), entry.getValue()))
+                    .toList());
+        }
+
+        public void commit() {
+            if (settled.compareAndSet(false, true)) {
+                quantities.forEach((id, quantity) -> stocks.get(id).commit(quantity));
+            }
+        }
+
+        public void release() {
+            if (settled.compareAndSet(false, true)) {
+                quantities.forEach((id, quantity) -> stocks.get(id).held.addAndGet(-quantity));
+            }
+        }
+    }
+
+    private static final class ProductStock {
+
+        // Stock según el product service menos las unidades guardadas que todavía no recibió
+        private final AtomicLong known;
+        // Unidades reservadas aquí de órdenes que todavía no se guardaron
+        private final AtomicLong held = new AtomicLong();
+        // Unidades de órdenes guardadas por esta réplica desde que arrancó; solo crece
+        private final AtomicLong committed = new AtomicLong();
+
+        ProductStock(long known) {
+            this.known = new AtomicLong(known);
+        }
+
+        boolean tryReserve(long quantity) {
+            while (true) {
+                long current = held.get();
+                if (known.get() - current < quantity) {
+                    return false;
+                }
+                if (held.compareAndSet(current, current + quantity)) {
+                    return true;
+                }
+            }
+        }
+
+        // Primero baja el stock y luego se suelta lo retenido: entre ambos pasos lo disponible solo baja
+        void commit(long quantity) {
+            committed.addAndGet(quantity);
+            known.addAndGet(-quantity);
+            held.addAndGet(-quantity);
+        }
+    }
+
+    private record Sent(int rows, int products, boolean complete, List<Long> cancelled) {
+    }
+}
@@ -0,0 +1,15 @@
+-- Cambios de las estadísticas pendientes de sumar a order_daily_stats y product_sales_stats.
+-- Se insertan en la misma transacción que la orden, así una réplica que cae antes de aplicarlos
+-- no los pierde; OrderStatsService.flush() los suma y los borra en una sola transacción.
+CREATE SEQUENCE order_stats_delta_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE order_stats_delta (
+    id BIGINT PRIMARY KEY,
+    -- Delta de order_daily_stats; sin estado, la fila solo suma items
+    order_date DATE,
+    status VARCHAR(20),
+    order_count BIGINT NOT NULL DEFAULT 0,
+    total_amount NUMERIC(14, 2) NOT NULL DEFAULT 0.00,
+    -- Orden cuyos items se suman a product_sales_stats; se leen de order_items al aplicar
+    items_order_id BIGINT
+);
@@ -0,0 +1,13 @@
+-- Unidades de las órdenes guardadas pendientes de descontar en el product service. Se insertan en
+-- la misma transacción que la orden, así una réplica que cae antes de enviarlas no las pierde;
+-- StockReservationService.confirmPending() las envía desde cualquier réplica y las borra.
+CREATE SEQUENCE order_stock_adjustment_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE order_stock_adjustment (
+    id BIGINT PRIMARY KEY,
+    order_id BIGINT NOT NULL,
+    product_id BIGINT NOT NULL,
+    quantity BIGINT NOT NULL
+);
+
+CREATE INDEX idx_order_stock_adjustment_product ON order_stock_adjustment (product_id);
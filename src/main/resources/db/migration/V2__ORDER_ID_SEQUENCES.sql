@@ -0,0 +1,7 @@
+-- Secuencias con incremento 50 para la asignación en bloques (pooled) de Hibernate.
+-- Arrancan por encima de los ids existentes para no chocar con las filas creadas por BIGSERIAL.
+CREATE SEQUENCE orders_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE order_items_seq START WITH 1 INCREMENT BY 50;
+
+SELECT setval('orders_seq', (SELECT COALESCE(MAX(id), 0) FROM orders) + 50);
+SELECT setval('order_items_seq', (SELECT COALESCE(MAX(id), 0) FROM order_items) + 50);
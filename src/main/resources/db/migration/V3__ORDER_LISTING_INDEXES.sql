@@ -0,0 +1,5 @@
+-- Índices compuestos para la paginación por keyset (created_at, id) de los listados.
+-- idx_orders_user_id e idx_orders_status solo filtran; estos además entregan las filas ya ordenadas.
+CREATE INDEX idx_orders_user_id_created_at_id ON orders(user_id, created_at DESC, id DESC);
+CREATE INDEX idx_orders_status_created_at_id ON orders(status, created_at DESC, id DESC);
+CREATE INDEX idx_orders_created_at_id ON orders(created_at DESC, id DESC);
@@ -0,0 +1,24 @@
+-- Bandeja de salida de las órdenes aceptadas en modo asíncrono (order.processing.mode=asynchronous).
+-- Cada fila guarda la petición original hasta que un worker valida, calcula y confirma la orden.
+CREATE SEQUENCE order_outbox_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE order_outbox (
+    id BIGINT PRIMARY KEY,
+    order_id BIGINT NOT NULL,
+    payload TEXT NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    attempts INTEGER NOT NULL DEFAULT 0,
+    last_error VARCHAR(500),
+    available_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    processed_at TIMESTAMP,
+
+    CONSTRAINT fk_outbox_order FOREIGN KEY (order_id)
+        REFERENCES orders(id) ON DELETE CASCADE,
+    CONSTRAINT chk_outbox_status CHECK (status IN ('PENDING', 'DONE', 'FAILED'))
+);
+
+CREATE UNIQUE INDEX idx_order_outbox_order_id ON order_outbox(order_id);
+
+-- Índice parcial: los workers solo recorren las filas pendientes, que son pocas frente al histórico
+CREATE INDEX idx_order_outbox_pending ON order_outbox(available_at, id) WHERE status = 'PENDING';
@@ -0,0 +1,6 @@
+-- Copia del nombre y la categoría del producto en el momento de la compra, para armar los items
+-- sin consultar el product service y mostrar el producto tal como era al comprarlo.
+-- Las filas anteriores quedan en NULL: el producto vive en otra base de datos y no se puede
+-- rellenar aquí; esas filas se siguen resolviendo contra el product service al leerlas.
+ALTER TABLE order_items ADD COLUMN product_name VARCHAR(255);
+ALTER TABLE order_items ADD COLUMN product_category VARCHAR(100);
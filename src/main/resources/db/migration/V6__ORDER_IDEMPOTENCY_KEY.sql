@@ -0,0 +1,5 @@
+-- Clave Idempotency-Key del cliente: un reintento de POST /api/orders devuelve la orden ya creada.
+-- Índice parcial: las órdenes sin clave (carga masiva, clientes antiguos) no ocupan entradas.
+ALTER TABLE orders ADD COLUMN idempotency_key VARCHAR(64);
+
+CREATE UNIQUE INDEX idx_orders_idempotency_key ON orders(idempotency_key) WHERE idempotency_key IS NOT NULL;
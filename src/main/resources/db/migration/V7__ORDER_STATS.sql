@@ -0,0 +1,34 @@
+-- Agregados para GET /api/orders/stats: se mantienen de forma incremental (OrderStatsService)
+-- en lugar de recorrer orders y order_items en cada consulta.
+
+-- Órdenes e importe por día de creación y estado; un cambio de estado mueve la orden de fila
+CREATE TABLE order_daily_stats (
+    order_date DATE NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    order_count BIGINT NOT NULL DEFAULT 0,
+    total_amount NUMERIC(14, 2) NOT NULL DEFAULT 0.00,
+
+    PRIMARY KEY (order_date, status)
+);
+
+-- Unidades, importe y órdenes por producto, con el último nombre visto para mostrarlo sin consultar el product service
+CREATE TABLE product_sales_stats (
+    product_id BIGINT PRIMARY KEY,
+    product_name VARCHAR(255),
+    units_sold BIGINT NOT NULL DEFAULT 0,
+    revenue NUMERIC(14, 2) NOT NULL DEFAULT 0.00,
+    order_count BIGINT NOT NULL DEFAULT 0
+);
+
+CREATE INDEX idx_product_sales_stats_units ON product_sales_stats(units_sold DESC, product_id);
+
+-- Carga inicial con las órdenes ya existentes
+INSERT INTO order_daily_stats (order_date, status, order_count, total_amount)
+SELECT CAST(created_at AS DATE), status, COUNT(*), SUM(total_amount)
+FROM orders
+GROUP BY CAST(created_at AS DATE), status;
+
+INSERT INTO product_sales_stats (product_id, product_name, units_sold, revenue, order_count)
+SELECT product_id, MAX(product_name), SUM(quantity), SUM(subtotal), COUNT(DISTINCT order_id)
+FROM order_items
+GROUP BY product_id;
@@ -0,0 +1,3 @@
+-- Versión para el bloqueo optimista de las transiciones de estado (@Version en OrderEntity).
+-- Cada UPDATE de una orden la incrementa; una transición con una versión vieja se rechaza.
+ALTER TABLE orders ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,9 @@
+-- Bloqueos con arrendamiento para los trabajos periódicos que deben correr en una sola réplica a
+-- la vez (JobLockService). Una réplica toma el bloqueo si locked_until ya pasó, y lo renueva
+-- mientras trabaja; si cae, otra lo toma al vencer el arrendamiento. La fila de cada trabajo se
+-- crea la primera vez que alguien pide su bloqueo.
+CREATE TABLE job_lock (
+    name VARCHAR(50) PRIMARY KEY,
+    locked_until TIMESTAMP NOT NULL,
+    locked_by VARCHAR(255)
+);
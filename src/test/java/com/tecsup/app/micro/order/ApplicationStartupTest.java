@@ -0,0 +1,151 @@
+package com.tecsup.app.micro.order;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Mide el tiempo hasta estar listo (readiness UP) y la memoria residente de order-service
+ * arrancado en un proceso aparte, como lo haría un pod nuevo. Arrancar otra JVM lleva decenas de
+ * segundos, así que no corre con el {@code mvn test} normal, solo si se pide:
+ * <pre>
+ *   mvn test -Dtest=ApplicationStartupTest -Dstartup.measure=true
+ * </pre>
+ * Por defecto usa el classpath de los tests con el perfil test (H2 en memoria), para seguir la
+ * evolución entre commits. Para medir el artefacto de mvn -Pfast-startup package:
+ * <pre>
+ *   -Dstartup.jar=/app/application.jar
+ *   -Dstartup.jvm-args="-XX:SharedArchiveFile=/app/application.jsa -Dspring.aot.enabled=true"
+ *   -Dstartup.args="--spring.datasource.url=jdbc:postgresql://..."
+ * </pre>
+ * Con {@code -Dstartup.max-ready-millis} falla si el arranque supera ese tiempo; si no, solo
+ * registra la medición.
+ */
+@EnabledIfSystemProperty(named = "startup.measure", matches = "true")
+class ApplicationStartupTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ApplicationStartupTest.class);
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(120);
+
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(200)).build();
+
+    @Test
+    void measureTimeToReadyAndResidentMemory() throws Exception {
+        int port = freePort();
+        Path output = Files.createTempFile("order-service-startup", ".log");
+        List<String> command = command(port);
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(output.toFile())
+                .start();
+        try {
+            long readyMillis = awaitReady(process, port, start);
+            assertTrue(readyMillis >= 0, "Not ready after " + TIMEOUT + ":\n" + tail(output));
+            long rssKb = residentKb(process.pid());
+
+            log.info("Startup: ready in {} ms, RSS {} (jvm args: {})", readyMillis,
+                    rssKb < 0 ? "n/a" : (rssKb / 1024) + " MB", System.getProperty("startup.jvm-args", "none"));
+            long maxReadyMillis = Long.getLong("startup.max-ready-millis", Long.MAX_VALUE);
+            assertTrue(readyMillis <= maxReadyMillis,
+                    "Ready in " + readyMillis + " ms, budget " + maxReadyMillis + " ms");
+        } finally {
+            process.destroy();
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+            Files.deleteIfExists(output);
+        }
+    }
+
+    private List<String> command(int port) {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(split(System.getProperty("startup.jvm-args")));
+        // Sin el reinicio de devtools, que arrancaría la aplicación en otro classloader
+        command.add("-Dspring.devtools.restart.enabled=false");
+
+        String jar = System.getProperty("startup.jar");
+        if (jar != null) {
+            command.add("-jar");
+            command.add(jar);
+        } else {
+            // Con surefire es un jar cuyo manifest lista test-classes, classes y las dependencias
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(OrderServiceApplication.class.getName());
+            command.add("--spring.profiles.active=test");
+            command.add("--spring.jpa.show-sql=false");
+        }
+        command.add("--server.port=" + port);
+        command.add("--management.endpoint.health.probes.enabled=true");
+        command.addAll(split(System.getProperty("startup.args")));
+        return command;
+    }
+
+    // Milisegundos desde start hasta que readiness responde 200, o -1 si el proceso termina o se agota el tiempo
+    private long awaitReady(Process process, int port, long start) throws InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/actuator/health/readiness"))
+                .timeout(Duration.ofSeconds(1))
+                .build();
+        long deadline = start + TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline && process.isAlive()) {
+            try {
+                if (http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                }
+            } catch (IOException e) {
+                // Todavía no escucha
+            }
+            Thread.sleep(20);
+        }
+        return -1;
+    }
+
+    // VmRSS de /proc; -1 fuera de Linux
+    private static long residentKb(long pid) throws IOException {
+        Path status = Path.of("/proc", Long.toString(pid), "status");
+        if (!Files.isReadable(status)) {
+            return -1;
+        }
+        return Files.readAllLines(status).stream()
+                .filter(line -> line.startsWith("VmRSS:"))
+                .map(line -> Long.parseLong(line.replaceAll("\\D", "")))
+                .findFirst()
+                .orElse(-1L);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static List<String> split(String args) {
+        return args == null || args.isBlank() ? List.of() : Arrays.asList(args.trim().split("\\s+"));
+    }
+
+    private static String tail(Path output) throws IOException {
+        List<String> lines = Files.readAllLines(output);
+        return String.join("\n", lines.subList(Math.max(0, lines.size() - 40), lines.size()));
+    }
+}
@@ -0,0 +1,140 @@
+package com.tecsup.app.micro.order.archive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tecsup.app.micro.order.entity.OrderEntity;
+import com.tecsup.app.micro.order.entity.OrderItemEntity;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderArchiveTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void findsEveryOrderThroughTheSparseIndexAfterReopening() throws IOException {
+        OrderArchive archive = archive(16);
+        // Ids salteados y desordenados: el segmento los ordena y los huecos no deben encontrarse
+        List<ArchivedOrder> orders = new ArrayList<>();
+        for (long id = 3_000; id > 0; id -= 3) {
+            orders.add(order(id, "DELIVERED", (int) (id % 4) + 1));
+        }
+        archive.append(orders);
+
+        for (OrderArchive reader : List.of(archive, archive(16))) {
+            for (long id = 3; id <= 3_000; id += 3) {
+                ArchivedOrder found = reader.find(id).orElseThrow();
+                assertEquals(id, found.order().getId());
+                assertEquals("ORD-" + id, found.order().getOrderNumber());
+                assertEquals((int) (id % 4) + 1, found.items().size());
+                assertEquals(new BigDecimal("12.50"), found.items().get(0).getUnitPrice());
+            }
+            assertEquals(Optional.empty(), reader.find(0L));
+            assertEquals(Optional.empty(), reader.find(1_501L));
+            assertEquals(Optional.empty(), reader.find(3_001L));
+        }
+
+        // Los bloques comprimidos ocupan bastante menos que el JSON
+        long json = 0;
+        for (ArchivedOrder order : orders) {
+            json += objectMapper.writeValueAsBytes(order).length;
+        }
+        assertTrue(segmentBytes() * 3 < json, segmentBytes() + " bytes for " + json + " bytes of JSON");
+    }
+
+    @Test
+    void newestSegmentWinsAndInterruptedWritesAreDiscarded() throws IOException {
+        OrderArchive archive = archive(64);
+        archive.append(List.of(order(5, "DELIVERED", 1), order(9, "DELIVERED", 1)));
+        archive.append(List.of(order(5, "CANCELLED", 2)));
+        Files.write(directory.resolve("orders-0000000003.seg.tmp"), new byte[]{1, 2, 3});
+
+        OrderArchive reopened = archive(64);
+        assertEquals("CANCELLED", reopened.find(5L).orElseThrow().order().getStatus());
+        assertEquals("DELIVERED", reopened.find(9L).orElseThrow().order().getStatus());
+        // Abrir no borra nada: el .tmp podría ser la escritura en curso de otra réplica
+        assertTrue(Files.exists(directory.resolve("orders-0000000003.seg.tmp")));
+
+        reopened.append(List.of(order(12, "DELIVERED", 1)));
+        assertFalse(Files.exists(directory.resolve("orders-0000000003.seg.tmp")));
+        assertTrue(Files.exists(directory.resolve("orders-0000000003.seg")));
+        assertEquals(12L, reopened.find(12L).orElseThrow().order().getId());
+    }
+
+    @Test
+    void replicasSharingTheDirectorySeeSegmentsWrittenByTheArchiver() {
+        OrderArchive archiver = archive(64);
+        OrderArchive reader = archive(64);
+        archiver.append(List.of(order(1, "DELIVERED", 1)));
+        assertEquals(1L, reader.find(1L).orElseThrow().order().getId());
+
+        // Otra réplica toma el bloqueo: sigue la numeración sin pisar el segmento anterior
+        reader.append(List.of(order(2, "DELIVERED", 1)));
+        assertEquals(2L, archiver.find(2L).orElseThrow().order().getId());
+        assertTrue(Files.exists(directory.resolve("orders-0000000002.seg")));
+        assertEquals(1L, reader.find(1L).orElseThrow().order().getId());
+    }
+
+    @Test
+    void enabledArchiveRequiresADirectory() {
+        OrderArchiveProperties properties = new OrderArchiveProperties();
+        properties.setEnabled(true);
+
+        assertThrows(IllegalStateException.class,
+                () -> new OrderArchive(properties, objectMapper, new SimpleMeterRegistry()));
+    }
+
+    @Test
+    void disabledArchiveNeverTouchesTheDisk() {
+        OrderArchiveProperties properties = new OrderArchiveProperties();
+        properties.setDirectory(directory.resolve("archive").toString());
+        OrderArchive archive = new OrderArchive(properties, objectMapper, new SimpleMeterRegistry());
+
+        assertEquals(Optional.empty(), archive.find(1L));
+        assertThrows(IllegalStateException.class, () -> archive.append(List.of(order(1, "DELIVERED", 1))));
+        assertFalse(Files.exists(directory.resolve("archive")));
+    }
+
+    private OrderArchive archive(int blockSize) {
+        OrderArchiveProperties properties = new OrderArchiveProperties();
+        properties.setEnabled(true);
+        properties.setDirectory(directory.toString());
+        properties.setBlockSize(blockSize);
+        properties.setRefreshInterval(Duration.ZERO);
+        return new OrderArchive(properties, objectMapper, new SimpleMeterRegistry());
+    }
+
+    private long segmentBytes() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.mapToLong(path -> path.toFile().length()).sum();
+        }
+    }
+
+    private ArchivedOrder order(long id, String status, int itemCount) {
+        LocalDateTime createdAt = LocalDateTime.of(2025, 1, 1, 10, 0).plusMinutes(id);
+        OrderEntity order = new OrderEntity(id, "ORD-" + id, 1L, status,
+                new BigDecimal("12.50").multiply(BigDecimal.valueOf(itemCount)), null, createdAt, createdAt, 3L);
+        List<OrderItemEntity> items = new ArrayList<>();
+        for (int i = 0; i < itemCount; i++) {
+            items.add(new OrderItemEntity(id * 10 + i, id, 100L + i, "Product " + i, "Category", 1,
+                    new BigDecimal("12.50"), new BigDecimal("12.50")));
+        }
+        return new ArchivedOrder(order, items);
+    }
+}
@@ -0,0 +1,219 @@
+package com.tecsup.app.micro.order.client;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.retry.RetryConfig;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.github.resilience4j.timelimiter.TimeLimiterConfig;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DownstreamResilienceTest {
+
+    private static final String NAME = "productService";
+
+    private HttpServer server;
+    private String url;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+    private DownstreamHttpClient httpClient;
+
+    // Fallos inyectados en el servicio simulado
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger failuresLeft = new AtomicInteger();
+    private volatile int failureStatus = 503;
+    private volatile long delayMillis;
+    private final AtomicInteger slowResponsesLeft = new AtomicInteger(Integer.MAX_VALUE);
+    private final CountDownLatch received = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/api/products/1", this::handle);
+        server.start();
+        url = "http://localhost:" + server.getAddress().getPort() + "/api/products/1";
+
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setReadTimeout(Duration.ofSeconds(5));
+        httpClient = new RestTemplateHttpClient(new RestTemplate(requestFactory));
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        scheduler.shutdownNow();
+        callers.shutdownNow();
+    }
+
+    @Test
+    void call_RetriesTransientFailuresUntilSuccess() {
+        DownstreamResilience resilience = resilience(10, Duration.ofSeconds(1), 5);
+        failuresLeft.set(2);
+
+        String body = resilience.call(NAME, () -> httpClient.get(url, String.class));
+
+        assertEquals("{\"id\":1}", body);
+        assertEquals(3, hits.get());
+    }
+
+    @Test
+    void call_NeverRetriesClientErrors() {
+        DownstreamResilience resilience = resilience(10, Duration.ofSeconds(1), 5);
+        failuresLeft.set(1);
+        failureStatus = 404;
+
+        assertThrows(HttpClientErrorException.class, () -> resilience.call(NAME, () -> httpClient.get(url, String.class)));
+        assertEquals(1, hits.get());
+    }
+
+    @Test
+    void call_RetryBudgetCapsRetriesWhileDependencyIsDown() {
+        DownstreamResilience resilience = resilience(10, Duration.ofSeconds(1), 2);
+        failuresLeft.set(Integer.MAX_VALUE);
+        int calls = 20;
+
+        for (int i = 0; i < calls; i++) {
+            assertThrows(HttpServerErrorException.class, () -> resilience.call(NAME, () -> httpClient.get(url, String.class)));
+        }
+
+        // Sin presupuesto serían hasta 3 intentos por llamada; con él, 2 reintentos por segundo como mucho
+        assertTrue(hits.get() <= calls + 6, "Too many retries: " + (hits.get() - calls));
+        assertTrue(hits.get() > calls, "Some retries should be allowed");
+    }
+
+    @Test
+    void call_RejectsImmediatelyWhenBulkheadIsFull() throws Exception {
+        DownstreamResilience resilience = resilience(1, Duration.ZERO, 5);
+        delayMillis = 500;
+        Future<String> slow = callers.submit(() -> resilience.call(NAME, () -> httpClient.get(url, String.class)));
+        assertTrue(received.await(2, TimeUnit.SECONDS));
+
+        long start = System.nanoTime();
+        assertThrows(BulkheadFullException.class, () -> resilience.call(NAME, () -> httpClient.get(url, String.class)));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 200, "Rejection should not wait");
+
+        assertEquals("{\"id\":1}", slow.get());
+        // El rechazo no llegó al servicio ni se reintentó
+        assertEquals(1, hits.get());
+    }
+
+    @Test
+    void saturatedDependency_ReportsCallsWaitingForBulkhead() throws Exception {
+        DownstreamResilience resilience = resilience(1, Duration.ofSeconds(5), 5);
+        delayMillis = 500;
+        Future<String> first = callers.submit(() -> resilience.call(NAME, () -> httpClient.get(url, String.class)));
+        assertTrue(received.await(2, TimeUnit.SECONDS));
+        Future<String> second = callers.submit(() -> resilience.call(NAME, () -> httpClient.get(url, String.class)));
+        Future<String> third = callers.submit(() -> resilience.call(NAME, () -> httpClient.get(url, String.class)));
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (resilience.waiting(NAME) < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(NAME, resilience.saturatedDependency(1));
+        assertNull(resilience.saturatedDependency(2));
+
+        first.get();
+        second.get();
+        third.get();
+        assertEquals(0, resilience.waiting(NAME));
+        assertNull(resilience.saturatedDependency(0));
+    }
+
+    @Test
+    void callAsync_TimesOutSlowDependency() {
+        DownstreamResilience resilience = resilience(10, Duration.ofSeconds(1), 0);
+        delayMillis = 2_000;
+
+        long start = System.nanoTime();
+        ExecutionException error = assertThrows(ExecutionException.class, () -> resilience
+                .callAsync(NAME, () -> httpClient.getAsync(url, String.class, callers))
+                .get(5, TimeUnit.SECONDS));
+
+        assertInstanceOf(TimeoutException.class, error.getCause());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1_500, "Should not wait for the response");
+    }
+
+    @Test
+    void call_RetriesWebClientReadTimeouts() {
+        DownstreamResilience resilience = resilience(10, Duration.ofSeconds(1), 5);
+        DownstreamHttpProperties properties = new DownstreamHttpProperties();
+        properties.setReadTimeout(Duration.ofMillis(300));
+        WebClientHttpClient webClient = new WebClientHttpClient(properties);
+        delayMillis = 1_000;
+        slowResponsesLeft.set(1);
+
+        try {
+            String body = resilience.call(NAME, () -> webClient.get(url, String.class));
+
+            assertEquals("{\"id\":1}", body);
+            assertEquals(2, hits.get());
+        } finally {
+            webClient.dispose();
+        }
+    }
+
+    // Retry de 3 intentos, bulkhead de maxConcurrent llamadas y time limiter de 200ms
+    private DownstreamResilience resilience(int maxConcurrent, Duration maxWait, int retriesPerSecond) {
+        DownstreamResilienceProperties properties = new DownstreamResilienceProperties();
+        properties.setRetryBudgetRatio(0);
+        properties.setRetryBudgetMinPerSecond(retriesPerSecond);
+        return new DownstreamResilience(
+                CircuitBreakerRegistry.ofDefaults(),
+                BulkheadRegistry.of(BulkheadConfig.custom().maxConcurrentCalls(maxConcurrent).maxWaitDuration(maxWait).build()),
+                RetryRegistry.of(RetryConfig.custom().maxAttempts(3).waitDuration(Duration.ofMillis(10)).build()),
+                TimeLimiterRegistry.of(TimeLimiterConfig.custom().timeoutDuration(Duration.ofMillis(200)).build()),
+                scheduler, properties);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        hits.incrementAndGet();
+        received.countDown();
+        if (delayMillis > 0 && slowResponsesLeft.getAndDecrement() > 0) {
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (failuresLeft.getAndDecrement() > 0) {
+            exchange.sendResponseHeaders(failureStatus, -1);
+            exchange.close();
+            return;
+        }
+        byte[] bytes = "{\"id\":1}".getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
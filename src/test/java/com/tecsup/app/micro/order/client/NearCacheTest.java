@@ -0,0 +1,103 @@
+package com.tecsup.app.micro.order.client;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NearCacheTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final Ticker ticker = nanos::get;
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private NearCache<String> cache;
+
+    @BeforeEach
+    void setUp() {
+        NearCacheProperties.Spec spec = new NearCacheProperties.Spec(Duration.ofMinutes(10), Duration.ofMinutes(2), 2);
+        cache = new NearCache<>("test", spec, Runnable::run, ticker);
+    }
+
+    @Test
+    void get_CountsHitsAndMisses() {
+        assertNull(cache.get(1L, this::load));
+        cache.put(1L, "one");
+
+        assertEquals("one", cache.get(1L, this::load));
+        assertEquals(1, cache.hitCount());
+        assertEquals(1, cache.missCount());
+    }
+
+    @Test
+    void get_ServesStaleValueWhileRefreshing() {
+        cache.put(1L, "one");
+        advance(Duration.ofMinutes(3));
+
+        assertEquals("one", cache.get(1L, this::load));
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.refreshCount());
+        assertEquals("loaded-1", cache.get(1L, this::load));
+    }
+
+    @Test
+    void get_ExpiresEntriesAfterTtl() {
+        cache.put(1L, "one");
+        advance(Duration.ofMinutes(11));
+
+        assertNull(cache.getStale(1L));
+    }
+
+    @Test
+    void get_TreatsEntriesOlderThanMaxAgeAsMiss() {
+        cache.put(1L, "one");
+        advance(Duration.ofSeconds(30));
+
+        assertNull(cache.get(1L, Duration.ofSeconds(10), this::load));
+        assertEquals("one", cache.get(1L, Duration.ofMinutes(1), this::load));
+        assertEquals(1, cache.missCount());
+    }
+
+    @Test
+    void put_EvictsWhenMaxSizeIsExceeded() {
+        for (long id = 1; id <= 10; id++) {
+            cache.put(id, "value-" + id);
+        }
+
+        assertEquals(2, cache.size());
+        assertEquals(8, cache.evictionCount());
+    }
+
+    @Test
+    void bindTo_PublishesCountersToTheRegistry() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        cache.bindTo(registry);
+
+        assertNull(cache.get(1L, this::load));
+        for (long id = 1; id <= 3; id++) {
+            cache.put(id, "value-" + id);
+        }
+        cache.get(3L, this::load);
+
+        assertEquals(1, registry.get("cache.gets").tags("cache", "test", "result", "hit").functionCounter().count());
+        assertEquals(1, registry.get("cache.gets").tags("cache", "test", "result", "miss").functionCounter().count());
+        assertEquals(1, registry.get("cache.evictions").tag("cache", "test").functionCounter().count());
+        assertEquals(2, registry.get("cache.size").tag("cache", "test").gauge().value());
+    }
+
+    private String load(Long key) {
+        loads.incrementAndGet();
+        return "loaded-" + key;
+    }
+
+    private void advance(Duration duration) {
+        nanos.addAndGet(duration.toNanos());
+    }
+}
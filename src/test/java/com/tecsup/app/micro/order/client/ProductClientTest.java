@@ -0,0 +1,204 @@
+package com.tecsup.app.micro.order.client;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductClientTest {
+
+    private HttpServer server;
+    private ThreadPoolTaskExecutor executor;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private NearCache<Product> productCache;
+    private final NearCacheProperties nearCacheProperties = new NearCacheProperties();
+    private ProductClient productClient;
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final AtomicInteger singleCalls = new AtomicInteger();
+    private final AtomicInteger bulkCalls = new AtomicInteger();
+    private volatile long responseDelayMillis;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/api/products/", this::handle);
+        server.start();
+
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(4);
+        executor.initialize();
+
+        NearCacheProperties.Spec cacheSpec = new NearCacheProperties.Spec(Duration.ofMinutes(5), Duration.ofMinutes(1), 100);
+        productCache = new NearCache<>("product", cacheSpec, Runnable::run);
+
+        productClient = new ProductClient(new RestTemplateHttpClient(new RestTemplate()), DownstreamResilience.ofDefaults(scheduler), executor,
+                productCache, nearCacheProperties,
+                new DownstreamMetrics(meterRegistry));
+        ReflectionTestUtils.setField(productClient, "productServiceUrl",
+                "http://localhost:" + server.getAddress().getPort());
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        executor.shutdown();
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    void getProductsByIds_DeduplicatesIds() {
+        Map<Long, Product> products = productClient.getProductsByIds(List.of(1L, 2L, 1L, 3L, 2L));
+
+        assertEquals(3, products.size());
+        assertEquals("Product 2", products.get(2L).getName());
+        assertEquals(3, singleCalls.get());
+    }
+
+    @Test
+    void getProductsByIds_SharesInFlightCallsForSameProduct() throws Exception {
+        responseDelayMillis = 300;
+        int callers = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<Map<Long, Product>>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return productClient.getProductsByIds(List.of(7L));
+                }));
+            }
+            start.countDown();
+
+            for (Future<Map<Long, Product>> result : results) {
+                assertEquals("Product 7", result.get().get(7L).getName());
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(1, singleCalls.get());
+    }
+
+    @Test
+    void getProductsByIds_UsesBulkEndpointWhenEnabled() {
+        ReflectionTestUtils.setField(productClient, "bulkEnabled", true);
+
+        Map<Long, Product> products = productClient.getProductsByIds(List.of(1L, 2L, 3L));
+
+        assertEquals(3, products.size());
+        assertEquals(1, bulkCalls.get());
+        assertEquals(0, singleCalls.get());
+    }
+
+    @Test
+    void getProductsByIds_ReturnsFallbackForFailedProduct() {
+        Map<Long, Product> products = productClient.getProductsByIds(List.of(1L, 404L));
+
+        assertEquals("Product 1", products.get(1L).getName());
+        assertEquals("Unknown product", products.get(404L).getName());
+        assertEquals(BigDecimal.ZERO, products.get(404L).getPrice());
+    }
+
+    @Test
+    void getProductsByIds_RecordsLatencyPerOutcomeAndFallbacks() {
+        productClient.getProductsByIds(List.of(1L, 2L, 404L));
+
+        assertEquals(2, meterRegistry.get(DownstreamMetrics.REQUESTS)
+                .tags("dependency", "product-service", "outcome", "success").timer().count());
+        assertEquals(1, meterRegistry.get(DownstreamMetrics.REQUESTS)
+                .tags("dependency", "product-service", "outcome", "error").timer().count());
+        assertEquals(1, meterRegistry.get(DownstreamMetrics.FALLBACKS)
+                .tags("dependency", "product-service", "source", "default").counter().count());
+    }
+
+    @Test
+    void getProductsByIds_ServesRepeatedReadsFromCacheButNeverCachesFallbacks() {
+        productClient.getProductsByIds(List.of(1L, 404L));
+        Map<Long, Product> products = productClient.getProductsByIds(List.of(1L, 404L));
+
+        assertEquals("Product 1", products.get(1L).getName());
+        assertEquals("Unknown product", products.get(404L).getName());
+        // 1 se sirve desde caché en la segunda lectura; 404 vuelve a consultarse
+        assertEquals(3, singleCalls.get());
+        assertEquals(1, productCache.hitCount());
+    }
+
+    @Test
+    void getProductsForPricing_IgnoresCachedPricesOlderThanFreshnessBound() {
+        productClient.getProductsByIds(List.of(1L));
+        productClient.getProductsForPricing(List.of(1L));
+        assertEquals(2, singleCalls.get());
+
+        nearCacheProperties.setPriceMaxAge(Duration.ofMinutes(1));
+        productClient.getProductsForPricing(List.of(1L));
+        assertEquals(2, singleCalls.get());
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String body;
+        if (path.equals("/api/products/batch")) {
+            bulkCalls.incrementAndGet();
+            String ids = exchange.getRequestURI().getQuery().substring("ids=".length());
+            body = List.of(ids.split(",")).stream()
+                    .map(this::productJson)
+                    .collect(Collectors.joining(",", "[", "]"));
+        } else {
+            singleCalls.incrementAndGet();
+            String id = path.substring("/api/products/".length());
+            if (id.equals("404")) {
+                exchange.sendResponseHeaders(404, -1);
+                exchange.close();
+                return;
+            }
+            body = productJson(id);
+        }
+
+        if (responseDelayMillis > 0) {
+            try {
+                Thread.sleep(responseDelayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private String productJson(String id) {
+        return "{\"id\":" + id + ",\"name\":\"Product " + id + "\",\"price\":10.00,\"stock\":5}";
+    }
+}
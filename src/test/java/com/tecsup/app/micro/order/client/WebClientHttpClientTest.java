@@ -0,0 +1,55 @@
+package com.tecsup.app.micro.order.client;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * El transporte WebClient contra un servidor local. La comparación de rendimiento con RestTemplate
+ * está en el benchmark JMH {@code DownstreamHttpClientBenchmark}.
+ */
+class WebClientHttpClientTest {
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private String baseUrl;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        serverExecutor = Executors.newFixedThreadPool(4);
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(serverExecutor);
+        server.createContext("/api/products/", exchange -> {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+        });
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    void webClientReportsClientErrorsLikeRestTemplate() {
+        WebClientHttpClient webClient = new WebClientHttpClient(new DownstreamHttpProperties());
+        try {
+            assertThrows(HttpClientErrorException.class,
+                    () -> webClient.get(baseUrl + "/api/products/404", Product.class));
+        } finally {
+            webClient.dispose();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.tecsup.app.micro.order.config;
+
+import com.tecsup.app.micro.order.client.DownstreamResilience;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LoadSheddingFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final DownstreamResilience resilience = mock(DownstreamResilience.class);
+    private final LoadSheddingProperties properties = new LoadSheddingProperties();
+    private LoadSheddingFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        properties.setMaxInFlight(1);
+        properties.setMaxQueued(5);
+        filter = new LoadSheddingFilter(properties, resilience, meterRegistry);
+    }
+
+    @Test
+    void doFilter_PassesRequestsWithinLimits() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/orders/1"), response, chain);
+
+        assertNotNull(chain.getRequest());
+        assertEquals(200, response.getStatus());
+    }
+
+    @Test
+    void doFilter_ShedsWhenTooManyRequestsInFlight() throws Exception {
+        AtomicReference<MockHttpServletResponse> nested = new AtomicReference<>();
+        // Mientras la primera petición sigue en curso llega una segunda
+        FilterChain busy = (request, response) -> {
+            MockHttpServletResponse second = new MockHttpServletResponse();
+            filter.doFilter(new MockHttpServletRequest("POST", "/api/orders"), second, new MockFilterChain());
+            nested.set(second);
+        };
+
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("POST", "/api/orders"), first, busy);
+
+        assertEquals(200, first.getStatus());
+        assertEquals(503, nested.get().getStatus());
+        assertEquals("1", nested.get().getHeader("Retry-After"));
+        assertEquals(1.0, meterRegistry.get("order.requests.shed").tag("reason", "in-flight").counter().count());
+        assertEquals(0.0, meterRegistry.get("order.requests.in.flight").gauge().value());
+    }
+
+    @Test
+    void doFilter_ShedsWhenDependencyIsSaturated() throws Exception {
+        when(resilience.saturatedDependency(5)).thenReturn("productService");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(new MockHttpServletRequest("POST", "/api/orders"), response, chain);
+
+        assertNull(chain.getRequest());
+        assertEquals(503, response.getStatus());
+        assertEquals(1.0, meterRegistry.get("order.requests.shed").tag("reason", "dependency").counter().count());
+    }
+
+    @Test
+    void doFilter_PassesEverythingWhenDisabled() throws Exception {
+        properties.setEnabled(false);
+        when(resilience.saturatedDependency(5)).thenReturn("productService");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("POST", "/api/orders"), response, new MockFilterChain());
+
+        assertEquals(200, response.getStatus());
+    }
+}
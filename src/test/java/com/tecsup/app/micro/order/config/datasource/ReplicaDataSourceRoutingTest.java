@@ -0,0 +1,160 @@
+package com.tecsup.app.micro.order.config.datasource;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tecsup.app.micro.order.cache.OrderResponseCache;
+import com.tecsup.app.micro.order.client.Product;
+import com.tecsup.app.micro.order.client.ProductClient;
+import com.tecsup.app.micro.order.client.User;
+import com.tecsup.app.micro.order.client.UserClient;
+import com.tecsup.app.micro.order.dto.CreateOrderRequest;
+import com.tecsup.app.micro.order.dto.Order;
+import com.tecsup.app.micro.order.service.OrderService;
+import com.tecsup.app.micro.order.service.OrderStatusService;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.BDDMockito.given;
+
+/**
+ * Primario y réplica son dos bases H2 distintas, sin replicación entre ellas: así se ve de cuál
+ * lee cada operación. La réplica informa su retraso en la tabla replica_lag.
+ */
+@ActiveProfiles("test")
+@SpringBootTest(properties = {
+        "order.datasource.replica.enabled=true",
+        "order.datasource.replica.url=jdbc:h2:mem:replicadb;DB_CLOSE_DELAY=-1",
+        "order.datasource.replica.lag-query=select seconds from replica_lag",
+        "order.datasource.replica.max-lag=5s",
+        "order.datasource.replica.lag-check-interval=1h"
+})
+class ReplicaDataSourceRoutingTest {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderStatusService orderStatusService;
+
+    @Autowired
+    private OrderResponseCache orderResponseCache;
+
+    @Autowired
+    private ReplicaLagMonitor replicaLagMonitor;
+
+    @Autowired
+    private HikariDataSource primaryDataSource;
+
+    @Autowired
+    private HikariDataSource replicaDataSource;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @MockitoBean
+    private UserClient userClient;
+
+    @MockitoBean
+    private ProductClient productClient;
+
+    private JdbcTemplate replica;
+
+    @BeforeEach
+    void setUp() {
+        given(userClient.getUserById(any())).willReturn(new User(1L, "John Doe", "john@example.com", null, null));
+        given(productClient.getProductsForPricing(anyCollection())).willAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return ids.stream().distinct().collect(Collectors.toMap(Function.identity(),
+                    id -> new Product(id, "Product " + id, null, new BigDecimal("10.00"), 100, null, null)));
+        });
+
+        // La réplica recibe el esquema del primario (el que generó Hibernate), sin datos
+        replica = new JdbcTemplate(replicaDataSource);
+        replica.execute("drop all objects");
+        for (String statement : new JdbcTemplate(primaryDataSource).queryForList("script nodata", String.class)) {
+            if (statement.startsWith("CREATE") && !statement.startsWith("CREATE USER")) {
+                replica.execute(statement);
+            }
+        }
+        replica.execute("create table replica_lag (seconds double precision)");
+        replica.update("insert into replica_lag values (0)");
+        replicaLagMonitor.check();
+    }
+
+    @Test
+    void readOnlyTransactionsGoToReplicaAndWritesToPrimary() throws Exception {
+        Order order = orderService.createOrder(request());
+        orderResponseCache.invalidate(order.getId());
+
+        // Todavía no replicada: la lectura no la encuentra en la réplica
+        RuntimeException missing = assertThrows(RuntimeException.class, () -> orderService.getOrderJson(order.getId()));
+        assertTrue(missing.getMessage().contains("Order not found"));
+
+        replicate(order, "CONFIRMED");
+        JsonNode read = objectMapper.readTree(orderService.getOrderJson(order.getId()));
+        assertEquals("CONFIRMED", read.get("status").asText());
+        assertEquals(0, read.get("items").size());
+
+        // Las escrituras leen y modifican el primario, donde la orden sigue PENDING
+        assertEquals("CONFIRMED", orderStatusService.changeStatus(order.getId(), "CONFIRMED", 0L).getStatus());
+        assertEquals(1L, new JdbcTemplate(primaryDataSource).queryForObject(
+                "select version from orders where id = ?", Long.class, order.getId()));
+        assertEquals(0L, replica.queryForObject("select version from orders where id = ?", Long.class, order.getId()));
+    }
+
+    @Test
+    void readsFallBackToPrimaryWhileReplicaLagsOrIsDown() throws Exception {
+        Order order = orderService.createOrder(request());
+        replicate(order, "CONFIRMED");
+        assertTrue(replicaLagMonitor.isUsable());
+
+        replica.update("update replica_lag set seconds = 30");
+        replicaLagMonitor.check();
+        assertFalse(replicaLagMonitor.isUsable());
+        orderResponseCache.invalidate(order.getId());
+        JsonNode read = objectMapper.readTree(orderService.getOrderJson(order.getId()));
+        assertEquals("PENDING", read.get("status").asText());
+        assertEquals(2, read.get("items").size());
+
+        replica.update("update replica_lag set seconds = 1");
+        replicaLagMonitor.check();
+        assertTrue(replicaLagMonitor.isUsable());
+
+        // Si la consulta de retraso falla, la réplica se da por caída
+        replica.execute("drop table replica_lag");
+        replicaLagMonitor.check();
+        assertFalse(replicaLagMonitor.isUsable());
+        orderResponseCache.invalidate(order.getId());
+        assertEquals("PENDING", objectMapper.readTree(orderService.getOrderJson(order.getId())).get("status").asText());
+    }
+
+    // Copia la orden a la réplica con otro estado, para distinguir de dónde se leyó
+    private void replicate(Order order, String status) {
+        LocalDateTime now = LocalDateTime.now();
+        replica.update("insert into orders (id, order_number, user_id, status, total_amount, created_at, updated_at, version)"
+                        + " values (?, ?, ?, ?, ?, ?, ?, 0)",
+                order.getId(), order.getOrderNumber(), 1L, status, order.getTotalAmount(), now, now);
+    }
+
+    private CreateOrderRequest request() {
+        return new CreateOrderRequest(1L, List.of(
+                new CreateOrderRequest.CreateOrderItemRequest(1L, 1),
+                new CreateOrderRequest.CreateOrderItemRequest(2L, 1)));
+    }
+}
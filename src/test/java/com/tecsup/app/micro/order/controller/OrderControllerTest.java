@@ -1,7 +1,18 @@
 package com.tecsup.app.micro.order.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tecsup.app.micro.order.config.logging.CorrelationIdFilter;
+import com.tecsup.app.micro.order.dto.BulkStatusChangeResult;
 import com.tecsup.app.micro.order.dto.Order;
+import com.tecsup.app.micro.order.dto.OrderStats;
+import com.tecsup.app.micro.order.dto.OrderStatusResponse;
+import com.tecsup.app.micro.order.service.AsyncOrderService;
+import com.tecsup.app.micro.order.service.BulkOrderService;
+import com.tecsup.app.micro.order.service.OrderExportService;
+import com.tecsup.app.micro.order.service.OrderListingService;
 import com.tecsup.app.micro.order.service.OrderService;
+import com.tecsup.app.micro.order.service.OrderStatsService;
+import com.tecsup.app.micro.order.service.OrderStatusService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,10 +21,24 @@ import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 
 import static org.mockito.BDDMockito.given;
+import static org.hamcrest.Matchers.matchesPattern;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(OrderController.class)
@@ -22,9 +47,30 @@ class OrderControllerTest {
     @Autowired
     private MockMvc mockMvc;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @MockitoBean
     private OrderService orderService;
 
+    @MockitoBean
+    private BulkOrderService bulkOrderService;
+
+    @MockitoBean
+    private OrderListingService orderListingService;
+
+    @MockitoBean
+    private AsyncOrderService asyncOrderService;
+
+    @MockitoBean
+    private OrderStatsService orderStatsService;
+
+    @MockitoBean
+    private OrderExportService orderExportService;
+
+    @MockitoBean
+    private OrderStatusService orderStatusService;
+
     private Order orderDto;
 
     @BeforeEach
@@ -38,13 +84,162 @@ class OrderControllerTest {
 
     @Test
     void getOrderById_Success() throws Exception {
-        given(orderService.getOrderById(1L)).willReturn(orderDto);
+        given(orderService.getOrderETag(1L)).willReturn("W/\"1-0\"");
+        given(orderService.readOrderJson(1L)).willReturn(new OrderService.OrderJson(objectMapper.writeValueAsBytes(orderDto), true));
 
         mockMvc.perform(get("/api/orders/{id}", 1L)
                 .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(header().string("ETag", "W/\"1-0\""))
                 .andExpect(jsonPath("$.id").value(1L))
                 .andExpect(jsonPath("$.orderNumber").value("ORD-2025-0001"));
     }
-}
 
+    @Test
+    void getOrderById_ReturnsNotModifiedWithoutReadingTheOrderWhenETagMatches() throws Exception {
+        given(orderService.getOrderETag(1L)).willReturn("W/\"1-0\"");
+
+        mockMvc.perform(get("/api/orders/{id}", 1L).header("If-None-Match", "W/\"1-0\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "W/\"1-0\""))
+                .andExpect(content().bytes(new byte[0]));
+        verify(orderService, never()).readOrderJson(any());
+    }
+
+    @Test
+    void getOrderById_OmitsETagWhenTheResponseHasFallbackData() throws Exception {
+        given(orderService.getOrderETag(1L)).willReturn("W/\"1-0\"");
+        given(orderService.readOrderJson(1L)).willReturn(new OrderService.OrderJson(objectMapper.writeValueAsBytes(orderDto), false));
+
+        mockMvc.perform(get("/api/orders/{id}", 1L).header("If-None-Match", "W/\"1-1\""))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("ETag"));
+    }
+
+    @Test
+    void getOrderById_EchoesCorrelationIdOrGeneratesOne() throws Exception {
+        given(orderService.readOrderJson(1L)).willReturn(new OrderService.OrderJson(objectMapper.writeValueAsBytes(orderDto), true));
+
+        mockMvc.perform(get("/api/orders/{id}", 1L).header(CorrelationIdFilter.HEADER, "abc-123"))
+                .andExpect(header().string(CorrelationIdFilter.HEADER, "abc-123"));
+        mockMvc.perform(get("/api/orders/{id}", 1L).header(CorrelationIdFilter.HEADER, "bad id\ninjected"))
+                .andExpect(header().string(CorrelationIdFilter.HEADER, matchesPattern("[0-9a-f]{16}")));
+    }
+
+    @Test
+    void createOrder_AsyncModeReturnsAcceptedWithStatusLocation() throws Exception {
+        given(asyncOrderService.isEnabled()).willReturn(true);
+        given(asyncOrderService.acceptOrder(any(), isNull())).willReturn(
+                new OrderStatusResponse(5L, "ORD-2025-0005", "PENDING", BigDecimal.ZERO, null, 0L, null));
+
+        mockMvc.perform(post("/api/orders")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"userId\": 1, \"items\": [{\"productId\": 1, \"quantity\": 2}]}"))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "http://localhost/api/orders/5/status"))
+                .andExpect(jsonPath("$.status").value("PENDING"));
+    }
+
+    @Test
+    void createOrder_PassesIdempotencyKeyAndReportsMissingStockAsConflict() throws Exception {
+        given(orderService.createOrder(any(), eq("retry-42"))).willReturn(orderDto);
+        given(orderService.createOrder(any(), eq("sold-out"))).willThrow(
+                new IllegalStateException("Insufficient stock for product 1"));
+        String body = "{\"userId\": 1, \"items\": [{\"productId\": 1, \"quantity\": 2}]}";
+
+        mockMvc.perform(post("/api/orders")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(OrderController.IDEMPOTENCY_KEY_HEADER, "retry-42")
+                .content(body))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.id").value(1));
+        mockMvc.perform(post("/api/orders")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(OrderController.IDEMPOTENCY_KEY_HEADER, "sold-out")
+                .content(body))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void getStats_ReadsAggregatesAndRejectsInvalidRange() throws Exception {
+        LocalDate day = LocalDate.of(2025, 3, 1);
+        given(orderStatsService.getStats(day, day, 5)).willReturn(new OrderStats(day, day,
+                Map.of("CONFIRMED", new OrderStats.StatusTotals(3, new BigDecimal("30.00"))),
+                List.of(new OrderStats.DailyTotals(day, 3, new BigDecimal("30.00"))),
+                List.of(new OrderStats.ProductSales(1L, "Product 1", 6, new BigDecimal("60.00"), 3))));
+        given(orderStatsService.getStats(eq(day), eq(day.minusDays(1)), eq(10)))
+                .willThrow(new IllegalArgumentException("from must not be after to"));
+
+        mockMvc.perform(get("/api/orders/stats").param("from", "2025-03-01").param("to", "2025-03-01").param("top", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.byStatus.CONFIRMED.orders").value(3))
+                .andExpect(jsonPath("$.daily[0].revenue").value(30.00))
+                .andExpect(jsonPath("$.topProducts[0].productName").value("Product 1"));
+        mockMvc.perform(get("/api/orders/stats").param("from", "2025-03-01").param("to", "2025-02-28"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void exportOrders_StreamsFormatAndReportsBusyExporter() throws Exception {
+        given(orderExportService.export(any(), any(), eq(OrderExportService.Format.CSV), any())).willAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(3);
+            out.write("order_id\n1\n".getBytes(StandardCharsets.UTF_8));
+            return 1;
+        });
+        given(orderExportService.export(any(), any(), eq(OrderExportService.Format.NDJSON), any()))
+                .willThrow(new IllegalStateException("Too many exports running, try again later"));
+        String from = "2025-03-01T00:00:00";
+        String to = "2025-04-01T00:00:00";
+
+        mockMvc.perform(get("/api/orders/export").param("from", from).param("to", to).param("format", "csv"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/csv;charset=UTF-8"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"orders.csv\""))
+                .andExpect(content().string("order_id\n1\n"));
+        mockMvc.perform(get("/api/orders/export").param("from", from).param("to", to))
+                .andExpect(status().isServiceUnavailable());
+        mockMvc.perform(get("/api/orders/export").param("from", from).param("to", to).param("format", "xml"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void changeStatus_ReturnsNewVersionAndReportsConflicts() throws Exception {
+        given(orderStatusService.changeStatus(1L, "SHIPPED", 3L)).willReturn(new OrderStatusResponse(1L, "ORD-1",
+                "SHIPPED", new BigDecimal("20.00"), LocalDateTime.of(2025, 3, 1, 10, 0), 4L, null));
+        given(orderStatusService.changeStatus(1L, "SHIPPED", 2L)).willThrow(
+                new IllegalStateException("Order 1 was modified (version 3, expected 2)"));
+        given(orderStatusService.changeStatus(eq(1L), eq("LOST"), isNull())).willThrow(
+                new IllegalArgumentException("Unknown status: LOST"));
+
+        mockMvc.perform(patch("/api/orders/1/status")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"status\": \"SHIPPED\", \"version\": 3}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("SHIPPED"))
+                .andExpect(jsonPath("$.version").value(4));
+        mockMvc.perform(patch("/api/orders/1/status")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"status\": \"SHIPPED\", \"version\": 2}"))
+                .andExpect(status().isConflict());
+        mockMvc.perform(patch("/api/orders/1/status")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"status\": \"LOST\"}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void changeStatuses_ReportsSkippedOrders() throws Exception {
+        given(orderStatusService.changeStatus(List.of(1L, 2L), "SHIPPED")).willReturn(new BulkStatusChangeResult(
+                "SHIPPED", 2, 1, List.of(new BulkStatusChangeResult.Skipped(2L, "PENDING",
+                "Cannot change from PENDING to SHIPPED"))));
+
+        mockMvc.perform(patch("/api/orders/status")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"orderIds\": [1, 2], \"status\": \"SHIPPED\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.updated").value(1))
+                .andExpect(jsonPath("$.skipped[0].orderId").value(2))
+                .andExpect(jsonPath("$.skipped[0].currentStatus").value("PENDING"));
+    }
+}
@@ -0,0 +1,167 @@
+package com.tecsup.app.micro.order.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tecsup.app.micro.order.cache.OrderResponseCache;
+import com.tecsup.app.micro.order.client.Product;
+import com.tecsup.app.micro.order.client.ProductClient;
+import com.tecsup.app.micro.order.client.User;
+import com.tecsup.app.micro.order.client.UserClient;
+import com.tecsup.app.micro.order.dto.CreateOrderRequest;
+import com.tecsup.app.micro.order.dto.Order;
+import com.tecsup.app.micro.order.repository.JobLockRepository;
+import com.tecsup.app.micro.order.repository.OrderItemRepository;
+import com.tecsup.app.micro.order.repository.OrderRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.BDDMockito.given;
+
+@ActiveProfiles("test")
+@SpringBootTest(properties = {
+        "order.archive.enabled=true",
+        "order.archive.run-interval=1h",
+        "order.archive.segment-max-orders=2",
+        "order.archive.block-size=2"
+})
+class OrderArchiveServiceTest {
+
+    @TempDir
+    static Path archiveDirectory;
+
+    @DynamicPropertySource
+    static void archiveProperties(DynamicPropertyRegistry registry) {
+        registry.add("order.archive.directory", archiveDirectory::toString);
+    }
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderArchiveService orderArchiveService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private OrderResponseCache orderResponseCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private JobLockRepository jobLockRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @MockitoBean
+    private UserClient userClient;
+
+    @MockitoBean
+    private ProductClient productClient;
+
+    @BeforeEach
+    void setUp() {
+        given(userClient.getUserById(any())).willReturn(new User(1L, "John Doe", "john@example.com", null, null));
+        given(productClient.getProductsForPricing(anyCollection())).willAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return ids.stream().distinct().collect(Collectors.toMap(Function.identity(),
+                    id -> new Product(id, "Product " + id, null, new BigDecimal("10.00"), 100, "Cat", null)));
+        });
+    }
+
+    @Test
+    void archivesOldFinalOrdersAndStillServesThem() throws Exception {
+        LocalDateTime old = LocalDateTime.now().minusDays(200);
+        Order delivered = age(orderService.createOrder(request()), "DELIVERED", old);
+        Order cancelled = age(orderService.createOrder(request()), "CANCELLED", old.plusDays(1));
+        Order deliveredToo = age(orderService.createOrder(request()), "DELIVERED", old.plusDays(2));
+        Order oldButOpen = age(orderService.createOrder(request()), "SHIPPED", old);
+        Order recent = age(orderService.createOrder(request()), "DELIVERED", LocalDateTime.now().minusDays(1));
+
+        // Dos segmentos: segment-max-orders=2
+        assertEquals(3, orderArchiveService.archive());
+        assertEquals(0, orderArchiveService.archive());
+
+        for (Order archived : List.of(delivered, cancelled, deliveredToo)) {
+            assertFalse(orderRepository.existsById(archived.getId()));
+            assertTrue(orderItemRepository.findByOrderIdOrderByIdAsc(archived.getId()).isEmpty());
+
+            orderResponseCache.invalidate(archived.getId());
+            Order read = orderService.getOrderById(archived.getId());
+            assertEquals(archived.getOrderNumber(), read.getOrderNumber());
+            assertEquals(0, archived.getTotalAmount().compareTo(read.getTotalAmount()));
+            assertEquals(2, read.getItems().size());
+            assertEquals("Product 1", read.getItems().get(0).getProduct().getName());
+
+            orderResponseCache.invalidate(archived.getId());
+            JsonNode json = objectMapper.readTree(orderService.getOrderJson(archived.getId()));
+            assertEquals(archived.getId().longValue(), json.get("id").asLong());
+        }
+        assertEquals("CANCELLED", orderService.getOrderById(cancelled.getId()).getStatus());
+        assertTrue(orderRepository.existsById(oldButOpen.getId()));
+        assertTrue(orderRepository.existsById(recent.getId()));
+
+        RuntimeException missing = assertThrows(RuntimeException.class, () -> orderService.getOrderById(-1L));
+        assertEquals("Order not found with id: -1", missing.getMessage());
+    }
+
+    @Test
+    void onlyTheInstanceHoldingTheLockArchives() {
+        Order delivered = age(orderService.createOrder(request()), "DELIVERED", LocalDateTime.now().minusDays(200));
+        JobLockService otherReplica = new JobLockService(jobLockRepository, transactionTemplate, "other-replica");
+        assertTrue(otherReplica.tryLock(OrderArchiveService.LOCK, Duration.ofMinutes(5)));
+        try {
+            assertEquals(0, orderArchiveService.archive());
+            assertTrue(orderRepository.existsById(delivered.getId()));
+        } finally {
+            otherReplica.unlock(OrderArchiveService.LOCK);
+        }
+
+        assertEquals(1, orderArchiveService.archive());
+        assertFalse(orderRepository.existsById(delivered.getId()));
+        // Al terminar suelta el bloqueo
+        assertTrue(otherReplica.tryLock(OrderArchiveService.LOCK, Duration.ofMinutes(5)));
+        otherReplica.unlock(OrderArchiveService.LOCK);
+    }
+
+    // created_at lo fija @PrePersist al crear, así que la antigüedad se simula después
+    private Order age(Order order, String status, LocalDateTime createdAt) {
+        jdbcTemplate.update("update orders set status = ?, created_at = ? where id = ?", status, createdAt, order.getId());
+        return order;
+    }
+
+    private CreateOrderRequest request() {
+        return new CreateOrderRequest(1L, List.of(
+                new CreateOrderRequest.CreateOrderItemRequest(1L, 2),
+                new CreateOrderRequest.CreateOrderItemRequest(2L, 1)));
+    }
+}
@@ -0,0 +1,115 @@
+package com.tecsup.app.micro.order.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderNumberGeneratorTest {
+
+    private static final ZoneId ZONE = ZoneOffset.UTC;
+
+    @Test
+    void numbersAreUniqueAcrossNodesAndIncreasingPerThread() throws Exception {
+        int nodes = 8;
+        int threadsPerNode = 4;
+        int perThread = 50_000;
+        // Un reloj compartido que avanza despacio: cada milisegundo agota la secuencia y se
+        // reparten varios hilos por nodo, el peor caso para el compare-and-set
+        AtomicLong ticks = new AtomicLong();
+        long start = millis(LocalDateTime.of(2026, 3, 1, 12, 0));
+        List<OrderNumberGenerator> generators = new ArrayList<>();
+        for (int node = 0; node < nodes; node++) {
+            int nodeId = node * 131 % (OrderNumberGenerator.MAX_NODE_ID + 1);
+            generators.add(new OrderNumberGenerator(nodeId, () -> start + ticks.incrementAndGet() / 20_000, ZONE));
+        }
+
+        Set<String> seen = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(nodes * threadsPerNode);
+        CountDownLatch ready = new CountDownLatch(nodes * threadsPerNode);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (OrderNumberGenerator generator : generators) {
+                for (int thread = 0; thread < threadsPerNode; thread++) {
+                    futures.add(executor.submit(() -> {
+                        ready.countDown();
+                        ready.await();
+                        String previous = "";
+                        for (int i = 0; i < perThread; i++) {
+                            String number = generator.next();
+                            assertTrue(number.compareTo(previous) > 0, number + " after " + previous);
+                            assertTrue(seen.add(number), "Duplicate order number " + number);
+                            previous = number;
+                        }
+                        return null;
+                    }));
+                }
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(nodes * threadsPerNode * perThread, seen.size());
+    }
+
+    @Test
+    void yearComesFromTheClockAndNumbersSortByTime() {
+        AtomicLong now = new AtomicLong(millis(LocalDateTime.of(2031, 12, 31, 23, 59, 59, 999_000_000)));
+        OrderNumberGenerator generator = new OrderNumberGenerator(7, now::get, ZONE);
+
+        String lastOf2031 = generator.next();
+        now.incrementAndGet();
+        String firstOf2032 = generator.next();
+        now.addAndGet(60_000);
+        String aMinuteLater = generator.next();
+
+        assertTrue(lastOf2031.matches("ORD-2031-[0-9A-HJKMNP-TV-Z]{13}"), lastOf2031);
+        assertTrue(firstOf2032.startsWith("ORD-2032-"), firstOf2032);
+        assertTrue(lastOf2031.compareTo(firstOf2032) < 0);
+        assertTrue(firstOf2032.compareTo(aMinuteLater) < 0);
+        assertTrue(lastOf2031.length() <= 50, "order_number is VARCHAR(50)");
+    }
+
+    @Test
+    void keepsIncreasingWhenTheClockGoesBackwards() {
+        AtomicLong now = new AtomicLong(millis(LocalDateTime.of(2026, 6, 1, 8, 0)));
+        OrderNumberGenerator generator = new OrderNumberGenerator(3, now::get, ZONE);
+
+        String before = generator.next();
+        now.addAndGet(-5_000);
+        String afterStep = generator.next();
+        // 4096 números en el mismo milisegundo pasan al siguiente sin esperar al reloj
+        String previous = afterStep;
+        for (int i = 0; i < 10_000; i++) {
+            String number = generator.next();
+            assertTrue(number.compareTo(previous) > 0);
+            previous = number;
+        }
+        assertTrue(before.compareTo(afterStep) < 0);
+    }
+
+    @Test
+    void rejectsNodeIdsOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> new OrderNumberGenerator(-1, System::currentTimeMillis, ZONE));
+        assertThrows(IllegalArgumentException.class,
+                () -> new OrderNumberGenerator(OrderNumberGenerator.MAX_NODE_ID + 1, System::currentTimeMillis, ZONE));
+    }
+
+    private static long millis(LocalDateTime time) {
+        return time.atZone(ZONE).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,549 @@
+package com.tecsup.app.micro.order.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tecsup.app.micro.order.cache.OrderResponseCache;
+import com.tecsup.app.micro.order.client.Product;
+import com.tecsup.app.micro.order.client.ProductClient;
+import com.tecsup.app.micro.order.client.User;
+import com.tecsup.app.micro.order.client.UserClient;
+import com.tecsup.app.micro.order.dto.BulkOrderResult;
+import com.tecsup.app.micro.order.dto.BulkStatusChangeResult;
+import com.tecsup.app.micro.order.dto.CreateOrderRequest;
+import com.tecsup.app.micro.order.dto.Order;
+import com.tecsup.app.micro.order.dto.OrderPage;
+import com.tecsup.app.micro.order.dto.OrderStats;
+import com.tecsup.app.micro.order.dto.OrderStatusResponse;
+import com.tecsup.app.micro.order.entity.OrderEntity;
+import com.tecsup.app.micro.order.entity.OrderItemEntity;
+import com.tecsup.app.micro.order.repository.OrderItemRepository;
+import com.tecsup.app.micro.order.repository.OrderRepository;
+import com.tecsup.app.micro.order.repository.OrderStatsDeltaRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ActiveProfiles("test")
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "order.processing.retry-delay=0s",
+        "order.processing.max-attempts=2"
+})
+class OrderServicePersistenceTest {
+
+    // Secuencias (a lo sumo dos llamadas cada una) + un INSERT de la orden + un lote de items
+    // + el INSERT del delta de estadísticas
+    private static final long MAX_STATEMENTS_PER_ORDER = 9;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private BulkOrderService bulkOrderService;
+
+    @Autowired
+    private OrderListingService orderListingService;
+
+    @Autowired
+    private AsyncOrderService asyncOrderService;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderResponseCache orderResponseCache;
+
+    @Autowired
+    private OrderStatsService orderStatsService;
+
+    @Autowired
+    private OrderStatsDeltaRepository statsDeltaRepository;
+
+    @Autowired
+    private OrderExportService orderExportService;
+
+    @Autowired
+    private OrderStatusService orderStatusService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockitoBean
+    private UserClient userClient;
+
+    @MockitoBean
+    private ProductClient productClient;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        given(userClient.getUserById(any())).willReturn(new User(1L, "John Doe", "john@example.com", null, null));
+        given(productClient.getProductsForPricing(anyCollection())).willAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return ids.stream().distinct().collect(Collectors.toMap(Function.identity(),
+                    id -> new Product(id, "Product " + id, null, new BigDecimal("10.00"), 100, null, null)));
+        });
+    }
+
+    @Test
+    void createOrder_UsesFixedNumberOfStatementsRegardlessOfItemCount() {
+        for (int itemCount : new int[]{1, 5, 40}) {
+            statistics.clear();
+
+            Order order = orderService.createOrder(request(itemCount));
+
+            assertEquals(itemCount, order.getItems().size());
+            assertEquals(new BigDecimal("10.00").multiply(BigDecimal.valueOf(itemCount)), order.getTotalAmount());
+            assertTrue(order.getOrderNumber().startsWith("ORD-"));
+            assertEquals(2 + itemCount, statistics.getEntityInsertCount());
+            assertEquals(0, statistics.getEntityUpdateCount());
+            assertTrue(statistics.getPrepareStatementCount() <= MAX_STATEMENTS_PER_ORDER,
+                    "Expected at most " + MAX_STATEMENTS_PER_ORDER + " statements for " + itemCount
+                            + " items but got " + statistics.getPrepareStatementCount());
+        }
+    }
+
+    @Test
+    void createOrder_ConcurrentRetriesWithSameIdempotencyKeyCreateOneOrder() throws Exception {
+        int callers = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        List<Future<Order>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < callers; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return orderService.createOrder(request(2), "checkout-7f3a");
+                }));
+            }
+            start.countDown();
+
+            Set<Long> ids = new HashSet<>();
+            for (Future<Order> result : results) {
+                ids.add(result.get().getId());
+            }
+            assertEquals(1, ids.size());
+            assertEquals(ids.iterator().next(), orderRepository.findIdByIdempotencyKey("checkout-7f3a").orElseThrow());
+        } finally {
+            pool.shutdown();
+        }
+        verify(userClient, times(1)).getUserById(any());
+        assertThrows(IllegalArgumentException.class, () -> orderService.createOrder(request(1), "bad key"));
+    }
+
+    @Test
+    void createOrders_ReportsInvalidOrdersWithoutRollingBackTheRest() throws Exception {
+        String json = """
+                [
+                  {"userId": 1, "items": [{"productId": 1, "quantity": 2}]},
+                  {"userId": null, "items": [{"productId": 1, "quantity": 1}]},
+                  {"userId": 2, "items": [{"productId": 2, "quantity": 0}]},
+                  {"userId": 2, "items": [{"productId": 1, "quantity": 1}, {"productId": 3, "quantity": 3}]}
+                ]
+                """;
+        statistics.clear();
+
+        List<BulkOrderResult> results = bulkOrderService.createOrders(
+                new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(4, results.size());
+        assertEquals(List.of(BulkOrderResult.CREATED, BulkOrderResult.FAILED, BulkOrderResult.FAILED, BulkOrderResult.CREATED),
+                results.stream().map(BulkOrderResult::getResult).toList());
+        assertEquals(new BigDecimal("20.00"), results.get(0).getTotalAmount());
+        assertEquals(new BigDecimal("40.00"), results.get(3).getTotalAmount());
+        assertNotNull(results.get(3).getOrderId());
+        // Dos órdenes, tres items y un delta de estadísticas por orden
+        assertEquals(7, statistics.getEntityInsertCount());
+        // Los productos de todo el bloque se validan en una sola llamada
+        verify(productClient, times(1)).getProductsForPricing(anyCollection());
+    }
+
+    @Test
+    void createOrders_RejectsOrdersWithFallbackUsersOrProducts() throws Exception {
+        given(userClient.getUserById(7L)).willReturn(unknownUser(7L));
+        given(productClient.getProductsForPricing(anyCollection())).willAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return ids.stream().distinct().collect(Collectors.toMap(Function.identity(), id -> id == 404L
+                    ? new Product(id, "Unknown product", null, BigDecimal.ZERO, 0, null, null)
+                    : new Product(id, "Product " + id, null, new BigDecimal("10.00"), 100, null, null)));
+        });
+        String json = """
+                [
+                  {"userId": 1, "items": [{"productId": 1, "quantity": 2}]},
+                  {"userId": 7, "items": [{"productId": 1, "quantity": 1}]},
+                  {"userId": 1, "items": [{"productId": 2, "quantity": 1}, {"productId": 404, "quantity": 1}]}
+                ]
+                """;
+
+        List<BulkOrderResult> results = bulkOrderService.createOrders(
+                new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(List.of(BulkOrderResult.CREATED, BulkOrderResult.FAILED, BulkOrderResult.FAILED),
+                results.stream().map(BulkOrderResult::getResult).toList());
+        assertEquals("User Service unavailable for user 7", results.get(1).getError());
+        assertEquals("Product Service unavailable for product 404", results.get(2).getError());
+        assertNull(results.get(2).getOrderId());
+    }
+
+    @Test
+    void createOrders_SavesTheRestOfAChunkWhenOneOrderFailsOnInsert() throws Exception {
+        // El subtotal del producto 9 no cabe en NUMERIC(10, 2): el bloque falla y se reintenta orden por orden
+        given(productClient.getProductsForPricing(anyCollection())).willAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return ids.stream().distinct().collect(Collectors.toMap(Function.identity(), id -> new Product(id,
+                    "Product " + id, null, new BigDecimal(id == 9L ? "99999999.00" : "10.00"), 100, null, null)));
+        });
+        String json = """
+                [
+                  {"userId": 1, "items": [{"productId": 1, "quantity": 2}]},
+                  {"userId": 1, "items": [{"productId": 9, "quantity": 5}]},
+                  {"userId": 2, "items": [{"productId": 2, "quantity": 1}, {"productId": 3, "quantity": 3}]}
+                ]
+                """;
+
+        List<BulkOrderResult> results = bulkOrderService.createOrders(
+                new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(List.of(BulkOrderResult.CREATED, BulkOrderResult.FAILED, BulkOrderResult.CREATED),
+                results.stream().map(BulkOrderResult::getResult).toList());
+        for (int i : new int[]{0, 2}) {
+            OrderEntity saved = orderRepository.findById(results.get(i).getOrderId()).orElseThrow();
+            assertEquals(0L, saved.getVersion());
+            assertEquals(results.get(i).getTotalAmount(), saved.getTotalAmount());
+        }
+        assertEquals(2, orderItemRepository.findByOrderIdOrderByIdAsc(results.get(2).getOrderId()).size());
+    }
+
+    @Test
+    void listByUser_WalksPagesWithKeysetCursorAndExpandsItemsInBatch() {
+        Long userId = 77L;
+        List<Long> created = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            created.add(orderService.createOrder(new CreateOrderRequest(userId,
+                    List.of(new CreateOrderRequest.CreateOrderItemRequest(1L, 1)))).getId());
+        }
+
+        List<Long> listed = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            OrderPage page = orderListingService.listByUser(userId, cursor, 2, true);
+            page.getOrders().forEach(order -> {
+                listed.add(order.getId());
+                assertEquals(1, order.getItems().size());
+                assertEquals("Product 1", order.getItems().get(0).getProduct().getName());
+            });
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        Collections.reverse(created);
+        assertEquals(created, listed);
+        assertEquals(3, pages);
+        // Los items llevan la copia del producto: expandirlos no consulta el product service
+        verify(productClient, never()).getProductsByIds(anyCollection());
+    }
+
+    @Test
+    void listByStatus_AcceptsAnyCaseAndRejectsUnknownStatuses() {
+        Order created = orderService.createOrder(request(1));
+
+        OrderPage page = orderListingService.listByStatus(" " + created.getStatus().toLowerCase() + " ", null, 20, false);
+
+        assertTrue(page.getOrders().stream().anyMatch(order -> order.getId().equals(created.getId())));
+        assertThrows(IllegalArgumentException.class, () -> orderListingService.listByStatus("SHIPED", null, 20, false));
+    }
+
+    @Test
+    void getOrderById_ShowsProductAsItWasWhenBought() {
+        Order created = orderService.createOrder(request(2));
+        given(productClient.getProductsByIds(anyCollection())).willAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return ids.stream().distinct().collect(Collectors.toMap(Function.identity(),
+                    id -> new Product(id, "Renamed " + id, null, new BigDecimal("99.00"), 100, null, null)));
+        });
+
+        List<OrderItemEntity> rows = orderItemRepository.findByOrderIdOrderByIdAsc(created.getId());
+        assertEquals("Product 1", rows.get(0).getProductName());
+
+        // Sin la respuesta cacheada de la creación, para armar la orden desde las filas
+        orderResponseCache.invalidate(created.getId());
+        Order read = orderService.getOrderById(created.getId());
+
+        assertEquals(List.of("Product 1", "Product 2"),
+                read.getItems().stream().map(item -> item.getProduct().getName()).toList());
+        assertEquals(new BigDecimal("10.00"), read.getItems().get(0).getProduct().getPrice());
+        verify(productClient, never()).getProductsByIds(anyCollection());
+    }
+
+    @Test
+    void acceptOrder_IsConfirmedInBatchByWorkerOrCancelledAfterMaxAttempts() {
+        // Con el user service caído el cliente no lanza: devuelve el usuario genérico del fallback
+        given(userClient.getUserById(7L)).willReturn(unknownUser(7L));
+        OrderStatusResponse accepted = asyncOrderService.acceptOrder(request(3));
+        OrderStatusResponse rejected = asyncOrderService.acceptOrder(new CreateOrderRequest(7L,
+                List.of(new CreateOrderRequest.CreateOrderItemRequest(1L, 1))));
+
+        assertEquals("PENDING", accepted.getStatus());
+        assertEquals(0, BigDecimal.ZERO.compareTo(asyncOrderService.getOrderStatus(accepted.getId()).getTotalAmount()));
+        // La lectura deja en caché la orden PENDING; confirmarla debe invalidarla
+        assertEquals("PENDING", orderService.getOrderById(accepted.getId()).getStatus());
+
+        assertEquals(2, asyncOrderService.processPending());
+        OrderStatusResponse confirmed = asyncOrderService.getOrderStatus(accepted.getId());
+        assertEquals("CONFIRMED", confirmed.getStatus());
+        assertEquals(new BigDecimal("30.00"), confirmed.getTotalAmount());
+        assertEquals(3, orderItemRepository.findByOrderIdOrderByIdAsc(accepted.getId()).size());
+        given(productClient.getProductsByIds(anyCollection())).willAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return ids.stream().distinct().collect(Collectors.toMap(Function.identity(),
+                    id -> new Product(id, "Product " + id, null, new BigDecimal("10.00"), 100, null, null)));
+        });
+        Order assembled = orderService.getOrderById(accepted.getId());
+        assertEquals("CONFIRMED", assembled.getStatus());
+        assertEquals(3, assembled.getItems().size());
+        assertEquals("PENDING", asyncOrderService.getOrderStatus(rejected.getId()).getStatus());
+
+        // Segundo intento del que falló; con max-attempts=2 la orden se cancela
+        assertEquals(1, asyncOrderService.processPending());
+        OrderStatusResponse cancelled = asyncOrderService.getOrderStatus(rejected.getId());
+        assertEquals("CANCELLED", cancelled.getStatus());
+        assertEquals("User Service unavailable for user 7", cancelled.getError());
+        assertEquals(0, asyncOrderService.processPending());
+        verify(productClient, times(2)).getProductsForPricing(anyCollection());
+    }
+
+    @Test
+    void acceptOrder_IsNotConfirmedWithFallbackProductPrices() {
+        given(productClient.getProductsForPricing(anyCollection())).willAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return ids.stream().distinct().collect(Collectors.toMap(Function.identity(), id -> id == 404L
+                    ? new Product(id, "Unknown product", null, BigDecimal.ZERO, null, null, null)
+                    : new Product(id, "Product " + id, null, new BigDecimal("10.00"), 100, null, null)));
+        });
+        OrderStatusResponse accepted = asyncOrderService.acceptOrder(new CreateOrderRequest(1L, List.of(
+                new CreateOrderRequest.CreateOrderItemRequest(1L, 1),
+                new CreateOrderRequest.CreateOrderItemRequest(404L, 2))));
+
+        assertEquals(1, asyncOrderService.processPending());
+        assertEquals("PENDING", asyncOrderService.getOrderStatus(accepted.getId()).getStatus());
+        assertTrue(orderItemRepository.findByOrderIdOrderByIdAsc(accepted.getId()).isEmpty());
+
+        assertEquals(1, asyncOrderService.processPending());
+        OrderStatusResponse cancelled = asyncOrderService.getOrderStatus(accepted.getId());
+        assertEquals("CANCELLED", cancelled.getStatus());
+        assertEquals(0, BigDecimal.ZERO.compareTo(cancelled.getTotalAmount()));
+        assertEquals("Product Service unavailable for product 404", cancelled.getError());
+    }
+
+    @Test
+    void getStats_FollowsCreatedConfirmedAndCancelledOrdersAfterFlush() {
+        orderStatsService.flush();
+        OrderStats before = orderStatsService.getStats(null, null, 0);
+        List<CreateOrderRequest.CreateOrderItemRequest> items = List.of(
+                new CreateOrderRequest.CreateOrderItemRequest(9001L, 2),
+                new CreateOrderRequest.CreateOrderItemRequest(9001L, 1),
+                new CreateOrderRequest.CreateOrderItemRequest(9002L, 1));
+
+        Order created = orderService.createOrder(new CreateOrderRequest(1L, items));
+        // El delta se guarda con la orden: una réplica que cae antes del flush no lo pierde
+        assertTrue(statsDeltaRepository.count() > 0);
+        OrderEntity entity = orderRepository.findById(created.getId()).orElseThrow();
+        assertThrows(IllegalStateException.class, () -> orderStatsService.recordCreated(entity, List.of()));
+        given(userClient.getUserById(8L)).willReturn(unknownUser(8L));
+        asyncOrderService.acceptOrder(new CreateOrderRequest(1L, items));
+        asyncOrderService.acceptOrder(new CreateOrderRequest(8L, items));
+        asyncOrderService.processPending();
+        asyncOrderService.processPending();
+        assertTrue(orderStatsService.flush() > 0);
+
+        OrderStats after = orderStatsService.getStats(null, null, 100);
+        assertEquals(1, orders(after, "PENDING") - orders(before, "PENDING"));
+        assertEquals(1, orders(after, "CONFIRMED") - orders(before, "CONFIRMED"));
+        assertEquals(1, orders(after, "CANCELLED") - orders(before, "CANCELLED"));
+        assertEquals(new BigDecimal("40.00"), after.getByStatus().get("CONFIRMED").getAmount()
+                .subtract(amount(before, "CONFIRMED")));
+        OrderStats.DailyTotals today = after.getDaily().get(after.getDaily().size() - 1);
+        assertEquals(LocalDate.now(), today.getDate());
+
+        OrderStats.ProductSales top = after.getTopProducts().stream()
+                .filter(product -> product.getProductId().equals(9001L))
+                .findFirst().orElseThrow();
+        // Dos órdenes guardadas con items (la síncrona y la confirmada), tres unidades cada una
+        assertEquals(6, top.getUnitsSold());
+        assertEquals(2, top.getOrders());
+        assertEquals(new BigDecimal("60.00"), top.getRevenue());
+        assertEquals("Product 9001", top.getProductName());
+        assertEquals(0, orderStatsService.flush());
+        assertEquals(0, statsDeltaRepository.count());
+    }
+
+    @Test
+    void export_StreamsOrdersWithItemsAsNdjsonAndCsv() throws Exception {
+        given(productClient.getProductsForPricing(anyCollection())).willAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return ids.stream().distinct().collect(Collectors.toMap(Function.identity(),
+                    id -> new Product(id, "Desk, \"oak\" " + id, null, new BigDecimal("10.00"), 100, null, null)));
+        });
+        Order first = orderService.createOrder(request(2));
+        Order second = orderService.createOrder(request(1));
+        // Solo las dos órdenes de este test, con margen por el redondeo a microsegundos de la columna
+        LocalDateTime from = first.getCreatedAt().minusNanos(1_000);
+        LocalDateTime to = second.getCreatedAt().plusNanos(1_000);
+
+        ByteArrayOutputStream ndjson = new ByteArrayOutputStream();
+        assertEquals(2, orderExportService.export(from, to, OrderExportService.Format.NDJSON, ndjson));
+        List<String> lines = List.of(ndjson.toString(StandardCharsets.UTF_8).split("\n"));
+        assertEquals(2, lines.size());
+        JsonNode firstLine = objectMapper.readTree(lines.get(0));
+        assertEquals(first.getId(), firstLine.get("id").asLong());
+        assertEquals(2, firstLine.get("items").size());
+        assertEquals("Desk, \"oak\" 2", firstLine.get("items").get(1).get("productName").asText());
+        assertEquals(second.getId(), objectMapper.readTree(lines.get(1)).get("id").asLong());
+
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        orderExportService.export(from, to, OrderExportService.Format.CSV, csv);
+        List<String> rows = List.of(csv.toString(StandardCharsets.UTF_8).split("\n"));
+        // Cabecera + una línea por item
+        assertEquals(4, rows.size());
+        assertTrue(rows.get(1).startsWith(first.getId() + "," + first.getOrderNumber() + ",1,PENDING,20.00,"));
+        assertTrue(rows.get(1).endsWith(",1,\"Desk, \"\"oak\"\" 1\",1,10.00,10.00"), rows.get(1));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> orderExportService.export(to, from, OrderExportService.Format.CSV, new ByteArrayOutputStream()));
+    }
+
+    @Test
+    void changeStatus_ChecksTransitionAndVersion() throws Exception {
+        Order order = orderService.createOrder(request(1));
+        // Se llena la caché de respuestas para comprobar que el cambio la invalida
+        orderService.getOrderJson(order.getId());
+        assertEquals("W/\"" + order.getId() + "-0\"", orderService.getOrderETag(order.getId()));
+
+        OrderStatusResponse confirmed = orderStatusService.changeStatus(order.getId(), "confirmed", 0L);
+
+        assertEquals("CONFIRMED", confirmed.getStatus());
+        assertEquals(1L, confirmed.getVersion());
+        assertEquals("W/\"" + order.getId() + "-1\"", orderService.getOrderETag(order.getId()));
+        assertNull(orderService.getOrderETag(-1L));
+        assertEquals("CONFIRMED", objectMapper.readTree(orderService.getOrderJson(order.getId())).get("status").asText());
+        // Versión vieja, transición hacia atrás y estado desconocido
+        assertThrows(IllegalStateException.class, () -> orderStatusService.changeStatus(order.getId(), "SHIPPED", 0L));
+        assertThrows(IllegalStateException.class, () -> orderStatusService.changeStatus(order.getId(), "PENDING", null));
+        assertThrows(IllegalArgumentException.class, () -> orderStatusService.changeStatus(order.getId(), "LOST", null));
+        assertEquals(1L, orderRepository.findById(order.getId()).orElseThrow().getVersion());
+    }
+
+    @Test
+    void changeStatus_BulkUpdatesEligibleOrdersAndReportsTheRest() {
+        Order confirmed = orderService.createOrder(request(1));
+        Order pending = orderService.createOrder(request(2));
+        orderStatusService.changeStatus(confirmed.getId(), "CONFIRMED", null);
+        LocalDateTime updatedBefore = orderRepository.findById(confirmed.getId()).orElseThrow().getUpdatedAt();
+        long missing = Long.MAX_VALUE;
+
+        BulkStatusChangeResult result = orderStatusService.changeStatus(
+                List.of(confirmed.getId(), pending.getId(), missing, confirmed.getId()), "SHIPPED");
+
+        assertEquals(3, result.getRequested());
+        assertEquals(1, result.getUpdated());
+        Map<Long, BulkStatusChangeResult.Skipped> skipped = result.getSkipped().stream()
+                .collect(Collectors.toMap(BulkStatusChangeResult.Skipped::getOrderId, Function.identity()));
+        assertEquals(Set.of(pending.getId(), missing), skipped.keySet());
+        assertEquals("PENDING", skipped.get(pending.getId()).getCurrentStatus());
+        assertNull(skipped.get(missing).getCurrentStatus());
+
+        OrderEntity shipped = orderRepository.findById(confirmed.getId()).orElseThrow();
+        assertEquals("SHIPPED", shipped.getStatus());
+        // El UPDATE en bloque también avanza la versión y updated_at
+        assertEquals(2L, shipped.getVersion());
+        assertTrue(shipped.getUpdatedAt().isAfter(updatedBefore));
+        assertEquals("PENDING", orderRepository.findById(pending.getId()).orElseThrow().getStatus());
+        assertThrows(IllegalArgumentException.class, () -> orderStatusService.changeStatus(List.of(), "SHIPPED"));
+    }
+
+    @Test
+    void changeStatus_LeavesConfirmingAcceptedOrdersToTheWorker() {
+        OrderStatusResponse accepted = asyncOrderService.acceptOrder(request(2));
+        Order pending = orderService.createOrder(request(1));
+
+        assertThrows(IllegalStateException.class, () -> orderStatusService.changeStatus(accepted.getId(), "CONFIRMED", null));
+        BulkStatusChangeResult result = orderStatusService.changeStatus(List.of(accepted.getId(), pending.getId()), "CONFIRMED");
+        assertEquals(1, result.getUpdated());
+        assertEquals(accepted.getId(), result.getSkipped().get(0).getOrderId());
+        assertEquals("PENDING", orderRepository.findById(accepted.getId()).orElseThrow().getStatus());
+
+        // El worker sí la confirma, con sus items y su total
+        asyncOrderService.processPending();
+        OrderStatusResponse confirmed = asyncOrderService.getOrderStatus(accepted.getId());
+        assertEquals("CONFIRMED", confirmed.getStatus());
+        assertEquals(new BigDecimal("20.00"), confirmed.getTotalAmount());
+        assertEquals(2, orderItemRepository.findByOrderIdOrderByIdAsc(accepted.getId()).size());
+    }
+
+    private long orders(OrderStats stats, String status) {
+        OrderStats.StatusTotals totals = stats.getByStatus().get(status);
+        return totals == null ? 0 : totals.getOrders();
+    }
+
+    private BigDecimal amount(OrderStats stats, String status) {
+        OrderStats.StatusTotals totals = stats.getByStatus().get(status);
+        return totals == null ? BigDecimal.ZERO : totals.getAmount();
+    }
+
+    // Lo que devuelve UserClient cuando el user service no responde y no hay copia en caché
+    private User unknownUser(Long id) {
+        return new User(id, "Unknown User", "Unknown Email", null, null);
+    }
+
+    private CreateOrderRequest request(int itemCount) {
+        List<CreateOrderRequest.CreateOrderItemRequest> items = LongStream.rangeClosed(1, itemCount)
+                .mapToObj(productId -> new CreateOrderRequest.CreateOrderItemRequest(productId, 1))
+                .toList();
+        return new CreateOrderRequest(1L, items);
+    }
+}
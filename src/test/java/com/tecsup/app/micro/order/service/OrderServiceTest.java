@@ -1,25 +1,45 @@
 package com.tecsup.app.micro.order.service;
 
+import com.tecsup.app.micro.order.archive.OrderArchive;
+import com.tecsup.app.micro.order.cache.OrderResponseCache;
 import com.tecsup.app.micro.order.client.Product;
 import com.tecsup.app.micro.order.client.ProductClient;
 import com.tecsup.app.micro.order.client.User;
 import com.tecsup.app.micro.order.client.UserClient;
+import com.tecsup.app.micro.order.config.OrderReadProperties;
+import com.tecsup.app.micro.order.dto.CreateOrderRequest;
 import com.tecsup.app.micro.order.dto.Order;
 import com.tecsup.app.micro.order.entity.OrderEntity;
 import com.tecsup.app.micro.order.entity.OrderItemEntity;
 import com.tecsup.app.micro.order.repository.OrderItemRepository;
 import com.tecsup.app.micro.order.repository.OrderRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -39,6 +59,22 @@ class OrderServiceTest {
     @Mock
     private ProductClient productClient;
 
+    @Spy
+    private OrderReadProperties readProperties = new OrderReadProperties();
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Mock
+    private OrderResponseCache orderResponseCache;
+
+    @Mock
+    private OrderArchive orderArchive;
+
+    // Ejecuta el bloque sin transacción real
+    @Spy
+    private TransactionTemplate readOnlyTransactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
     @InjectMocks
     private OrderService orderService;
 
@@ -74,8 +110,8 @@ class OrderServiceTest {
     void getOrderById_Success() {
         when(orderRepository.findById(1L)).thenReturn(Optional.of(orderEntity));
         when(userClient.getUserById(1L)).thenReturn(user);
-        when(orderItemRepository.findAll()).thenReturn(Collections.singletonList(orderItemEntity));
-        when(productClient.getProductById(1L)).thenReturn(product);
+        when(orderItemRepository.findByOrderIdOrderByIdAsc(1L)).thenReturn(Collections.singletonList(orderItemEntity));
+        when(productClient.getProductsByIds(List.of(1L))).thenReturn(Map.of(1L, product));
 
         Order result = orderService.getOrderById(1L);
 
@@ -87,7 +123,112 @@ class OrderServiceTest {
         
         verify(orderRepository).findById(1L);
         verify(userClient).getUserById(1L);
-        verify(productClient).getProductById(1L);
+        verify(productClient).getProductsByIds(List.of(1L));
+        verify(orderResponseCache).put(result);
+    }
+
+    @Test
+    void getOrderById_ServesCachedResponseWithoutLookups() {
+        Order cached = new Order();
+        cached.setId(1L);
+        cached.setOrderNumber("ORD-2025-0001");
+        when(orderResponseCache.get(1L)).thenReturn(Optional.of(cached));
+
+        Order result = orderService.getOrderById(1L);
+
+        assertSame(cached, result);
+        verifyNoInteractions(orderRepository, orderItemRepository, userClient, productClient);
+    }
+
+    @Test
+    void getOrderJson_ReturnsCachedBytesWithoutAssemblingOrSerializing() {
+        byte[] json = "{\"id\":1}".getBytes();
+        when(orderResponseCache.getJson(1L)).thenReturn(json);
+
+        assertSame(json, orderService.getOrderJson(1L));
+        verify(orderResponseCache, never()).encode(any());
+        verifyNoInteractions(orderRepository, orderItemRepository, userClient, productClient);
+    }
+
+    @Test
+    void getOrderById_BuildsItemsFromProductSnapshotWithoutProductLookup() {
+        orderItemEntity.setProductName("Product 1 (2025)");
+        orderItemEntity.setProductCategory("Cat");
+        when(orderRepository.findById(1L)).thenReturn(Optional.of(orderEntity));
+        when(userClient.getUserById(1L)).thenReturn(user);
+        when(orderItemRepository.findByOrderIdOrderByIdAsc(1L)).thenReturn(Collections.singletonList(orderItemEntity));
+
+        Order result = orderService.getOrderById(1L);
+
+        assertEquals("Product 1 (2025)", result.getItems().get(0).getProduct().getName());
+        assertEquals(new BigDecimal("50.00"), result.getItems().get(0).getProduct().getPrice());
+        verifyNoInteractions(productClient);
+        verify(orderResponseCache).put(result);
+    }
+
+    @Test
+    void getOrderById_LiveProductLookupIgnoresSnapshot() {
+        readProperties.setLiveProductLookup(true);
+        orderItemEntity.setProductName("Product 1 (2025)");
+        when(orderRepository.findById(1L)).thenReturn(Optional.of(orderEntity));
+        when(userClient.getUserById(1L)).thenReturn(user);
+        when(orderItemRepository.findByOrderIdOrderByIdAsc(1L)).thenReturn(Collections.singletonList(orderItemEntity));
+        when(productClient.getProductsByIds(List.of(1L))).thenReturn(Map.of(1L, product));
+
+        Order result = orderService.getOrderById(1L);
+
+        assertEquals("Product 1", result.getItems().get(0).getProduct().getName());
+    }
+
+    @Test
+    void getOrderById_UsesIndexedItemLookup() {
+        when(orderRepository.findById(1L)).thenReturn(Optional.of(orderEntity));
+        when(userClient.getUserById(1L)).thenReturn(user);
+        when(orderItemRepository.findByOrderIdOrderByIdAsc(1L)).thenReturn(Collections.singletonList(orderItemEntity));
+        when(productClient.getProductsByIds(List.of(1L))).thenReturn(Map.of(1L, product));
+
+        orderService.getOrderById(1L);
+
+        // Un findAll() sobre order_items significa volver al recorrido completo de la tabla
+        verify(orderItemRepository).findByOrderIdOrderByIdAsc(1L);
+        verify(orderItemRepository, never()).findAll();
+        verify(orderItemRepository, never()).findAll(any(Sort.class));
+        verify(orderItemRepository, never()).findAll(any(Pageable.class));
+    }
+
+    @Test
+    void getOrderById_ParallelModeFallsBackWhenDeadlineIsExceeded() {
+        OrderReadProperties readProperties = new OrderReadProperties();
+        readProperties.setExecutionMode(OrderReadProperties.ExecutionMode.PARALLEL);
+        readProperties.setDeadline(Duration.ofMillis(200));
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        OrderService parallelService = new OrderService(orderRepository, orderItemRepository, userClient,
+                productClient, null, readProperties, executor, meterRegistry, null, readOnlyTransactionTemplate,
+                orderResponseCache, null, null, null, orderArchive);
+
+        User unknownUser = new User(1L, "Unknown User", "Unknown Email", null, null);
+        when(orderRepository.findById(1L)).thenReturn(Optional.of(orderEntity));
+        when(orderItemRepository.findByOrderIdOrderByIdAsc(1L)).thenReturn(Collections.singletonList(orderItemEntity));
+        when(userClient.getUserById(1L)).thenAnswer(invocation -> {
+            Thread.sleep(2_000);
+            return user;
+        });
+        when(userClient.getUserByIdFallback(eq(1L), any())).thenReturn(unknownUser);
+        when(productClient.getProductsByIds(List.of(1L))).thenReturn(Map.of(1L, product));
+
+        try {
+            long start = System.nanoTime();
+            Order result = parallelService.getOrderById(1L);
+            long elapsedMillis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+            assertEquals("Unknown User", result.getUser().getName());
+            assertEquals("Product 1", result.getItems().get(0).getProduct().getName());
+            assertTrue(elapsedMillis < 1_000, "Read took " + elapsedMillis + " ms");
+            // Una respuesta con datos de fallback no se cachea
+            verify(orderResponseCache, never()).put(any());
+        } finally {
+            executor.shutdownNow();
+        }
     }
 
     @Test
@@ -100,5 +241,48 @@ class OrderServiceTest {
 
         assertEquals("Order not found with id: 99", exception.getMessage());
     }
-}
 
+    @Test
+    void priceItems_DoesNotSnapshotFallbackProducts() {
+        Product unknown = new Product(2L, "Unknown product", null, BigDecimal.ZERO, null, null, null);
+        List<OrderItemEntity> priced = orderService.priceItems(List.of(
+                        new CreateOrderRequest.CreateOrderItemRequest(1L, 1),
+                        new CreateOrderRequest.CreateOrderItemRequest(2L, 1)),
+                Map.of(1L, product, 2L, unknown));
+
+        assertEquals("Product 1", priced.get(0).getProductName());
+        assertEquals("Cat", priced.get(0).getProductCategory());
+        assertNull(priced.get(1).getProductName());
+        assertNull(priced.get(1).getProductCategory());
+        // Sin copia, el item se resuelve de nuevo contra el product service al leerlo
+        assertEquals(List.of(2L), OrderItemService.productIdsToResolve(priced, false));
+    }
+
+    @Test
+    void priceItems_MatchesBigDecimalArithmetic() {
+        long seed = System.nanoTime();
+        Random random = new Random(seed);
+        for (int order = 0; order < 1_000; order++) {
+            List<CreateOrderRequest.CreateOrderItemRequest> items = new ArrayList<>();
+            Map<Long, Product> products = new HashMap<>();
+            BigDecimal expectedTotal = BigDecimal.ZERO;
+            List<BigDecimal> expectedSubtotals = new ArrayList<>();
+            int lines = 1 + random.nextInt(50);
+            for (long productId = 1; productId <= lines; productId++) {
+                // Algunos precios llegan con más de dos decimales y se redondea el subtotal
+                BigDecimal price = BigDecimal.valueOf(random.nextInt(10_000_000), 2 + random.nextInt(3));
+                int quantity = 1 + random.nextInt(1_000);
+                products.put(productId, new Product(productId, "Product " + productId, null, price, 10, "Cat", 1L));
+                items.add(new CreateOrderRequest.CreateOrderItemRequest(productId, quantity));
+
+                BigDecimal subtotal = price.multiply(BigDecimal.valueOf(quantity)).setScale(2, RoundingMode.HALF_UP);
+                expectedSubtotals.add(subtotal);
+                expectedTotal = expectedTotal.add(subtotal);
+            }
+
+            List<OrderItemEntity> priced = orderService.priceItems(items, products);
+            assertEquals(expectedSubtotals, priced.stream().map(OrderItemEntity::getSubtotal).toList(), "seed=" + seed);
+            assertEquals(expectedTotal, orderService.totalOf(priced), "seed=" + seed);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.tecsup.app.micro.order.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Propiedades: para cualquier precio y cantidad, {@link PricingEngine} da el mismo resultado que la
+ * aritmética con BigDecimal que reemplaza, o ArithmeticException si el resultado no cabe en un long.
+ * Cada ejecución usa una semilla distinta; si falla, el mensaje la incluye para reproducir el caso.
+ */
+class PricingEngineTest {
+
+    private static final int CASES = 200_000;
+
+    private final long seed = System.nanoTime();
+    private final Random random = new Random(seed);
+
+    @Test
+    void subtotalMatchesBigDecimalHalfUpForAnyPriceAndQuantity() {
+        for (int i = 0; i < CASES; i++) {
+            BigDecimal unitPrice = randomPrice();
+            int quantity = randomQuantity();
+            BigDecimal expected = unitPrice.multiply(BigDecimal.valueOf(quantity)).setScale(2, RoundingMode.HALF_UP);
+            String message = "seed=" + seed + " unitPrice=" + unitPrice + " quantity=" + quantity;
+
+            if (expected.unscaledValue().bitLength() < Long.SIZE) {
+                assertEquals(expected, PricingEngine.toAmount(PricingEngine.subtotalCents(unitPrice, quantity)), message);
+            } else {
+                assertThrows(ArithmeticException.class, () -> PricingEngine.subtotalCents(unitPrice, quantity), message);
+            }
+        }
+    }
+
+    @Test
+    void totalInCentsMatchesBigDecimalSum() {
+        for (int i = 0; i < CASES / 50; i++) {
+            BigDecimal expected = BigDecimal.ZERO;
+            long totalCents = 0;
+            int items = 1 + random.nextInt(100);
+            for (int item = 0; item < items; item++) {
+                BigDecimal subtotal = BigDecimal.valueOf(random.nextLong(10_000_000_000L), 2);
+                expected = expected.add(subtotal);
+                totalCents = Math.addExact(totalCents, PricingEngine.toCents(subtotal));
+            }
+            assertEquals(expected, PricingEngine.toAmount(totalCents), "seed=" + seed);
+        }
+    }
+
+    @Test
+    void roundsHalfUpAwayFromZero() {
+        assertEquals(1, PricingEngine.subtotalCents(new BigDecimal("0.005"), 1));
+        assertEquals(0, PricingEngine.subtotalCents(new BigDecimal("0.0049999"), 1));
+        assertEquals(-1, PricingEngine.subtotalCents(new BigDecimal("-0.005"), 1));
+        assertEquals(113, PricingEngine.subtotalCents(new BigDecimal("1.125"), 1));
+        assertEquals(5_999, PricingEngine.subtotalCents(new BigDecimal("19.995"), 3));
+        assertEquals(300_000, PricingEngine.subtotalCents(new BigDecimal("1E+3"), 3));
+        assertEquals(2_499, PricingEngine.subtotalCents(new BigDecimal("12.495"), 2));
+        // 18 dígitos × 1000 desborda el producto intermedio, no el subtotal
+        assertEquals(1_000_000, PricingEngine.subtotalCents(new BigDecimal("10.0000000000000005"), 1_000));
+    }
+
+    @Test
+    void rejectsAmountsThatDoNotFitInCents() {
+        assertThrows(ArithmeticException.class,
+                () -> PricingEngine.subtotalCents(new BigDecimal("999999999999999.99"), Integer.MAX_VALUE));
+        assertThrows(ArithmeticException.class,
+                () -> PricingEngine.subtotalCents(new BigDecimal("92233720368547758.08"), 1));
+        assertThrows(ArithmeticException.class, () -> PricingEngine.toCents(new BigDecimal("0.001")));
+        assertEquals(250, PricingEngine.toCents(new BigDecimal("2.500")));
+        assertEquals(500, PricingEngine.toCents(BigDecimal.valueOf(5)));
+    }
+
+    // Mayormente precios de catálogo con 2 decimales; también escalas raras y valores enormes
+    private BigDecimal randomPrice() {
+        int kind = random.nextInt(10);
+        if (kind < 5) {
+            return BigDecimal.valueOf(random.nextLong(100_000_000L), 2);
+        }
+        if (kind < 8) {
+            return BigDecimal.valueOf(random.nextLong(-1_000_000_000L, 1_000_000_000L), random.nextInt(-3, 10));
+        }
+        if (kind == 8) {
+            // Hasta 18 dígitos: el producto por la cantidad puede no caber en un long
+            return BigDecimal.valueOf(random.nextLong(-999_999_999_999_999_999L, 1_000_000_000_000_000_000L),
+                    random.nextInt(-2, 21));
+        }
+        return new BigDecimal(new BigInteger(20 + random.nextInt(60), random), random.nextInt(0, 25));
+    }
+
+    private int randomQuantity() {
+        return random.nextInt(10) == 0 ? 1 + random.nextInt(Integer.MAX_VALUE - 1) : 1 + random.nextInt(1_000);
+    }
+}
@@ -0,0 +1,329 @@
+package com.tecsup.app.micro.order.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.tecsup.app.micro.order.cache.OrderResponseCache;
+import com.tecsup.app.micro.order.client.DownstreamMetrics;
+import com.tecsup.app.micro.order.client.DownstreamResilience;
+import com.tecsup.app.micro.order.client.NearCache;
+import com.tecsup.app.micro.order.client.NearCacheProperties;
+import com.tecsup.app.micro.order.client.Product;
+import com.tecsup.app.micro.order.client.ProductClient;
+import com.tecsup.app.micro.order.client.RestTemplateHttpClient;
+import com.tecsup.app.micro.order.client.StockAdjustment;
+import com.tecsup.app.micro.order.client.StockLevel;
+import com.tecsup.app.micro.order.config.OrderStockProperties;
+import com.tecsup.app.micro.order.dto.CreateOrderRequest;
+import com.tecsup.app.micro.order.entity.OrderEntity;
+import com.tecsup.app.micro.order.repository.OrderRepository;
+import com.tecsup.app.micro.order.repository.OrderStockAdjustmentRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Los contadores de cada instancia de {@link StockReservationService} son los de una réplica; las
+ * filas pendientes de enviar viven en la base de datos compartida.
+ */
+@ActiveProfiles("test")
+@SpringBootTest
+class StockReservationServiceTest {
+
+    private static final int PRODUCTS = 5;
+    private static final long INITIAL_STOCK = 300;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private HttpServer server;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private ProductClient productClient;
+    private OrderStockProperties properties;
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderStockAdjustmentRepository adjustmentRepository;
+
+    @Autowired
+    private OrderStatsService orderStatsService;
+
+    @Autowired
+    private OrderResponseCache orderResponseCache;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // Stock del product service simulado; rechaza con 409 cualquier lote que lo deje en negativo
+    private final Map<Long, Long> remoteStock = new ConcurrentHashMap<>();
+    private final AtomicInteger confirmCalls = new AtomicInteger();
+    private final AtomicInteger rejectedCalls = new AtomicInteger();
+    private volatile boolean remoteDown;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        LongStream.rangeClosed(1, PRODUCTS).forEach(id -> remoteStock.put(id, INITIAL_STOCK));
+
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newFixedThreadPool(4));
+        server.createContext("/api/products/stock/reservations", this::handle);
+        server.start();
+
+        NearCacheProperties.Spec cacheSpec = new NearCacheProperties.Spec(Duration.ofMinutes(5), Duration.ofMinutes(1), 100);
+        adjustmentRepository.deleteAll();
+        productClient = new ProductClient(new RestTemplateHttpClient(new RestTemplate()),
+                DownstreamResilience.ofDefaults(scheduler), Runnable::run, new NearCache<>("product", cacheSpec, Runnable::run),
+                new NearCacheProperties(), new DownstreamMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(productClient, "productServiceUrl",
+                "http://localhost:" + server.getAddress().getPort());
+
+        properties = new OrderStockProperties();
+        properties.setEnabled(true);
+        properties.setConfirmBatchSize(20);
+        stockReservationService = replica();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    void reserve_NeverOversellsUnderConcurrentOrdersAndBatchedConfirmations() throws Exception {
+        // El stock que ve cada orden es el del primer cálculo de precios y nunca se actualiza
+        Map<Long, Product> products = products();
+        Map<Long, AtomicLong> committed = new ConcurrentHashMap<>();
+        AtomicInteger refused = new AtomicInteger();
+        int threads = 8;
+        int ordersPerThread = 400;
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean ordering = new AtomicBoolean(true);
+        try {
+            Future<?> confirmer = pool.submit(() -> {
+                start.await();
+                while (ordering.get()) {
+                    stockReservationService.confirmPending();
+                    Thread.sleep(1);
+                }
+                return null;
+            });
+
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                workers.add(pool.submit(() -> {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < ordersPerThread; i++) {
+                        List<CreateOrderRequest.CreateOrderItemRequest> items = new ArrayList<>();
+                        for (int item = random.nextInt(1, 4); item > 0; item--) {
+                            items.add(new CreateOrderRequest.CreateOrderItemRequest(
+                                    random.nextLong(1, PRODUCTS + 1), random.nextInt(1, 4)));
+                        }
+                        StockReservationService.Reservation reservation;
+                        try {
+                            reservation = stockReservationService.reserve(items, products);
+                        } catch (IllegalStateException e) {
+                            refused.incrementAndGet();
+                            continue;
+                        }
+                        // Una de cada cinco órdenes falla al guardarse y suelta sus unidades
+                        if (random.nextInt(5) == 0) {
+                            reservation.release();
+                        } else {
+                            save(reservation);
+                            items.forEach(item -> committed.computeIfAbsent(item.getProductId(), id -> new AtomicLong())
+                                    .addAndGet(item.getQuantity()));
+                        }
+                    }
+                    return null;
+                }));
+            }
+
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+            ordering.set(false);
+            confirmer.get();
+        } finally {
+            pool.shutdownNow();
+        }
+        stockReservationService.confirmPending();
+
+        assertTrue(refused.get() > 0, "Demand should exceed stock");
+        assertEquals(0, rejectedCalls.get());
+        assertTrue(confirmCalls.get() > 1, "Confirmations should be sent in several batches");
+        for (long id = 1; id <= PRODUCTS; id++) {
+            long sold = committed.getOrDefault(id, new AtomicLong()).get();
+            assertTrue(sold <= INITIAL_STOCK, "Product " + id + " oversold: " + sold);
+            assertEquals(INITIAL_STOCK - sold, remoteStock.get(id));
+            assertEquals(remoteStock.get(id), stockReservationService.available(id));
+        }
+    }
+
+    @Test
+    void reserve_SeesRestockAfterNextConfirmation() {
+        Map<Long, Product> products = products();
+        save(stockReservationService.reserve(List.of(item(1L, (int) INITIAL_STOCK)), products));
+        stockReservationService.confirmPending();
+        assertThrows(IllegalStateException.class, () -> stockReservationService.reserve(List.of(item(1L, 1)), products));
+
+        remoteStock.put(1L, 5L);
+        stockReservationService.confirmPending();
+
+        save(stockReservationService.reserve(List.of(item(1L, 5)), products));
+        assertEquals(0, stockReservationService.available(1L));
+    }
+
+    @Test
+    void confirmPending_RetriesWhenProductServiceIsDown() {
+        Map<Long, Product> products = products();
+        save(stockReservationService.reserve(List.of(item(1L, 2), item(2L, 3)), products));
+
+        remoteDown = true;
+        assertEquals(0, stockReservationService.confirmPending());
+        assertEquals(INITIAL_STOCK, remoteStock.get(1L));
+
+        remoteDown = false;
+        assertEquals(2, stockReservationService.confirmPending());
+        assertEquals(INITIAL_STOCK - 2, remoteStock.get(1L));
+        assertEquals(INITIAL_STOCK - 3, remoteStock.get(2L));
+    }
+
+    @Test
+    void confirmPending_SendsStockSavedByAReplicaThatStopped() {
+        Long orderId = save(stockReservationService.reserve(List.of(item(1L, 7)), products()));
+        // La réplica cae sin confirmar; la fila quedó guardada con la orden
+        StockReservationService.Reservation unsaved = stockReservationService.reserve(List.of(item(1L, 1)), products());
+        assertThrows(IllegalStateException.class, () -> unsaved.record(orderId));
+        unsaved.release();
+
+        StockReservationService other = replica();
+        assertEquals(1, other.confirmPending());
+
+        assertEquals(INITIAL_STOCK - 7, remoteStock.get(1L));
+        assertEquals(0, adjustmentRepository.count());
+    }
+
+    @Test
+    void confirmPending_CancelsOrdersTheProductServiceRejects() {
+        // Cada réplica aparta con sus propios contadores las mismas unidades
+        StockReservationService other = replica();
+        Long first = save(stockReservationService.reserve(List.of(item(1L, 200)), products()));
+        Long second = save(other.reserve(List.of(item(1L, 200)), products()));
+
+        stockReservationService.confirmPending();
+
+        assertTrue(rejectedCalls.get() > 0);
+        assertEquals(INITIAL_STOCK - 200, remoteStock.get(1L));
+        assertEquals("PENDING", orderRepository.findById(first).orElseThrow().getStatus());
+        assertEquals("CANCELLED", orderRepository.findById(second).orElseThrow().getStatus());
+        assertEquals(0, adjustmentRepository.count());
+        assertEquals(INITIAL_STOCK - 200, stockReservationService.available(1L));
+    }
+
+    @Test
+    void reserve_IsAllOrNothingAcrossItems() {
+        Map<Long, Product> products = products();
+
+        assertThrows(IllegalStateException.class, () -> stockReservationService.reserve(
+                List.of(item(1L, 10), item(2L, (int) INITIAL_STOCK + 1)), products));
+
+        assertEquals(INITIAL_STOCK, stockReservationService.available(1L));
+    }
+
+    private StockReservationService replica() {
+        return new StockReservationService(productClient, properties, adjustmentRepository, orderRepository,
+                orderStatsService, orderResponseCache, transactionTemplate);
+    }
+
+    // Guarda una orden con las unidades de la reserva, como lo hace OrderService
+    private Long save(StockReservationService.Reservation reservation) {
+        Long orderId = transactionTemplate.execute(tx -> {
+            OrderEntity order = orderRepository.save(orderService.newOrderEntity(1L, List.of()));
+            reservation.record(order.getId());
+            return order.getId();
+        });
+        reservation.commit();
+        return orderId;
+    }
+
+    private Map<Long, Product> products() {
+        return LongStream.rangeClosed(1, PRODUCTS).boxed().collect(Collectors.toMap(Function.identity(),
+                id -> new Product(id, "Product " + id, null, new BigDecimal("10.00"), (int) INITIAL_STOCK, null, null)));
+    }
+
+    private CreateOrderRequest.CreateOrderItemRequest item(Long productId, int quantity) {
+        return new CreateOrderRequest.CreateOrderItemRequest(productId, quantity);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        confirmCalls.incrementAndGet();
+        if (remoteDown) {
+            respond(exchange, 503, new byte[0]);
+            return;
+        }
+        StockAdjustment[] adjustments = objectMapper.readValue(exchange.getRequestBody(), StockAdjustment[].class);
+        List<StockLevel> levels = new ArrayList<>();
+        synchronized (remoteStock) {
+            for (StockAdjustment adjustment : adjustments) {
+                if (remoteStock.get(adjustment.getProductId()) < adjustment.getQuantity()) {
+                    rejectedCalls.incrementAndGet();
+                    respond(exchange, 409, new byte[0]);
+                    return;
+                }
+            }
+            for (StockAdjustment adjustment : adjustments) {
+                long left = remoteStock.merge(adjustment.getProductId(), -adjustment.getQuantity(), Long::sum);
+                levels.add(new StockLevel(adjustment.getProductId(), left));
+            }
+        }
+        respond(exchange, 200, objectMapper.writeValueAsBytes(levels));
+    }
+
+    private void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}